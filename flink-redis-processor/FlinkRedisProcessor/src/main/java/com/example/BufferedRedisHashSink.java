@@ -0,0 +1,187 @@
+package com.example;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.runtime.state.FunctionInitializationContext;
+import org.apache.flink.runtime.state.FunctionSnapshotContext;
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.streaming.connectors.redis.common.config.FlinkJedisPoolConfig;
+import org.apache.flink.streaming.connectors.redis.common.mapper.RedisCommand;
+import org.apache.flink.streaming.connectors.redis.common.mapper.RedisCommandDescription;
+import org.apache.flink.streaming.connectors.redis.common.mapper.RedisMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带缓冲的 Redis Hash Sink，替代逐条 HSET 的 RedisSink。
+ *
+ * <p>同一个 field 在一次 flush 之前的多次更新只保留最后一个值（例如 keyBy().sum() 对每个单词
+ * 每出现一次就输出一次累计值，只有最新的计数需要写入）。flush 时把缓冲的 field 分成若干个
+ * 多字段 HMSET，放在一个 pipeline 里发出，一次往返写完。
+ * 缓冲在达到 batchSize 个 field、flushIntervalMs 到期、checkpoint 或关闭时 flush。
+ *
+ * <p>checkpoint 前缓冲一定已写入 Redis；写入的是累计值，恢复后重放的消息会再次覆盖同一个 field，
+ * 结果与状态一致。Hash 的 key 和 field / value 由 RedisMapper 给出，命令必须是 HSET。
+ */
+public class BufferedRedisHashSink<T> extends RichSinkFunction<T> implements CheckpointedFunction {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(BufferedRedisHashSink.class);
+
+    // 单条 HMSET 最多带的 field 数，避免一条命令过大阻塞 Redis
+    private static final int FIELDS_PER_COMMAND = 500;
+
+    private final FlinkJedisPoolConfig jedisConfig;
+    private final RedisMapper<T> mapper;
+    private final String hashKey;
+    private final int batchSize;
+    private final long flushIntervalMs;
+
+    private transient JedisPool jedisPool;
+    // field -> 最新的 value，保持首次出现的顺序
+    private transient Map<String, String> buffer;
+    private transient ScheduledExecutorService scheduler;
+    private transient ScheduledFuture<?> scheduledFlush;
+    private transient volatile Exception flushException;
+
+    private transient Counter flushCounter;
+    private transient Counter fieldsWrittenCounter;
+    private transient Counter coalescedCounter;
+
+    public BufferedRedisHashSink(FlinkJedisPoolConfig jedisConfig, RedisMapper<T> mapper, int batchSize, long flushIntervalMs) {
+        RedisCommandDescription description = mapper.getCommandDescription();
+        if (description.getCommand() != RedisCommand.HSET) {
+            throw new IllegalArgumentException("BufferedRedisHashSink 只支持 HSET，当前: " + description.getCommand());
+        }
+        this.jedisConfig = jedisConfig;
+        this.mapper = mapper;
+        this.hashKey = description.getAdditionalKey();
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        super.open(parameters);
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(jedisConfig.getMaxTotal());
+        poolConfig.setMaxIdle(jedisConfig.getMaxIdle());
+        poolConfig.setMinIdle(jedisConfig.getMinIdle());
+        jedisPool = new JedisPool(poolConfig, jedisConfig.getHost(), jedisConfig.getPort(),
+                jedisConfig.getConnectionTimeout(), jedisConfig.getPassword(), jedisConfig.getDatabase());
+        buffer = new LinkedHashMap<>();
+
+        flushCounter = getRuntimeContext().getMetricGroup().counter("flushes");
+        fieldsWrittenCounter = getRuntimeContext().getMetricGroup().counter("fieldsWritten");
+        // 因同一 field 被后来的值覆盖而省掉的写入次数
+        coalescedCounter = getRuntimeContext().getMetricGroup().counter("coalescedUpdates");
+
+        if (flushIntervalMs > 0 && batchSize > 1) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "redis-hash-sink-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduledFlush = scheduler.scheduleWithFixedDelay(() -> {
+                synchronized (BufferedRedisHashSink.this) {
+                    try {
+                        flush();
+                    } catch (Exception e) {
+                        flushException = e;
+                    }
+                }
+            }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void invoke(T value, Context context) throws Exception {
+        checkFlushException();
+        if (buffer.put(mapper.getKeyFromData(value), mapper.getValueFromData(value)) != null) {
+            coalescedCounter.inc();
+        }
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized void snapshotState(FunctionSnapshotContext context) throws Exception {
+        checkFlushException();
+        flush();
+    }
+
+    @Override
+    public void initializeState(FunctionInitializationContext context) {
+        // 每次 checkpoint 前都会清空缓冲，没有需要恢复的状态
+    }
+
+    /**
+     * 把缓冲的 field 用 pipeline 写入 Redis。失败时保留缓冲，由调用方决定是否让作业失败重启。
+     */
+    private void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            Map<String, String> chunk = new HashMap<>();
+            for (Map.Entry<String, String> entry : buffer.entrySet()) {
+                chunk.put(entry.getKey(), entry.getValue());
+                if (chunk.size() == FIELDS_PER_COMMAND) {
+                    pipeline.hmset(hashKey, chunk);
+                    chunk = new HashMap<>();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                pipeline.hmset(hashKey, chunk);
+            }
+            pipeline.sync();
+        }
+        flushCounter.inc();
+        fieldsWrittenCounter.inc(buffer.size());
+        buffer.clear();
+    }
+
+    private void checkFlushException() {
+        if (flushException != null) {
+            throw new RuntimeException("定时写入 Redis 失败", flushException);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        if (buffer != null && flushException == null) {
+            synchronized (this) {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    LOG.warn("关闭前写入剩余的 {} 个 field 失败", buffer.size(), e);
+                }
+            }
+        }
+        if (jedisPool != null) {
+            jedisPool.close();
+        }
+        super.close();
+    }
+}
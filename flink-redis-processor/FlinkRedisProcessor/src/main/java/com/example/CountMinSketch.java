@@ -0,0 +1,109 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Count-Min Sketch：depth 行、每行 width 个计数器，估计值不小于真实值，
+ * 以 1 - delta 的概率不超过 真实值 + epsilon * 总数。width = ⌈e / epsilon⌉，depth = ⌈ln(1 / delta)⌉，
+ * 内存只由误差参数决定，与输入多少无关。参数相同的两个 sketch 逐个计数器相加即可合并。
+ *
+ * <p>第 i 行的位置由 64 位 {@link MurmurHash64A}（种子 {@link RedisHyperLogLog#REDIS_SEED}，对 UTF-8 字节）
+ * 拆成低 32 位 h1、高 32 位 h2 后计算：((h1 + i * h2) 的低 31 位) mod width。
+ *
+ * <p>{@link #toBytes()} 的格式（大端）：int magic "CMS1"、int depth、int width、long 总数、depth * width 个 long。
+ */
+public final class CountMinSketch {
+
+    private static final int MAGIC = 0x434D5331; // "CMS1"
+
+    private int depth;
+    private int width;
+    private long total;
+    private long[] counts;
+
+    private CountMinSketch() {
+    }
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 1) {
+            throw new IllegalArgumentException("depth 和 width 必须大于 0: " + depth + " x " + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counts = new long[depth * width];
+    }
+
+    /**
+     * 按误差上界创建：估计值超出真实值 epsilon * 总数 以上的概率不超过 delta。
+     */
+    public static CountMinSketch withErrorBounds(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon 和 delta 必须在 (0, 1) 之间: " + epsilon + ", " + delta);
+        }
+        return new CountMinSketch((int) Math.ceil(Math.log(1 / delta)), (int) Math.ceil(Math.E / epsilon));
+    }
+
+    public void add(String word, long count) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        addHash(MurmurHash64A.hash(bytes, 0, bytes.length, RedisHyperLogLog.REDIS_SEED), count);
+    }
+
+    public void addHash(long hash, long count) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < depth; i++) {
+            counts[i * width + ((h1 + i * h2) & Integer.MAX_VALUE) % width] += count;
+        }
+        total += count;
+    }
+
+    public long estimate(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        return estimateHash(MurmurHash64A.hash(bytes, 0, bytes.length, RedisHyperLogLog.REDIS_SEED));
+    }
+
+    public long estimateHash(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counts[i * width + ((h1 + i * h2) & Integer.MAX_VALUE) % width]);
+        }
+        return min;
+    }
+
+    public CountMinSketch merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Count-Min Sketch 大小不同，不能合并: "
+                    + depth + " x " + width + " / " + other.depth + " x " + other.width);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        return this;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(20 + counts.length * 8);
+        buffer.putInt(MAGIC).putInt(depth).putInt(width).putLong(total);
+        buffer.asLongBuffer().put(counts);
+        return buffer.array();
+    }
+
+    public static CountMinSketch fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("不是 Count-Min Sketch 数据");
+        }
+        CountMinSketch sketch = new CountMinSketch(buffer.getInt(), buffer.getInt());
+        sketch.total = buffer.getLong();
+        buffer.asLongBuffer().get(sketch.counts);
+        return sketch;
+    }
+}
@@ -4,84 +4,231 @@ import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.connectors.rabbitmq.RMQSource;
 import org.apache.flink.streaming.connectors.rabbitmq.common.RMQConnectionConfig;
-import org.apache.flink.streaming.util.serialization.SimpleStringSchema;
-import org.apache.flink.api.common.functions.FlatMapFunction;
-import org.apache.flink.util.Collector;
 import org.apache.flink.api.common.typeinfo.Types;
 import org.apache.flink.api.java.tuple.Tuple2;
-import org.apache.flink.streaming.connectors.redis.RedisSink;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.common.eventtime.WatermarkStrategy;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.functions.FlatMapFunction;
+import org.apache.flink.streaming.api.functions.windowing.ProcessWindowFunction;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.assigners.TumblingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.time.Time;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
+import org.apache.flink.util.Collector;
 import org.apache.flink.streaming.connectors.redis.common.config.FlinkJedisPoolConfig;
 import org.apache.flink.streaming.connectors.redis.common.mapper.RedisCommand;
 import org.apache.flink.streaming.connectors.redis.common.mapper.RedisCommandDescription;
 import org.apache.flink.streaming.connectors.redis.common.mapper.RedisMapper;
 
+import java.time.Duration;
+
 public class DataStreamJob1 {
     public static void main(String[] args) throws Exception {
+        // 0. 加载配置：jar 内 job.properties、--config 指定的文件、命令行参数，见 JobConfig
+        final JobConfig config = JobConfig.load(args, "flink-input-queue");
+
         // 1. 创建 Flink 执行环境
         final StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+        env.setParallelism(config.getParallelism());
+        env.getConfig().setGlobalJobParameters(config.getPublicParameters());
+        if (config.isCheckpointed()) {
+            env.enableCheckpointing(config.getCheckpointInterval());
+        }
 
         // 2. 配置 RabbitMQ 连接
-        RMQConnectionConfig connectionConfig = new RMQConnectionConfig.Builder()
-            .setHost("localhost")  // RabbitMQ 服务器地址
-            .setPort(5672)        // 默认端口
-            .setUserName("guest")
-            .setPassword("guest")
-            .setVirtualHost("/")
-            .build();
+        RMQConnectionConfig connectionConfig = config.rabbitConnectionConfig();
 
         // 3. 创建 RabbitMQ 数据源（消费指定队列）
-        RMQSource<String> source = new RMQSource<> (
+        // 消息确认方式由是否开启 checkpoint 决定：开启时在 checkpoint 完成后确认，否则自动确认
+        RMQSource<byte[]> source = new RMQSource<> (
                 connectionConfig,      // RabbitMQ 连接配置
-                "flink-input-queue",  // 要消费的队列名
-                true,                 // 自动确认消息
-                new SimpleStringSchema() // 数据反序列化方式
+                config.getQueue(),    // 要消费的队列名
+                config.isUsesCorrelationId(), // 是否按 correlation_id 去重，默认关闭（见 rabbitmq.correlation-id）
+                new RawBytesDeserializationSchema() // 不解码，切词直接在 UTF-8 字节上进行
         );
 	
 	// 注册source
-	DataStream<String> rabbitMQStream = env.addSource(source);
+	DataStream<byte[]> rabbitMQStream = env.addSource(source);
         // 4. 数据处理（示例：单词计数）
-        DataStream<Tuple2<String, Integer>> processedStream = rabbitMQStream
-            .flatMap(new FlatMapFunction<String, Tuple2<String, Integer>>() {
-                @Override
-                public void flatMap(String value, Collector<Tuple2<String, Integer>> out) {
-                    // 按空格拆分单词，每个单词计数1
-                    for (String word : value.split("\\s")) {
-                        out.collect(new Tuple2<>(word, 1));
-                    }
-                }
-            })
-            .returns(Types.TUPLE(Types.STRING, Types.INT)) // 指定返回类型
-            .keyBy(0)  // 按单词分组
-            .sum(1);   // 累加计数
-
-        processedStream.print();
+        // 按 Unicode 空白切词，中文按 wordcount.tokenizer.cjk 切分（见 Utf8WordTokenizer）；
+        // 先在子任务内预聚合，只把每个单词的部分计数发往 keyBy。
+        // 并行度与 Source 相同（RMQSource 不是并行 Source，为 1），两者链接在一起，原始消息不经过网络；
+        // 否则并行度大于 1 时消息会先被 rebalance 一次，预聚合就失去了意义
+        DataStream<Tuple2<String, Integer>> wordCounts = rabbitMQStream
+            .transform("Word Count Pre-Aggregate",
+                Types.TUPLE(Types.STRING, Types.INT),
+                new WordCountPreAggregateOperator(
+                    new Utf8WordTokenizer(config.getTokenizerCjkMode()),
+                    config.getPreAggregateMaxRecords(),
+                    config.getPreAggregateIntervalMs()))
+            .setParallelism(rabbitMQStream.getParallelism());
 
 	// 5. 配置 Redis 连接
-        FlinkJedisPoolConfig redisConfig = new FlinkJedisPoolConfig.Builder()
-            .setHost("localhost")  // Redis 服务器地址
-            .setPort(6379)        // 默认端口
-	    .setPassword("093390Aa")
-            .build();
-
-        // 6. 创建 Redis Sink（将结果写入Redis的Hash结构）
-        processedStream
-//	    .map(t -> {
-  //      	System.out.println("Writing to Redis: " + t);
-    //     	return t;
-    //	    })
-      //      .returns(Types.TUPLE(Types.STRING, Types.INT)) 	
-	    .addSink(new RedisSink<>(
-                redisConfig,
-                new RedisWordCountMapper()
-            ));
-
-        // 7. 打印处理结果到控制台（调试用）
-        processedStream.print();
+        FlinkJedisPoolConfig redisConfig = config.redisPoolConfig();
+
+        if (config.isTotalCountEnabled()) {
+            DataStream<Tuple2<String, Integer>> processedStream = wordCounts
+                .keyBy(0)  // 按单词分组
+                .sum(1);   // 累加计数
+
+            // 6. 创建 Redis Sink（将结果写入Redis的Hash结构）
+            // sum 每个单词出现一次就输出一次累计值，缓冲 Sink 只写每个单词最新的计数，并用 pipeline 批量发送
+            processedStream
+                .addSink(new BufferedRedisHashSink<>(
+                    redisConfig,
+                    new RedisWordCountMapper(),
+                    config.getRedisSinkBatchSize(),
+                    config.getRedisSinkFlushIntervalMs()
+                ))
+                .name("Redis Hash Sink");
+
+            // 7. 打印处理结果到控制台（调试用）
+            processedStream.print();
+        }
+
+        if (config.isTrendingEnabled()) {
+            // 滑动窗口热词：窗口内按单词增量计数，再按窗口取前 K 个写入有序集合。
+            // 时间戳是预聚合 flush 的时间（见 WordCountPreAggregateOperator），每个子任务内单调递增。
+            // 取前 K 个分两级：先按 (窗口, 单词哈希分区) 并行取局部前 K 个，再按窗口合并，
+            // 一个窗口的全部词汇不会集中在一个子任务上
+            final int trendingPartitions = config.getTrendingPartitions();
+            DataStream<TrendingWords> trending = wordCounts
+                .assignTimestampsAndWatermarks(WatermarkStrategy
+                    .<Tuple2<String, Integer>>forMonotonousTimestamps()
+                    .withIdleness(Duration.ofSeconds(config.getTrendingSlideSeconds())))
+                .keyBy(t -> t.f0)
+                .window(SlidingEventTimeWindows.of(
+                    Time.seconds(config.getTrendingWindowSeconds()),
+                    Time.seconds(config.getTrendingSlideSeconds())))
+                .aggregate(new CountAggregate(), new AttachWindowEnd())
+                .keyBy(t -> Tuple2.of(t.f0, Math.floorMod(t.f1.hashCode(), trendingPartitions)),
+                    Types.TUPLE(Types.LONG, Types.INT))
+                .process(new TopKWordsFunction<Tuple2<Long, Integer>>(config.getTrendingTopK()))
+                .name("Trending Partial Top-K")
+                .flatMap(new ExplodeTrendingWords())
+                .keyBy(t -> t.f0)
+                .process(new TopKWordsFunction<Long>(config.getTrendingTopK()))
+                .name("Trending Top-K");
+
+            trending
+                .addSink(new RedisTopKSink(redisConfig, config.getTrendingKeyPrefix(), config.getTrendingTtlSeconds()))
+                .name("Redis Trending Sink");
+
+            trending.print();
+        }
+
+        if (config.isApproximateEnabled()) {
+            // 近似统计：按单词哈希分成固定个数的分区，每个分区在窗口内只维护一份 Count-Min Sketch 和 HyperLogLog，
+            // 状态大小由误差参数和分区数决定，与词汇量无关；再把各分区的 sketch 合并成窗口的结果
+            final int partitions = config.getApproxPartitions();
+            DataStream<WordSketch> sketches = wordCounts
+                .assignTimestampsAndWatermarks(WatermarkStrategy
+                    .<Tuple2<String, Integer>>forMonotonousTimestamps()
+                    .withIdleness(Duration.ofSeconds(config.getApproxWindowSeconds())))
+                .keyBy(t -> Math.floorMod(t.f0.hashCode(), partitions))
+                .window(TumblingEventTimeWindows.of(Time.seconds(config.getApproxWindowSeconds())))
+                .aggregate(new SketchAggregate(config.getApproxEpsilon(), config.getApproxDelta()),
+                    new AttachSketchWindowEnd())
+                .windowAll(TumblingEventTimeWindows.of(Time.seconds(config.getApproxWindowSeconds())))
+                .reduce(WordSketch::merge)
+                .name("Word Sketch Merge");
+
+            sketches
+                .addSink(new RedisSketchSink(redisConfig, config.getApproxKeyPrefix(), config.getApproxTtlSeconds()))
+                .name("Redis Sketch Sink");
+
+            sketches.print();
+        }
 
         // 8. 执行任务
         env.execute("Flink RabbitMQ to Redis Job");
     }
 
+    // 窗口内单词计数的增量累加，窗口中只保存一个 Long
+    public static class CountAggregate implements AggregateFunction<Tuple2<String, Integer>, Long, Long> {
+        @Override
+        public Long createAccumulator() {
+            return 0L;
+        }
+
+        @Override
+        public Long add(Tuple2<String, Integer> value, Long accumulator) {
+            return accumulator + value.f1;
+        }
+
+        @Override
+        public Long getResult(Long accumulator) {
+            return accumulator;
+        }
+
+        @Override
+        public Long merge(Long a, Long b) {
+            return a + b;
+        }
+    }
+
+    // 给窗口计数加上窗口结束时间，输出 (窗口结束时间, 单词, 计数)
+    public static class AttachWindowEnd
+            extends ProcessWindowFunction<Long, Tuple3<Long, String, Long>, String, TimeWindow> {
+        @Override
+        public void process(String word, Context context, Iterable<Long> counts, Collector<Tuple3<Long, String, Long>> out) {
+            out.collect(Tuple3.of(context.window().getEnd(), word, counts.iterator().next()));
+        }
+    }
+
+    // 把局部前 K 个拆回 (窗口结束时间, 单词, 计数)，交给按窗口合并的那一级
+    public static class ExplodeTrendingWords implements FlatMapFunction<TrendingWords, Tuple3<Long, String, Long>> {
+        @Override
+        public void flatMap(TrendingWords partial, Collector<Tuple3<Long, String, Long>> out) {
+            for (int i = 0; i < partial.words.size(); i++) {
+                out.collect(Tuple3.of(partial.windowEnd, partial.words.get(i), partial.counts.get(i)));
+            }
+        }
+    }
+
+    // 把一个分区在窗口内的单词计数累加进 sketch
+    public static class SketchAggregate implements AggregateFunction<Tuple2<String, Integer>, WordSketch, WordSketch> {
+        private final double epsilon;
+        private final double delta;
+
+        public SketchAggregate(double epsilon, double delta) {
+            this.epsilon = epsilon;
+            this.delta = delta;
+        }
+
+        @Override
+        public WordSketch createAccumulator() {
+            return new WordSketch(epsilon, delta);
+        }
+
+        @Override
+        public WordSketch add(Tuple2<String, Integer> value, WordSketch accumulator) {
+            accumulator.add(value.f0, value.f1);
+            return accumulator;
+        }
+
+        @Override
+        public WordSketch getResult(WordSketch accumulator) {
+            return accumulator;
+        }
+
+        @Override
+        public WordSketch merge(WordSketch a, WordSketch b) {
+            return a.merge(b);
+        }
+    }
+
+    // 给分区的 sketch 记上窗口结束时间
+    public static class AttachSketchWindowEnd extends ProcessWindowFunction<WordSketch, WordSketch, Integer, TimeWindow> {
+        @Override
+        public void process(Integer partition, Context context, Iterable<WordSketch> sketches, Collector<WordSketch> out) {
+            WordSketch sketch = sketches.iterator().next();
+            sketch.windowEnd = context.window().getEnd();
+            out.collect(sketch);
+        }
+    }
+
     // 自定义Redis映射器（定义如何存储数据到Redis）
     public static class RedisWordCountMapper implements RedisMapper<Tuple2<String, Integer>> {
         @Override
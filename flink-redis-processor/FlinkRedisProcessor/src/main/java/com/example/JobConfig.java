@@ -0,0 +1,228 @@
+package com.example;
+
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.streaming.connectors.rabbitmq.common.RMQConnectionConfig;
+import org.apache.flink.streaming.connectors.redis.common.config.FlinkJedisPoolConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RabbitMQ -> Redis 作业共用的类型化配置。
+ *
+ * <p>配置按以下顺序叠加，后者覆盖前者：jar 内的 job.properties、--config 指定的外部文件、命令行参数。
+ * 队列名各作业不同，由作业在 {@link #load(String[], String)} 时给出默认值。
+ */
+public class JobConfig implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final String DEFAULTS_RESOURCE = "/job.properties";
+
+    private final ParameterTool parameters;
+
+    // 并行度与 checkpoint
+    private final int parallelism;
+    private final long checkpointInterval;
+
+    // 单词计数预聚合：每累加多少个单词或多少毫秒发往下游一次
+    private final int preAggregateMaxRecords;
+    private final long preAggregateIntervalMs;
+    // 中日文切分方式：none / unigram / bigram
+    private final Utf8WordTokenizer.CjkMode tokenizerCjkMode;
+    // 输出方式，逗号分隔的组合：total 累计总数写入 Hash，trending 滑动窗口热词写入有序集合，
+    // approximate 窗口近似统计（Count-Min Sketch + HyperLogLog）；both 等同于 total,trending
+    private final Set<String> wordCountOutputs;
+    private final long trendingWindowSeconds;
+    private final long trendingSlideSeconds;
+    private final int trendingTopK;
+    // 取前 K 个时按单词哈希分成的分区数，各分区并行取局部前 K 个后再合并
+    private final int trendingPartitions;
+    private final String trendingKeyPrefix;
+    private final int trendingTtlSeconds;
+    // 近似统计：窗口长度、预聚合分区数、Count-Min Sketch 误差参数
+    private final long approxWindowSeconds;
+    private final int approxPartitions;
+    private final double approxEpsilon;
+    private final double approxDelta;
+    private final String approxKeyPrefix;
+    private final int approxTtlSeconds;
+
+    // RabbitMQ
+    private final String rabbitHost;
+    private final int rabbitPort;
+    private final String rabbitUsername;
+    private final String rabbitPassword;
+    private final String rabbitVirtualHost;
+    private final String queue;
+    private final int prefetchCount;
+    private final boolean usesCorrelationId;
+
+    // Redis
+    private final String redisHost;
+    private final int redisPort;
+    private final String redisPassword;
+    private final int redisDatabase;
+    private final int redisTimeoutMs;
+    // Jedis 连接池大小：每个 Sink 子任务一个连接池
+    private final int redisPoolMaxTotal;
+    private final int redisPoolMaxIdle;
+    // 缓冲 Sink：最多缓冲的 field 数和定时 flush 间隔
+    private final int redisSinkBatchSize;
+    private final long redisSinkFlushIntervalMs;
+
+    private JobConfig(ParameterTool params, String defaultQueue) {
+        this.parameters = params;
+
+        this.parallelism = params.getInt("parallelism", 1);
+        this.checkpointInterval = params.getLong("checkpoint.interval", 0L);
+
+        this.preAggregateMaxRecords = params.getInt("wordcount.pre-aggregate.max-records", 10000);
+        this.preAggregateIntervalMs = params.getLong("wordcount.pre-aggregate.interval-ms", 200L);
+        this.tokenizerCjkMode = Utf8WordTokenizer.CjkMode.parse(params.get("wordcount.tokenizer.cjk", "bigram"));
+        this.wordCountOutputs = parseWordCountOutputs(params.get("wordcount.mode", "total"));
+        this.trendingWindowSeconds = params.getLong("wordcount.trending.window-seconds", 300L);
+        this.trendingSlideSeconds = params.getLong("wordcount.trending.slide-seconds", 60L);
+        this.trendingTopK = params.getInt("wordcount.trending.top-k", 20);
+        this.trendingPartitions = params.getInt("wordcount.trending.partitions", parallelism);
+        this.trendingKeyPrefix = params.get("wordcount.trending.key-prefix", "word_trending");
+        this.trendingTtlSeconds = params.getInt("wordcount.trending.ttl-seconds", (int) (trendingWindowSeconds * 2));
+        this.approxWindowSeconds = params.getLong("wordcount.approx.window-seconds", 60L);
+        this.approxPartitions = params.getInt("wordcount.approx.partitions", parallelism);
+        this.approxEpsilon = params.getDouble("wordcount.approx.epsilon", 0.001);
+        this.approxDelta = params.getDouble("wordcount.approx.delta", 0.01);
+        this.approxKeyPrefix = params.get("wordcount.approx.key-prefix", "word_sketch");
+        this.approxTtlSeconds = params.getInt("wordcount.approx.ttl-seconds", 86400);
+
+        this.rabbitHost = params.get("rabbitmq.host", "localhost");
+        this.rabbitPort = params.getInt("rabbitmq.port", 5672);
+        this.rabbitUsername = params.get("rabbitmq.username", "guest");
+        this.rabbitPassword = params.get("rabbitmq.password", "guest");
+        this.rabbitVirtualHost = params.get("rabbitmq.virtual-host", "/");
+        this.queue = params.get("rabbitmq.queue", defaultQueue);
+        // 消费者未确认消息上限，0 表示不设置
+        this.prefetchCount = params.getInt("rabbitmq.prefetch", 0);
+        // 是否按 AMQP correlation_id 对重投递的消息去重（只在 checkpoint 模式下生效）。
+        // 开启后没有 correlation_id 的消息会让 Source 失败；server1.js 不设置 correlation_id，默认关闭
+        this.usesCorrelationId = params.getBoolean("rabbitmq.correlation-id", false);
+
+        this.redisHost = params.get("redis.host", "localhost");
+        this.redisPort = params.getInt("redis.port", 6379);
+        this.redisPassword = params.get("redis.password", "");
+        this.redisDatabase = params.getInt("redis.database", 0);
+        this.redisTimeoutMs = params.getInt("redis.timeout-ms", 2000);
+        this.redisPoolMaxTotal = params.getInt("redis.pool.max-total", 8);
+        this.redisPoolMaxIdle = params.getInt("redis.pool.max-idle", redisPoolMaxTotal);
+        this.redisSinkBatchSize = params.getInt("redis.sink.batch-size", 1000);
+        this.redisSinkFlushIntervalMs = params.getLong("redis.sink.flush-interval-ms", 200L);
+    }
+
+    /**
+     * 依次合并 jar 内默认配置、--config 指定的文件和命令行参数。
+     */
+    public static JobConfig load(String[] args, String defaultQueue) throws IOException {
+        ParameterTool cli = ParameterTool.fromArgs(args);
+        ParameterTool params = ParameterTool.fromMap(Collections.emptyMap());
+        try (InputStream defaults = JobConfig.class.getResourceAsStream(DEFAULTS_RESOURCE)) {
+            if (defaults != null) {
+                params = ParameterTool.fromPropertiesFile(defaults);
+            }
+        }
+        if (cli.has("config")) {
+            params = params.mergeWith(ParameterTool.fromPropertiesFile(cli.get("config")));
+        }
+        return new JobConfig(params.mergeWith(cli), defaultQueue);
+    }
+
+    private static Set<String> parseWordCountOutputs(String value) {
+        Set<String> outputs = new HashSet<>();
+        for (String output : value.split(",")) {
+            output = output.trim().toLowerCase();
+            if (output.equals("both")) {
+                outputs.add("total");
+                outputs.add("trending");
+            } else if (output.equals("total") || output.equals("trending") || output.equals("approximate")) {
+                outputs.add(output);
+            } else {
+                throw new IllegalArgumentException("wordcount.mode 只能是 total、trending、approximate 的组合: " + value);
+            }
+        }
+        return outputs;
+    }
+
+    public RMQConnectionConfig rabbitConnectionConfig() {
+        RMQConnectionConfig.Builder builder = new RMQConnectionConfig.Builder()
+                .setHost(rabbitHost)
+                .setPort(rabbitPort)
+                .setUserName(rabbitUsername)
+                .setPassword(rabbitPassword)
+                .setVirtualHost(rabbitVirtualHost);
+        if (prefetchCount > 0) {
+            builder.setPrefetchCount(prefetchCount);
+        }
+        return builder.build();
+    }
+
+    public FlinkJedisPoolConfig redisPoolConfig() {
+        FlinkJedisPoolConfig.Builder builder = new FlinkJedisPoolConfig.Builder()
+                .setHost(redisHost)
+                .setPort(redisPort)
+                .setDatabase(redisDatabase)
+                .setTimeout(redisTimeoutMs)
+                .setMaxTotal(redisPoolMaxTotal)
+                .setMaxIdle(redisPoolMaxIdle);
+        if (!redisPassword.isEmpty()) {
+            builder.setPassword(redisPassword);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 去掉密码后的参数，用于 setGlobalJobParameters：全局参数会显示在 Flink Web UI 上。
+     */
+    public ParameterTool getPublicParameters() {
+        Map<String, String> visible = new HashMap<>(parameters.toMap());
+        visible.keySet().removeIf(key -> key.endsWith("password"));
+        return ParameterTool.fromMap(visible);
+    }
+
+    public boolean isCheckpointed() {
+        return checkpointInterval > 0;
+    }
+
+    // Getters
+    public ParameterTool getParameters() { return parameters; }
+    public int getParallelism() { return parallelism; }
+    public long getCheckpointInterval() { return checkpointInterval; }
+    public int getPreAggregateMaxRecords() { return preAggregateMaxRecords; }
+    public long getPreAggregateIntervalMs() { return preAggregateIntervalMs; }
+    public Utf8WordTokenizer.CjkMode getTokenizerCjkMode() { return tokenizerCjkMode; }
+    public boolean isTotalCountEnabled() { return wordCountOutputs.contains("total"); }
+    public boolean isTrendingEnabled() { return wordCountOutputs.contains("trending"); }
+    public boolean isApproximateEnabled() { return wordCountOutputs.contains("approximate"); }
+    public long getTrendingWindowSeconds() { return trendingWindowSeconds; }
+    public long getTrendingSlideSeconds() { return trendingSlideSeconds; }
+    public int getTrendingTopK() { return trendingTopK; }
+    public int getTrendingPartitions() { return trendingPartitions; }
+    public String getTrendingKeyPrefix() { return trendingKeyPrefix; }
+    public int getTrendingTtlSeconds() { return trendingTtlSeconds; }
+    public long getApproxWindowSeconds() { return approxWindowSeconds; }
+    public int getApproxPartitions() { return approxPartitions; }
+    public double getApproxEpsilon() { return approxEpsilon; }
+    public double getApproxDelta() { return approxDelta; }
+    public String getApproxKeyPrefix() { return approxKeyPrefix; }
+    public int getApproxTtlSeconds() { return approxTtlSeconds; }
+    public String getQueue() { return queue; }
+    public int getPrefetchCount() { return prefetchCount; }
+    public boolean isUsesCorrelationId() { return usesCorrelationId; }
+    public String getRedisHost() { return redisHost; }
+    public int getRedisPort() { return redisPort; }
+    public int getRedisPoolMaxTotal() { return redisPoolMaxTotal; }
+    public int getRedisSinkBatchSize() { return redisSinkBatchSize; }
+    public long getRedisSinkFlushIntervalMs() { return redisSinkFlushIntervalMs; }
+}
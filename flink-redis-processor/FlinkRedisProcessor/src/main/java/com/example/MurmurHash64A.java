@@ -0,0 +1,59 @@
+package com.example;
+
+/**
+ * MurmurHash64A，与 Redis hyperloglog.c 中的实现逐位一致（按小端读取 8 字节块）。
+ * 用相同的种子对同一个 UTF-8 字符串求哈希，结果与 Redis PFADD 使用的哈希相同。
+ */
+public final class MurmurHash64A {
+
+    private static final long M = 0xc6a4a7935bd1e995L;
+    private static final int R = 47;
+
+    private MurmurHash64A() {
+    }
+
+    public static long hash(byte[] data, int offset, int length, long seed) {
+        long h = seed ^ (length * M);
+        int end = offset + (length & ~7);
+        int i = offset;
+        for (; i < end; i += 8) {
+            long k = (data[i] & 0xFFL)
+                    | (data[i + 1] & 0xFFL) << 8
+                    | (data[i + 2] & 0xFFL) << 16
+                    | (data[i + 3] & 0xFFL) << 24
+                    | (data[i + 4] & 0xFFL) << 32
+                    | (data[i + 5] & 0xFFL) << 40
+                    | (data[i + 6] & 0xFFL) << 48
+                    | (data[i + 7] & 0xFFL) << 56;
+            k *= M;
+            k ^= k >>> R;
+            k *= M;
+            h ^= k;
+            h *= M;
+        }
+        // 剩余不足 8 字节的部分，与 C 实现一样逐级贯穿
+        switch (length & 7) {
+            case 7:
+                h ^= (data[i + 6] & 0xFFL) << 48;
+            case 6:
+                h ^= (data[i + 5] & 0xFFL) << 40;
+            case 5:
+                h ^= (data[i + 4] & 0xFFL) << 32;
+            case 4:
+                h ^= (data[i + 3] & 0xFFL) << 24;
+            case 3:
+                h ^= (data[i + 2] & 0xFFL) << 16;
+            case 2:
+                h ^= (data[i + 1] & 0xFFL) << 8;
+            case 1:
+                h ^= data[i] & 0xFFL;
+                h *= M;
+            default:
+                break;
+        }
+        h ^= h >>> R;
+        h *= M;
+        h ^= h >>> R;
+        return h;
+    }
+}
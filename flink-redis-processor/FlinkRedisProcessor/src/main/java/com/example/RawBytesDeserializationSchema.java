@@ -0,0 +1,15 @@
+package com.example;
+
+import org.apache.flink.api.common.serialization.AbstractDeserializationSchema;
+
+/**
+ * 原样输出消息体字节，由下游直接在字节上处理（见 {@link Utf8WordTokenizer}），省去解码成 String。
+ */
+public class RawBytesDeserializationSchema extends AbstractDeserializationSchema<byte[]> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public byte[] deserialize(byte[] message) {
+        return message;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 与 Redis 兼容的 HyperLogLog：16384 个寄存器（p = 14，标准误差约 0.81%），哈希和寄存器取值与 PFADD 相同。
+ *
+ * <p>{@link #toRedisBytes()} 输出 Redis 的 dense 编码（"HYLL" 头 + 每个寄存器 6 bit），用 SET 写入后
+ * 可以直接 PFCOUNT，也可以与 PFADD 产生的 key 一起 PFMERGE。精度由 Redis 格式决定，不可配置。
+ * 内存固定为每个寄存器一个字节，与输入多少无关。
+ */
+public final class RedisHyperLogLog {
+
+    public static final long REDIS_SEED = 0xadc83b19L;
+
+    private static final int P = 14;
+    private static final int REGISTERS = 1 << P;
+    private static final int Q = 64 - P;
+    private static final int REGISTER_BITS = 6;
+    private static final int HEADER_SIZE = 16;
+    private static final int DENSE_SIZE = HEADER_SIZE + (REGISTERS * REGISTER_BITS + 7) / 8;
+
+    private byte[] registers;
+
+    public RedisHyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    public void add(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        addHash(MurmurHash64A.hash(bytes, 0, bytes.length, REDIS_SEED));
+    }
+
+    /**
+     * 按 Redis 的方式用哈希值更新寄存器：低 14 位选寄存器，其余位中末尾 0 的个数加一作为取值。
+     * 哈希必须是 {@link MurmurHash64A} 以 {@link #REDIS_SEED} 对 UTF-8 字节求得的。
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash & (REGISTERS - 1));
+        int count = Long.numberOfTrailingZeros((hash >>> P) | (1L << Q)) + 1;
+        if (count > registers[index]) {
+            registers[index] = (byte) count;
+        }
+    }
+
+    /**
+     * 合并另一个 HyperLogLog（逐个寄存器取最大值），结果等同于对两者的输入求并集。
+     */
+    public RedisHyperLogLog merge(RedisHyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 基数估计（原始 HyperLogLog 估计，小基数时用线性计数），用于日志和调试输出；
+     * 以 Redis 中 PFCOUNT 的结果为准。
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Redis dense 编码：magic "HYLL"、编码 0（dense）、3 字节保留、8 字节缓存的基数（最高位置 1 表示无效，
+     * PFCOUNT 会重新计算），之后是按小端位序紧密排列的 16384 个 6 bit 寄存器。
+     */
+    public byte[] toRedisBytes() {
+        byte[] out = new byte[DENSE_SIZE];
+        out[0] = 'H';
+        out[1] = 'Y';
+        out[2] = 'L';
+        out[3] = 'L';
+        // out[4] = 0 为 dense 编码；out[8..15] 为缓存的基数，最后一个字节最高位标记缓存无效
+        out[15] = (byte) 0x80;
+        for (int i = 0; i < REGISTERS; i++) {
+            int value = registers[i];
+            if (value == 0) {
+                continue;
+            }
+            int bitOffset = i * REGISTER_BITS;
+            int index = HEADER_SIZE + bitOffset / 8;
+            int shift = bitOffset & 7;
+            out[index] |= (byte) (value << shift);
+            if (shift > 8 - REGISTER_BITS) {
+                out[index + 1] |= (byte) (value >>> (8 - shift));
+            }
+        }
+        return out;
+    }
+}
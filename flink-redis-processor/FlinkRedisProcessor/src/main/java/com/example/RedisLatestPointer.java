@@ -0,0 +1,35 @@
+package com.example;
+
+import redis.clients.jedis.Pipeline;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * 维护 {keyPrefix}:latest 这类“最新窗口结束时间”指针：只在新值更大时前移，值相同时只刷新过期时间。
+ *
+ * <p>迟到的窗口、从 checkpoint 恢复后重放的窗口，以及不同子任务并发写入的窗口，到达顺序都可能比窗口本身晚，
+ * 直接 SETEX 会让指针倒退。比较和写入放在一个 Lua 脚本中，在 Redis 端原子执行。
+ */
+public final class RedisLatestPointer {
+
+    private static final String ADVANCE_SCRIPT =
+            "local current = tonumber(redis.call('GET', KEYS[1])) "
+            + "local value = tonumber(ARGV[1]) "
+            + "if current == nil or value > current then "
+            + "  redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) return 1 "
+            + "end "
+            + "if value == current then redis.call('EXPIRE', KEYS[1], ARGV[2]) end "
+            + "return 0";
+
+    private RedisLatestPointer() {
+    }
+
+    /**
+     * 在 pipeline（可以在 MULTI 中）里追加一条前移指针的命令。
+     */
+    public static void advance(Pipeline pipeline, String key, long windowEnd, int ttlSeconds) {
+        pipeline.eval(ADVANCE_SCRIPT, Collections.singletonList(key),
+                Arrays.asList(String.valueOf(windowEnd), String.valueOf(ttlSeconds)));
+    }
+}
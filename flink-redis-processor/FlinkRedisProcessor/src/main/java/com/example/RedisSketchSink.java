@@ -0,0 +1,68 @@
+package com.example;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.streaming.connectors.redis.common.config.FlinkJedisPoolConfig;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把每个窗口的近似统计写入 Redis：
+ * {keyPrefix}:hll:{windowEnd} 是 Redis 原生的 HyperLogLog，可以直接 PFCOUNT，多个窗口用 PFCOUNT / PFMERGE 求并集；
+ * {keyPrefix}:cms:{windowEnd} 是 Count-Min Sketch 的二进制数据（格式见 {@link CountMinSketch}）；
+ * {keyPrefix}:latest 是最新窗口的结束时间，只前移（见 {@link RedisLatestPointer}）。
+ * 都带过期时间，同一个窗口重新输出时整体覆盖。
+ */
+public class RedisSketchSink extends RichSinkFunction<WordSketch> {
+    private static final long serialVersionUID = 1L;
+
+    private final FlinkJedisPoolConfig jedisConfig;
+    private final String keyPrefix;
+    private final int ttlSeconds;
+
+    private transient JedisPool jedisPool;
+
+    public RedisSketchSink(FlinkJedisPoolConfig jedisConfig, String keyPrefix, int ttlSeconds) {
+        this.jedisConfig = jedisConfig;
+        this.keyPrefix = keyPrefix;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        super.open(parameters);
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(jedisConfig.getMaxTotal());
+        poolConfig.setMaxIdle(jedisConfig.getMaxIdle());
+        poolConfig.setMinIdle(jedisConfig.getMinIdle());
+        jedisPool = new JedisPool(poolConfig, jedisConfig.getHost(), jedisConfig.getPort(),
+                jedisConfig.getConnectionTimeout(), jedisConfig.getPassword(), jedisConfig.getDatabase());
+    }
+
+    @Override
+    public void invoke(WordSketch value, Context context) {
+        byte[] hllKey = (keyPrefix + ":hll:" + value.windowEnd).getBytes(StandardCharsets.UTF_8);
+        byte[] cmsKey = (keyPrefix + ":cms:" + value.windowEnd).getBytes(StandardCharsets.UTF_8);
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.multi();
+            pipeline.setex(hllKey, ttlSeconds, value.distinctWords.toRedisBytes());
+            pipeline.setex(cmsKey, ttlSeconds, value.frequencies.toBytes());
+            RedisLatestPointer.advance(pipeline, keyPrefix + ":latest", value.windowEnd, ttlSeconds);
+            pipeline.exec();
+            pipeline.sync();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (jedisPool != null) {
+            jedisPool.close();
+        }
+        super.close();
+    }
+}
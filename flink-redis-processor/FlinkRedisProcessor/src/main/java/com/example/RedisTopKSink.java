@@ -0,0 +1,76 @@
+package com.example;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.streaming.connectors.redis.common.config.FlinkJedisPoolConfig;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把每个窗口的热词写入 Redis 有序集合 {keyPrefix}:{windowEnd}，score 为窗口内计数，并设置过期时间。
+ * 同时把 {keyPrefix}:latest 指向最新的窗口结束时间（只前移，见 {@link RedisLatestPointer}），
+ * 读取方先取 latest，再用 ZREVRANGE / ZREVRANK 查询。
+ *
+ * <p>DEL、ZADD、EXPIRE 放在一个 MULTI 中，读取方不会看到写了一半的集合；
+ * 恢复后同一个窗口重新输出时整体覆盖，结果不变。
+ */
+public class RedisTopKSink extends RichSinkFunction<TrendingWords> {
+    private static final long serialVersionUID = 1L;
+
+    private final FlinkJedisPoolConfig jedisConfig;
+    private final String keyPrefix;
+    private final int ttlSeconds;
+
+    private transient JedisPool jedisPool;
+
+    public RedisTopKSink(FlinkJedisPoolConfig jedisConfig, String keyPrefix, int ttlSeconds) {
+        this.jedisConfig = jedisConfig;
+        this.keyPrefix = keyPrefix;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        super.open(parameters);
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(jedisConfig.getMaxTotal());
+        poolConfig.setMaxIdle(jedisConfig.getMaxIdle());
+        poolConfig.setMinIdle(jedisConfig.getMinIdle());
+        jedisPool = new JedisPool(poolConfig, jedisConfig.getHost(), jedisConfig.getPort(),
+                jedisConfig.getConnectionTimeout(), jedisConfig.getPassword(), jedisConfig.getDatabase());
+    }
+
+    @Override
+    public void invoke(TrendingWords value, Context context) {
+        String key = keyPrefix + ":" + value.windowEnd;
+        Map<String, Double> scores = new HashMap<>();
+        for (int i = 0; i < value.words.size(); i++) {
+            scores.put(value.words.get(i), value.counts.get(i).doubleValue());
+        }
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.multi();
+            pipeline.del(key);
+            if (!scores.isEmpty()) {
+                pipeline.zadd(key, scores);
+                pipeline.expire(key, ttlSeconds);
+            }
+            RedisLatestPointer.advance(pipeline, keyPrefix + ":latest", value.windowEnd, ttlSeconds);
+            pipeline.exec();
+            pipeline.sync();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (jedisPool != null) {
+            jedisPool.close();
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example;
+
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
+import org.apache.flink.util.Collector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 收齐一个窗口内（同一个 key 下）所有单词的计数后取前 K 个。
+ *
+ * <p>输入是 (窗口结束时间, 单词, 计数)，时间戳为窗口的最大时间戳。水位线越过窗口结束时间时，
+ * 所有上游子任务的窗口结果都已到达，此时用容量为 K 的小顶堆选出前 K 个（O(n log K)），输出后清空状态。
+ *
+ * <p>作业中分两级使用（见 DataStreamJob1）：先按 (窗口结束时间, 单词哈希分区) 分组，各分区并行取局部前 K 个；
+ * 再按窗口结束时间分组合并。单词只属于一个分区，全局前 K 个一定在各分区的前 K 个之中，结果是精确的，
+ * 而一个窗口的全部词汇不再集中在一个子任务上。
+ */
+public class TopKWordsFunction<K> extends KeyedProcessFunction<K, Tuple3<Long, String, Long>, TrendingWords> {
+    private static final long serialVersionUID = 1L;
+
+    private final int topK;
+
+    private transient ListState<Tuple2<String, Long>> windowCounts;
+
+    public TopKWordsFunction(int topK) {
+        this.topK = Math.max(1, topK);
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        super.open(parameters);
+        windowCounts = getRuntimeContext().getListState(
+                new ListStateDescriptor<>("window-word-counts", Types.TUPLE(Types.STRING, Types.LONG)));
+    }
+
+    @Override
+    public void processElement(Tuple3<Long, String, Long> value, Context ctx, Collector<TrendingWords> out) throws Exception {
+        windowCounts.add(Tuple2.of(value.f1, value.f2));
+        // 同一个时间的定时器只会注册一次
+        ctx.timerService().registerEventTimeTimer(value.f0);
+    }
+
+    @Override
+    public void onTimer(long timestamp, OnTimerContext ctx, Collector<TrendingWords> out) throws Exception {
+        // 堆顶是当前前 K 个中计数最小的，计数相同时单词大的先淘汰
+        PriorityQueue<Tuple2<String, Long>> heap = new PriorityQueue<>(topK + 1, (a, b) -> {
+            int byCount = Long.compare(a.f1, b.f1);
+            return byCount != 0 ? byCount : b.f0.compareTo(a.f0);
+        });
+        for (Tuple2<String, Long> count : windowCounts.get()) {
+            heap.offer(count);
+            if (heap.size() > topK) {
+                heap.poll();
+            }
+        }
+        windowCounts.clear();
+
+        // 依次弹出的是从小到大，反转后按计数从高到低
+        List<Tuple2<String, Long>> ranked = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            ranked.add(heap.poll());
+        }
+        Collections.reverse(ranked);
+
+        // 定时器注册在窗口结束时间上
+        TrendingWords result = new TrendingWords(timestamp);
+        for (Tuple2<String, Long> entry : ranked) {
+            result.words.add(entry.f0);
+            result.counts.add(entry.f1);
+        }
+        out.collect(result);
+    }
+}
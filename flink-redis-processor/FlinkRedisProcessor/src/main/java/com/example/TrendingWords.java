@@ -0,0 +1,34 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个滑动窗口内计数最高的 K 个单词，按计数从高到低排列。
+ */
+public class TrendingWords {
+
+    // 窗口结束时间（毫秒，不含）
+    public long windowEnd;
+    public List<String> words = new ArrayList<>();
+    public List<Long> counts = new ArrayList<>();
+
+    public TrendingWords() {
+    }
+
+    public TrendingWords(long windowEnd) {
+        this.windowEnd = windowEnd;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("TrendingWords{windowEnd=").append(windowEnd).append(", top=[");
+        for (int i = 0; i < words.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(words.get(i)).append('=').append(counts.get(i));
+        }
+        return sb.append("]}").toString();
+    }
+}
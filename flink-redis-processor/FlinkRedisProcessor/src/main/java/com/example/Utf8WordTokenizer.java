@@ -0,0 +1,180 @@
+package com.example;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * 直接在 UTF-8 字节上切词，不解码成 String，也不为每个词截取子串：每个词以 (buf, offset, length) 的形式交给回调。
+ *
+ * <p>分隔符是 Unicode 空白（包括全角空格 U+3000、不换行空格等），连续的空白不会产生空词。
+ * 中日文字符（汉字、平假名、片假名）之间没有空格，按 {@link CjkMode} 切分：
+ * NONE 与其他字符一样连成一个词；UNIGRAM 每个字一个词；BIGRAM 相邻两个字组成一个词（重叠），
+ * 只有一个字时输出这个字。开启 CJK 切分时，中文标点（CJK 符号和全角标点）也作为分隔符。
+ * 不合法的 UTF-8 字节按普通字符处理。
+ */
+public class Utf8WordTokenizer implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum CjkMode {
+        NONE, UNIGRAM, BIGRAM;
+
+        public static CjkMode parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    @FunctionalInterface
+    public interface TokenConsumer {
+        void accept(byte[] buf, int offset, int length) throws Exception;
+    }
+
+    // 字符分类
+    private static final int SEPARATOR = 0;
+    private static final int WORD = 1;
+    private static final int CJK = 2;
+
+    private final CjkMode cjkMode;
+
+    // 解码当前字符时顺带得到的字节长度，避免为返回两个值分配对象
+    private transient int charLength;
+
+    public Utf8WordTokenizer(CjkMode cjkMode) {
+        this.cjkMode = cjkMode;
+    }
+
+    public void tokenize(byte[] buf, TokenConsumer consumer) throws Exception {
+        tokenize(buf, 0, buf.length, consumer);
+    }
+
+    public void tokenize(byte[] buf, int from, int to, TokenConsumer consumer) throws Exception {
+        int wordStart = -1;
+        // 上一个中日文字符的起始位置，没有时为 -1；BIGRAM 模式下用于拼出两个字的词
+        int previousCjk = -1;
+        // 当前这段连续的中日文字符是否已经输出过词
+        boolean cjkEmitted = false;
+        int i = from;
+        while (i < to) {
+            int kind = classify(buf, i, to);
+            int length = charLength;
+            if (kind == WORD) {
+                if (previousCjk >= 0) {
+                    endCjkRun(buf, previousCjk, i, cjkEmitted, consumer);
+                    previousCjk = -1;
+                }
+                if (wordStart < 0) {
+                    wordStart = i;
+                }
+            } else {
+                if (wordStart >= 0) {
+                    consumer.accept(buf, wordStart, i - wordStart);
+                    wordStart = -1;
+                }
+                if (kind == CJK) {
+                    if (cjkMode == CjkMode.UNIGRAM) {
+                        consumer.accept(buf, i, length);
+                    } else if (previousCjk >= 0) {
+                        consumer.accept(buf, previousCjk, i + length - previousCjk);
+                        cjkEmitted = true;
+                        previousCjk = i;
+                    } else {
+                        previousCjk = i;
+                        cjkEmitted = false;
+                    }
+                } else if (previousCjk >= 0) {
+                    endCjkRun(buf, previousCjk, i, cjkEmitted, consumer);
+                    previousCjk = -1;
+                }
+            }
+            i += length;
+        }
+        if (wordStart >= 0) {
+            consumer.accept(buf, wordStart, to - wordStart);
+        }
+        if (previousCjk >= 0) {
+            endCjkRun(buf, previousCjk, to, cjkEmitted, consumer);
+        }
+    }
+
+    // BIGRAM 模式下一段中日文只有一个字时，输出这个字
+    private static void endCjkRun(byte[] buf, int lastCjk, int end, boolean emitted, TokenConsumer consumer) throws Exception {
+        if (!emitted) {
+            consumer.accept(buf, lastCjk, end - lastCjk);
+        }
+    }
+
+    /**
+     * 判断 buf[i] 开始的字符属于哪一类，字节长度写入 charLength。
+     */
+    private int classify(byte[] buf, int i, int to) {
+        int b = buf[i];
+        if (b >= 0) {
+            charLength = 1;
+            return b <= ' ' && Character.isWhitespace(b) ? SEPARATOR : WORD;
+        }
+        int codePoint = decode(buf, i, to);
+        if (codePoint < 0) {
+            charLength = 1;
+            return WORD;
+        }
+        if (Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint)) {
+            return SEPARATOR;
+        }
+        if (cjkMode == CjkMode.NONE) {
+            return WORD;
+        }
+        if (Character.isIdeographic(codePoint)) {
+            return CJK;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        if (script == Character.UnicodeScript.HIRAGANA || script == Character.UnicodeScript.KATAKANA) {
+            return CJK;
+        }
+        if (!Character.isLetterOrDigit(codePoint)) {
+            Character.UnicodeBlock block = Character.UnicodeBlock.of(codePoint);
+            if (block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                    || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS
+                    || block == Character.UnicodeBlock.GENERAL_PUNCTUATION) {
+                return SEPARATOR;
+            }
+        }
+        return WORD;
+    }
+
+    /**
+     * 解码 buf[i] 开始的多字节 UTF-8 字符，字节长度写入 charLength。不合法时返回 -1。
+     */
+    private int decode(byte[] buf, int i, int to) {
+        int b = buf[i] & 0xFF;
+        int length;
+        int codePoint;
+        if (b >= 0xC2 && b <= 0xDF) {
+            length = 2;
+            codePoint = b & 0x1F;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            length = 3;
+            codePoint = b & 0x0F;
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            length = 4;
+            codePoint = b & 0x07;
+        } else {
+            return -1;
+        }
+        if (i + length > to) {
+            return -1;
+        }
+        for (int k = 1; k < length; k++) {
+            int next = buf[i + k] & 0xFF;
+            if ((next & 0xC0) != 0x80) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        // 过长编码（例如 E0 80 A0 表示空格）、UTF-16 代理区和超出 U+10FFFF 的都不合法
+        if ((length == 3 && (codePoint < 0x800 || (codePoint >= 0xD800 && codePoint <= 0xDFFF)))
+                || (length == 4 && (codePoint < 0x10000 || codePoint > 0x10FFFF))) {
+            return -1;
+        }
+        charLength = length;
+        return codePoint;
+    }
+}
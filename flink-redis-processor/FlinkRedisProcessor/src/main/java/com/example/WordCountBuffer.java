@@ -0,0 +1,129 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 单词到计数的开放寻址哈希表（线性探测），计数用 int 数组保存，累加时不装箱、不分配对象。
+ * 键是单词的 UTF-8 字节，可以直接用 {@link Utf8WordTokenizer} 给出的 (buf, offset, length) 查找，
+ * 只有单词第一次出现时才复制字节并创建 String。
+ * 只支持累加、遍历和整体清空，供 {@link WordCountPreAggregateOperator} 在两次 flush 之间使用。
+ * 非线程安全。
+ */
+public final class WordCountBuffer {
+
+    public interface Consumer {
+        void accept(String word, int count) throws Exception;
+    }
+
+    private static final int MIN_CAPACITY = 16;
+
+    private byte[][] keys;
+    private String[] words;
+    private int[] hashes;
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    public WordCountBuffer(int expectedSize) {
+        // 装载因子不超过 0.5
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 把 buf[offset, offset + length) 这个单词的计数加上 delta。
+     */
+    public void add(byte[] buf, int offset, int length, int delta) {
+        int hash = hash(buf, offset, length);
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash
+                    && Arrays.equals(keys[slot], 0, keys[slot].length, buf, offset, offset + length)) {
+                counts[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = Arrays.copyOfRange(buf, offset, offset + length);
+        words[slot] = new String(buf, offset, length, StandardCharsets.UTF_8);
+        hashes[slot] = hash;
+        counts[slot] = delta;
+        if (++size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * 按 String 累加，用于从 checkpoint 恢复部分计数。
+     */
+    public void add(String word, int delta) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        add(bytes, 0, bytes.length, delta);
+    }
+
+    public void forEach(Consumer consumer) throws Exception {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                consumer.accept(words[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * 清空但保留容量，下一轮通常有差不多的单词数。
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, null);
+            Arrays.fill(words, null);
+            size = 0;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void resize(int capacity) {
+        byte[][] oldKeys = keys;
+        String[] oldWords = words;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                words[slot] = oldWords[i];
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new byte[capacity][];
+        words = new String[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // 多项式哈希后混合高位，低位分布更均匀
+    private static int hash(byte[] buf, int offset, int length) {
+        int h = 1;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + buf[i];
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example;
+
+import org.apache.flink.api.common.operators.ProcessingTimeService.ProcessingTimeCallback;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.StateInitializationContext;
+import org.apache.flink.runtime.state.StateSnapshotContext;
+import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
+import org.apache.flink.streaming.api.operators.ChainingStrategy;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+/**
+ * 单词计数的本地预聚合：用 {@link Utf8WordTokenizer} 直接在消息的 UTF-8 字节上切词，在子任务内的 {@link WordCountBuffer} 中累加，
+ * 每处理 maxRecords 个单词或距上次 flush 超过 intervalMs 时，把 (单词, 部分计数) 发往下游的 keyBy().sum()。
+ * 同一个单词在一轮中出现多少次，shuffle 和 keyed state 的更新就减少多少倍。
+ *
+ * <p>未发出的部分计数在 checkpoint 时写入 operator state（ListState），恢复后并入缓冲，下一次 flush 发出，
+ * 不会重复也不会丢失。扩缩容时部分计数被重新分配到任意子任务，下游按单词求和，结果不变。
+ *
+ * <p>按时间 flush 使用处理时间定时器，在任务线程中执行，没有消息时缓冲也会按时发出。
+ */
+public class WordCountPreAggregateOperator extends AbstractStreamOperator<Tuple2<String, Integer>>
+        implements OneInputStreamOperator<byte[], Tuple2<String, Integer>>, ProcessingTimeCallback {
+    private static final long serialVersionUID = 1L;
+
+    private final int maxRecords;
+    private final long intervalMs;
+    private final Utf8WordTokenizer tokenizer;
+
+    private transient WordCountBuffer buffer;
+    private transient Utf8WordTokenizer.TokenConsumer addToken;
+    private transient ListState<Tuple2<String, Integer>> partialsState;
+    // 自上次 flush 以来累加的单词数（不是不同单词数）
+    private transient int pendingRecords;
+    private transient boolean timerRegistered;
+
+    public WordCountPreAggregateOperator(Utf8WordTokenizer tokenizer, int maxRecords, long intervalMs) {
+        this.tokenizer = tokenizer;
+        this.maxRecords = Math.max(1, maxRecords);
+        this.intervalMs = intervalMs;
+        // 允许与上游 Source 链接在一起，拆词和累加不经过网络；只有两者并行度相同时才会链接，
+        // 作业中需要把本算子的并行度设为 Source 的并行度（见 DataStreamJob1）
+        this.chainingStrategy = ChainingStrategy.ALWAYS;
+    }
+
+    @Override
+    public void initializeState(StateInitializationContext context) throws Exception {
+        super.initializeState(context);
+        buffer = new WordCountBuffer(Math.min(maxRecords, 1 << 16));
+        partialsState = context.getOperatorStateStore().getListState(
+                new ListStateDescriptor<>("word-count-partials", Types.TUPLE(Types.STRING, Types.INT)));
+        for (Tuple2<String, Integer> partial : partialsState.get()) {
+            buffer.add(partial.f0, partial.f1);
+        }
+    }
+
+    @Override
+    public void open() throws Exception {
+        super.open();
+        addToken = (buf, offset, length) -> {
+            buffer.add(buf, offset, length, 1);
+            if (++pendingRecords >= maxRecords) {
+                flush();
+            }
+        };
+        if (!buffer.isEmpty()) {
+            registerFlushTimer();
+        }
+    }
+
+    @Override
+    public void processElement(StreamRecord<byte[]> element) throws Exception {
+        // 每个单词计数1
+        tokenizer.tokenize(element.getValue(), addToken);
+        if (!buffer.isEmpty()) {
+            registerFlushTimer();
+        }
+    }
+
+    @Override
+    public void onProcessingTime(long timestamp) throws Exception {
+        timerRegistered = false;
+        flush();
+    }
+
+    @Override
+    public void snapshotState(StateSnapshotContext context) throws Exception {
+        super.snapshotState(context);
+        partialsState.clear();
+        buffer.forEach((word, count) -> partialsState.add(Tuple2.of(word, count)));
+    }
+
+    @Override
+    public void finish() throws Exception {
+        // 有界输入结束时发出剩余的部分计数
+        flush();
+        super.finish();
+    }
+
+    private void flush() throws Exception {
+        pendingRecords = 0;
+        if (buffer.isEmpty()) {
+            return;
+        }
+        // 消息本身不带时间，部分计数以 flush 时的处理时间作为时间戳，供下游的事件时间窗口使用
+        long timestamp = getProcessingTimeService().getCurrentProcessingTime();
+        buffer.forEach((word, count) -> output.collect(new StreamRecord<>(Tuple2.of(word, count), timestamp)));
+        buffer.clear();
+    }
+
+    private void registerFlushTimer() {
+        if (timerRegistered || intervalMs <= 0) {
+            return;
+        }
+        timerRegistered = true;
+        getProcessingTimeService().registerTimer(
+                getProcessingTimeService().getCurrentProcessingTime() + intervalMs, this);
+    }
+}
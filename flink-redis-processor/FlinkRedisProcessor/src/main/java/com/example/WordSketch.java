@@ -0,0 +1,42 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 一个窗口内单词的近似统计：Count-Min Sketch 估计每个单词的频次，HyperLogLog 估计不同单词数。
+ * 两者共用一次哈希，都可以合并，大小只由误差参数决定。
+ */
+public class WordSketch {
+
+    // 窗口结束时间（毫秒，不含）
+    public long windowEnd;
+    public CountMinSketch frequencies;
+    public RedisHyperLogLog distinctWords;
+
+    public WordSketch() {
+    }
+
+    public WordSketch(double epsilon, double delta) {
+        this.frequencies = CountMinSketch.withErrorBounds(epsilon, delta);
+        this.distinctWords = new RedisHyperLogLog();
+    }
+
+    public void add(String word, long count) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        long hash = MurmurHash64A.hash(bytes, 0, bytes.length, RedisHyperLogLog.REDIS_SEED);
+        frequencies.addHash(hash, count);
+        distinctWords.addHash(hash);
+    }
+
+    public WordSketch merge(WordSketch other) {
+        frequencies.merge(other.frequencies);
+        distinctWords.merge(other.distinctWords);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "WordSketch{windowEnd=" + windowEnd + ", words=" + frequencies.getTotal()
+                + ", distinct≈" + distinctWords.estimate() + "}";
+    }
+}
@@ -0,0 +1,160 @@
+package com.example;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.streaming.api.operators.StreamSink;
+import org.apache.flink.streaming.connectors.redis.common.config.FlinkJedisPoolConfig;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BufferedRedisHashSink 对内嵌 redis-server 的读写：合并同一 field 的更新、按 batchSize / 定时 / checkpoint 写入、
+ * 大批量拆成多条 HMSET、写入失败后保留缓冲。
+ */
+class BufferedRedisHashSinkTest {
+
+    private static final String HASH_KEY = "word_counts";
+
+    private int port;
+    private RedisServer redis;
+    private Jedis jedis;
+    private OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Object> harness;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        jedis = new Jedis("localhost", port);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (harness != null) {
+            harness.close();
+        }
+        jedis.close();
+        redis.stop();
+    }
+
+    @Test
+    void coalescesUpdatesAndWritesOnlyLatestCountOnCheckpoint() throws Exception {
+        open(10_000, 0);
+        // 与 keyBy().sum() 的输出一样：每个单词每出现一次就来一个新的累计值
+        for (int count = 1; count <= 50; count++) {
+            for (int word = 0; word < 10; word++) {
+                harness.processElement(Tuple2.of("word-" + word, count), 0L);
+            }
+        }
+        assertEquals(0, jedis.hlen(HASH_KEY).longValue(), "checkpoint 之前不应写入");
+
+        harness.snapshot(1L, 1L);
+
+        Map<String, String> counts = jedis.hgetAll(HASH_KEY);
+        assertEquals(10, counts.size());
+        for (int word = 0; word < 10; word++) {
+            assertEquals("50", counts.get("word-" + word));
+        }
+        // 500 次更新合并成一条 HMSET
+        assertEquals(1, hmsetCalls());
+    }
+
+    @Test
+    void flushesWhenBatchSizeIsReached() throws Exception {
+        open(3, 0);
+        harness.processElement(Tuple2.of("a", 1), 0L);
+        harness.processElement(Tuple2.of("b", 1), 0L);
+        // 覆盖已有 field 不增加缓冲的大小
+        harness.processElement(Tuple2.of("a", 2), 0L);
+        assertEquals(0, jedis.hlen(HASH_KEY).longValue());
+
+        harness.processElement(Tuple2.of("c", 1), 0L);
+        assertEquals("2", jedis.hget(HASH_KEY, "a"));
+        assertEquals(3, jedis.hlen(HASH_KEY).longValue());
+
+        harness.processElement(Tuple2.of("d", 1), 0L);
+        assertEquals(3, jedis.hlen(HASH_KEY).longValue(), "不满一批时应留在缓冲中");
+    }
+
+    @Test
+    void largeFlushIsSplitIntoSeveralHmsetCommands() throws Exception {
+        open(10_000, 0);
+        for (int word = 0; word < 1_200; word++) {
+            harness.processElement(Tuple2.of("word-" + word, word), 0L);
+        }
+        harness.snapshot(1L, 1L);
+
+        assertEquals(1_200, jedis.hlen(HASH_KEY).longValue());
+        assertEquals("1199", jedis.hget(HASH_KEY, "word-1199"));
+        // 每条 HMSET 最多 500 个 field
+        assertEquals(3, hmsetCalls());
+    }
+
+    @Test
+    void flushesOnTimerWithoutCheckpoint() throws Exception {
+        open(10_000, 20);
+        harness.processElement(Tuple2.of("timer", 7), 0L);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (jedis.hget(HASH_KEY, "timer") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("7", jedis.hget(HASH_KEY, "timer"));
+    }
+
+    @Test
+    void failedFlushKeepsBufferForNextCheckpoint() throws Exception {
+        open(10_000, 0);
+        harness.processElement(Tuple2.of("kept", 1), 0L);
+        harness.processElement(Tuple2.of("kept", 2), 0L);
+
+        jedis.close();
+        redis.stop();
+        assertThrows(Exception.class, () -> harness.snapshot(1L, 1L));
+
+        redis = new RedisServer(port);
+        redis.start();
+        jedis = new Jedis("localhost", port);
+        harness.processElement(Tuple2.of("later", 1), 0L);
+        harness.snapshot(2L, 2L);
+
+        assertEquals("2", jedis.hget(HASH_KEY, "kept"));
+        assertEquals("1", jedis.hget(HASH_KEY, "later"));
+    }
+
+    private void open(int batchSize, long flushIntervalMs) throws Exception {
+        FlinkJedisPoolConfig config = new FlinkJedisPoolConfig.Builder()
+                .setHost("localhost")
+                .setPort(port)
+                .build();
+        BufferedRedisHashSink<Tuple2<String, Integer>> sink = new BufferedRedisHashSink<>(
+                config, new DataStreamJob1.RedisWordCountMapper(), batchSize, flushIntervalMs);
+        harness = new OneInputStreamOperatorTestHarness<>(new StreamSink<>(sink));
+        harness.open();
+        jedis.configResetStat();
+    }
+
+    // redis-server 统计的 HMSET 调用次数（INFO commandstats）
+    private long hmsetCalls() {
+        for (String line : jedis.info("commandstats").split("\r\n")) {
+            if (line.startsWith("cmdstat_hmset:")) {
+                String calls = line.substring(line.indexOf("calls=") + "calls=".length(), line.indexOf(','));
+                return Long.parseLong(calls);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+
+    @Test
+    void sizeFollowsErrorBounds() {
+        assertSize(CountMinSketch.withErrorBounds(0.001, 0.01), 5, 2_719);
+        assertSize(CountMinSketch.withErrorBounds(0.01, 0.001), 7, 272);
+        assertThrows(IllegalArgumentException.class, () -> CountMinSketch.withErrorBounds(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> CountMinSketch.withErrorBounds(0.01, 1));
+    }
+
+    @Test
+    void neverUnderestimatesAndStaysWithinErrorBound() {
+        double epsilon = 0.001;
+        double delta = 0.01;
+        CountMinSketch sketch = CountMinSketch.withErrorBounds(epsilon, delta);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            // 长尾分布：少数高频词加大量低频词
+            String word = random.nextInt(4) == 0 ? "hot" + random.nextInt(50) : "word" + random.nextInt(50_000);
+            long count = 1 + random.nextInt(3);
+            sketch.add(word, count);
+            exact.merge(word, count, Long::sum);
+        }
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, sketch.getTotal());
+
+        long bound = (long) (epsilon * total);
+        int exceeded = 0;
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), entry.getKey());
+            if (estimate > entry.getValue() + bound) {
+                exceeded++;
+            }
+        }
+        assertTrue(exceeded <= delta * exact.size(), exceeded + " / " + exact.size());
+    }
+
+    @Test
+    void mergeEqualsSketchOfAllInput() {
+        CountMinSketch all = new CountMinSketch(4, 1_000);
+        CountMinSketch left = new CountMinSketch(4, 1_000);
+        CountMinSketch right = new CountMinSketch(4, 1_000);
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {
+            String word = "w" + random.nextInt(3_000);
+            all.add(word, 1);
+            (i % 2 == 0 ? left : right).add(word, 1);
+        }
+        assertArrayEquals(all.toBytes(), left.merge(right).toBytes());
+        assertThrows(IllegalArgumentException.class, () -> all.merge(new CountMinSketch(4, 999)));
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        CountMinSketch sketch = new CountMinSketch(3, 100);
+        sketch.add("你好", 7);
+        sketch.add("hello", 2);
+        byte[] bytes = sketch.toBytes();
+        assertEquals(20 + 3 * 100 * 8, bytes.length);
+
+        CountMinSketch restored = CountMinSketch.fromBytes(bytes);
+        assertArrayEquals(bytes, restored.toBytes());
+        assertEquals(7, restored.estimate("你好"));
+        assertEquals(9, restored.getTotal());
+
+        bytes[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> CountMinSketch.fromBytes(bytes));
+    }
+
+    private static void assertSize(CountMinSketch sketch, int depth, int width) {
+        ByteBuffer header = ByteBuffer.wrap(sketch.toBytes());
+        header.getInt();
+        assertEquals(depth, header.getInt());
+        assertEquals(width, header.getInt());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * RedisHyperLogLog 与内嵌 redis-server 的 PFADD / PFCOUNT / PFMERGE 对照：同样的输入得到相同的寄存器和相同的基数。
+ */
+class RedisHyperLogLogTest {
+
+    private int port;
+    private RedisServer redis;
+    private Jedis jedis;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        jedis = new Jedis("localhost", port);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        jedis.close();
+        redis.stop();
+    }
+
+    @Test
+    void registersMatchPfadd() {
+        // 让 PFADD 直接使用 dense 编码，才能逐字节比较寄存器
+        jedis.configSet("hll-sparse-max-bytes", "0");
+        List<String> words = words("w", 50_000);
+        RedisHyperLogLog hll = new RedisHyperLogLog();
+        words.forEach(hll::add);
+        pfadd("expected", words);
+
+        byte[] expected = jedis.get("expected".getBytes(StandardCharsets.UTF_8));
+        byte[] actual = hll.toRedisBytes();
+        assertEquals(expected.length, actual.length);
+        // 头部的 magic 和编码相同；8 字节的缓存基数由 Redis 维护，不比较
+        assertArrayEquals(Arrays.copyOfRange(expected, 0, 5), Arrays.copyOfRange(actual, 0, 5));
+        assertArrayEquals(Arrays.copyOfRange(expected, 16, expected.length), Arrays.copyOfRange(actual, 16, actual.length));
+    }
+
+    @Test
+    void pfcountMatchesPfaddForSmallAndLargeCardinalities() {
+        for (int cardinality : new int[]{1, 100, 1_000, 20_000, 200_000}) {
+            List<String> words = words("c" + cardinality + "-", cardinality);
+            RedisHyperLogLog hll = new RedisHyperLogLog();
+            words.forEach(hll::add);
+            String key = "hll:" + cardinality;
+            String expectedKey = "expected:" + cardinality;
+            jedis.set(key.getBytes(StandardCharsets.UTF_8), hll.toRedisBytes());
+            pfadd(expectedKey, words);
+
+            long expected = jedis.pfcount(expectedKey);
+            assertEquals(expected, jedis.pfcount(key), "cardinality " + cardinality);
+            // 标准误差 0.81%，取 4 倍
+            assertEquals(cardinality, expected, Math.max(1, cardinality * 0.0325), "cardinality " + cardinality);
+            // 本地估计只用于日志，与 PFCOUNT 相差不超过 2%
+            assertEquals(expected, hll.estimate(), Math.max(1, expected * 0.02), "cardinality " + cardinality);
+        }
+    }
+
+    @Test
+    void mergeMatchesPfaddOfUnion() {
+        // 两个子任务看到的单词有一半重叠
+        List<String> first = words("m", 30_000);
+        List<String> second = new ArrayList<>(words("m", 15_000));
+        second.addAll(words("n", 15_000));
+
+        RedisHyperLogLog left = new RedisHyperLogLog();
+        first.forEach(left::add);
+        RedisHyperLogLog right = new RedisHyperLogLog();
+        second.forEach(right::add);
+        jedis.set("merged".getBytes(StandardCharsets.UTF_8), left.merge(right).toRedisBytes());
+
+        pfadd("union", first);
+        pfadd("union", second);
+        assertEquals(jedis.pfcount("union"), jedis.pfcount("merged"));
+    }
+
+    @Test
+    void pfmergeAcceptsWrittenSketch() {
+        List<String> first = words("a", 10_000);
+        List<String> second = words("b", 10_000);
+        RedisHyperLogLog hll = new RedisHyperLogLog();
+        first.forEach(hll::add);
+        jedis.set("written".getBytes(StandardCharsets.UTF_8), hll.toRedisBytes());
+        pfadd("added", second);
+
+        jedis.pfmerge("merged", "written", "added");
+
+        List<String> all = new ArrayList<>(first);
+        all.addAll(second);
+        pfadd("expected", all);
+        assertEquals(jedis.pfcount("expected"), jedis.pfcount("merged"));
+    }
+
+    @Test
+    void hashesUtf8BytesLikeRedis() {
+        List<String> words = Arrays.asList("你好", "世界", "こんにちは", "𠀀", "café", "");
+        RedisHyperLogLog hll = new RedisHyperLogLog();
+        words.forEach(hll::add);
+        jedis.set("hll".getBytes(StandardCharsets.UTF_8), hll.toRedisBytes());
+        pfadd("expected", words);
+        // PFADD 已有的元素不改变寄存器
+        assertEquals(0, jedis.pfadd("hll", "你好", "世界").longValue());
+        assertEquals(jedis.pfcount("expected"), jedis.pfcount("hll"));
+    }
+
+    private void pfadd(String key, List<String> words) {
+        for (int from = 0; from < words.size(); from += 1_000) {
+            List<String> batch = words.subList(from, Math.min(from + 1_000, words.size()));
+            jedis.pfadd(key, batch.toArray(new String[0]));
+        }
+    }
+
+    private static List<String> words(String prefix, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(prefix + i);
+        }
+        return words;
+    }
+}
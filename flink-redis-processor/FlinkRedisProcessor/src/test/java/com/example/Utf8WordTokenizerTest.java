@@ -0,0 +1,161 @@
+package com.example;
+
+import com.example.Utf8WordTokenizer.CjkMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Utf8WordTokenizerTest {
+
+    @Test
+    void repeatedWhitespaceProducesNoEmptyWords() throws Exception {
+        assertEquals(Arrays.asList("a", "b", "c"), words(CjkMode.NONE, "  a\t\tb\r\n c  "));
+        assertEquals(Arrays.asList(), words(CjkMode.NONE, " \t\n "));
+        assertEquals(Arrays.asList(), words(CjkMode.NONE, ""));
+    }
+
+    @Test
+    void unicodeWhitespaceSeparatesWords() throws Exception {
+        // 全角空格、不换行空格、全角宽度空格（em space）
+        assertEquals(Arrays.asList("a", "b", "c", "d"), words(CjkMode.NONE, "a\u3000b\u00A0c\u2003d"));
+    }
+
+    @Test
+    void matchesSplitOnAsciiText() throws Exception {
+        Random random = new Random(3);
+        String separators = " \t\n\r\f";
+        for (int round = 0; round < 200; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 50; i++) {
+                if (random.nextInt(3) == 0) {
+                    text.append(separators.charAt(random.nextInt(separators.length())));
+                } else {
+                    text.append((char) ('a' + random.nextInt(26)));
+                }
+            }
+            List<String> expected = new ArrayList<>();
+            for (String token : text.toString().split("\\s")) {
+                if (!token.isEmpty()) {
+                    expected.add(token);
+                }
+            }
+            assertEquals(expected, words(CjkMode.NONE, text.toString()), text.toString());
+        }
+    }
+
+    @Test
+    void noneModeKeepsCjkRunsAsOneWord() throws Exception {
+        assertEquals(Arrays.asList("今天天气好", "hello", "abc中文def"),
+                words(CjkMode.NONE, "今天天气好 hello abc中文def"));
+        // 不切分中文时，中文标点是普通字符
+        assertEquals(Arrays.asList("你好，世界"), words(CjkMode.NONE, "你好，世界"));
+    }
+
+    @Test
+    void unigramModeEmitsEachCharacter() throws Exception {
+        assertEquals(Arrays.asList("今", "天", "天", "气", "好", "ok"), words(CjkMode.UNIGRAM, "今天天气，好！ok"));
+        assertEquals(Arrays.asList("abc", "中", "文", "def"), words(CjkMode.UNIGRAM, "abc中文def"));
+    }
+
+    @Test
+    void bigramModeEmitsOverlappingPairs() throws Exception {
+        assertEquals(Arrays.asList("今天", "天天", "天气"), words(CjkMode.BIGRAM, "今天天气"));
+        assertEquals(Arrays.asList("ひら", "らが", "がな", "カタ", "タカ", "カナ"), words(CjkMode.BIGRAM, "ひらがな カタカナ"));
+    }
+
+    @Test
+    void bigramModeBreaksPairsAtRunBoundaries() throws Exception {
+        // 只有一个字的一段输出这个字
+        assertEquals(Arrays.asList("好"), words(CjkMode.BIGRAM, "好"));
+        assertEquals(Arrays.asList("好", "今天"), words(CjkMode.BIGRAM, "好 今天"));
+        // 字母、数字和中文标点都会断开一段中文，不跨边界组词
+        assertEquals(Arrays.asList("今", "a", "天"), words(CjkMode.BIGRAM, "今a天"));
+        assertEquals(Arrays.asList("abc", "今天", "def"), words(CjkMode.BIGRAM, "abc今天def"));
+        assertEquals(Arrays.asList("你好", "世界", "再见"), words(CjkMode.BIGRAM, "你好，世界。再见"));
+        assertEquals(Arrays.asList("第", "3", "名"), words(CjkMode.BIGRAM, "第3名"));
+    }
+
+    @Test
+    void tokenizesOnlyTheGivenRange() throws Exception {
+        byte[] message = "skip 今天天气 skip".getBytes(StandardCharsets.UTF_8);
+        int from = "skip ".length();
+        int to = from + "今天天气".getBytes(StandardCharsets.UTF_8).length;
+        List<String> words = new ArrayList<>();
+        new Utf8WordTokenizer(CjkMode.BIGRAM).tokenize(message, from, to,
+                (buf, offset, length) -> words.add(new String(buf, offset, length, StandardCharsets.UTF_8)));
+        assertEquals(Arrays.asList("今天", "天天", "天气"), words);
+    }
+
+    @Test
+    void invalidBytesAreWordCharacters() throws Exception {
+        byte[] message = bytes(
+                "a", 0xFF, "b",        // 不可能出现的字节
+                " ", 0x80,             // 单独的后续字节
+                " ", 0xC0, 0xA0,       // 两字节的过长编码（空格）
+                " x", 0xE0, 0x80, 0xA0, "y",  // 三字节的过长编码（空格），不能当作分隔符
+                " ", 0xED, 0xA0, 0x80, // UTF-16 代理区
+                " ", 0xF4, 0x90, 0x80, 0x80,  // 超出 U+10FFFF
+                " ", 0xE4, 0xBD);      // 在末尾被截断的“你”
+        List<byte[]> tokens = tokens(CjkMode.BIGRAM, message);
+        assertEquals(7, tokens.size());
+        assertArrayEquals(bytes("a", 0xFF, "b"), tokens.get(0));
+        assertArrayEquals(bytes(0x80), tokens.get(1));
+        assertArrayEquals(bytes(0xC0, 0xA0), tokens.get(2));
+        assertArrayEquals(bytes("x", 0xE0, 0x80, 0xA0, "y"), tokens.get(3));
+        assertArrayEquals(bytes(0xED, 0xA0, 0x80), tokens.get(4));
+        assertArrayEquals(bytes(0xF4, 0x90, 0x80, 0x80), tokens.get(5));
+        assertArrayEquals(bytes(0xE4, 0xBD), tokens.get(6));
+    }
+
+    @Test
+    void invalidBytesBreakCjkRuns() throws Exception {
+        byte[] message = bytes("今天", 0xFF, "天气");
+        List<byte[]> tokens = tokens(CjkMode.BIGRAM, message);
+        assertEquals(3, tokens.size());
+        assertArrayEquals(bytes("今天"), tokens.get(0));
+        assertArrayEquals(bytes(0xFF), tokens.get(1));
+        assertArrayEquals(bytes("天气"), tokens.get(2));
+    }
+
+    @Test
+    void supplementaryCharactersAreDecoded() throws Exception {
+        // U+20000（扩展 B 区汉字，4 字节）按汉字处理
+        assertEquals(Arrays.asList("𠀀中", "中文"), words(CjkMode.BIGRAM, "𠀀中文"));
+    }
+
+    private static List<String> words(CjkMode mode, String text) throws Exception {
+        List<String> words = new ArrayList<>();
+        for (byte[] token : tokens(mode, text.getBytes(StandardCharsets.UTF_8))) {
+            words.add(new String(token, StandardCharsets.UTF_8));
+        }
+        return words;
+    }
+
+    private static List<byte[]> tokens(CjkMode mode, byte[] message) throws Exception {
+        List<byte[]> tokens = new ArrayList<>();
+        new Utf8WordTokenizer(mode).tokenize(message,
+                (buf, offset, length) -> tokens.add(Arrays.copyOfRange(buf, offset, offset + length)));
+        return tokens;
+    }
+
+    // 字符串按 UTF-8 编码，整数作为单个字节
+    private static byte[] bytes(Object... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Object part : parts) {
+            if (part instanceof String) {
+                out.writeBytes(((String) part).getBytes(StandardCharsets.UTF_8));
+            } else {
+                out.write((Integer) part);
+            }
+        }
+        return out.toByteArray();
+    }
+}
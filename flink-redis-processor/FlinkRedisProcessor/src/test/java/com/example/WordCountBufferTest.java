@@ -0,0 +1,98 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordCountBufferTest {
+
+    @Test
+    void countsMatchHashMapAcrossResizes() throws Exception {
+        // 从最小容量开始，累加过程中扩容多次
+        WordCountBuffer buffer = new WordCountBuffer(1);
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            String word = "w" + random.nextInt(5_000);
+            int delta = 1 + random.nextInt(3);
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            buffer.add(bytes, 0, bytes.length, delta);
+            expected.merge(word, delta, Integer::sum);
+        }
+        assertEquals(expected.size(), buffer.size());
+        assertEquals(expected, toMap(buffer));
+    }
+
+    @Test
+    void looksUpWordsBySliceOfLargerBuffer() throws Exception {
+        WordCountBuffer buffer = new WordCountBuffer(16);
+        byte[] message = "苹果 apple 苹果派 apple".getBytes(StandardCharsets.UTF_8);
+        int apple = "苹果 ".getBytes(StandardCharsets.UTF_8).length;
+        int secondApple = message.length - "apple".length();
+
+        buffer.add(message, 0, "苹果".getBytes(StandardCharsets.UTF_8).length, 1);
+        buffer.add(message, apple, "apple".length(), 1);
+        buffer.add(message, secondApple, "apple".length(), 1);
+        // 按 String 累加（恢复 checkpoint 时的路径）与按字节累加落在同一个词上
+        buffer.add("苹果", 2);
+
+        Map<String, Integer> counts = toMap(buffer);
+        assertEquals(2, counts.size());
+        assertEquals(3, counts.get("苹果"));
+        assertEquals(2, counts.get("apple"));
+    }
+
+    @Test
+    void distinguishesWordsWithSameHash() throws Exception {
+        // "Aa" 和 "BB" 的多项式哈希相同，落在同一个探测链上，必须按字节区分
+        WordCountBuffer buffer = new WordCountBuffer(16);
+        buffer.add("Aa", 1);
+        buffer.add("BB", 10);
+        buffer.add("Aa", 1);
+        buffer.add("AaBB", 100);
+        buffer.add("BBAa", 1000);
+
+        Map<String, Integer> counts = toMap(buffer);
+        assertEquals(4, counts.size());
+        assertEquals(2, counts.get("Aa"));
+        assertEquals(10, counts.get("BB"));
+        assertEquals(100, counts.get("AaBB"));
+        assertEquals(1000, counts.get("BBAa"));
+    }
+
+    @Test
+    void clearStartsNewRoundFromZero() throws Exception {
+        WordCountBuffer buffer = new WordCountBuffer(4);
+        for (int i = 0; i < 100; i++) {
+            buffer.add("word" + i, 5);
+        }
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, toMap(buffer).size());
+
+        buffer.add("word1", 1);
+        buffer.add("new", 1);
+        assertFalse(buffer.isEmpty());
+        Map<String, Integer> counts = toMap(buffer);
+        assertEquals(2, counts.size());
+        assertEquals(1, counts.get("word1"));
+        assertEquals(1, counts.get("new"));
+    }
+
+    private static Map<String, Integer> toMap(WordCountBuffer buffer) throws Exception {
+        Map<String, Integer> counts = new HashMap<>();
+        buffer.forEach((word, count) -> {
+            if (counts.put(word, count) != null) {
+                throw new AssertionError("重复的单词: " + word);
+            }
+        });
+        return counts;
+    }
+}
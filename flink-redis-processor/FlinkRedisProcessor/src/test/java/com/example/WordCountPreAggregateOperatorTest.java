@@ -0,0 +1,77 @@
+package com.example;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordCountPreAggregateOperatorTest {
+
+    @Test
+    void flushesPartialCountsEveryMaxRecordsWords() throws Exception {
+        try (OneInputStreamOperatorTestHarness<byte[], Tuple2<String, Integer>> harness = harness(5, 0)) {
+            harness.open();
+            harness.processElement(bytes("a b  a c"), 0L);
+            assertTrue(harness.extractOutputValues().isEmpty());
+
+            // 第 5 个单词触发 flush，d 留到下一轮
+            harness.processElement(bytes("a d"), 0L);
+            Map<String, Integer> counts = sum(harness.extractOutputValues());
+            assertEquals(3, counts.size());
+            assertEquals(3, counts.get("a"));
+            assertEquals(1, counts.get("b"));
+            assertEquals(1, counts.get("c"));
+        }
+    }
+
+    @Test
+    void partialCountsSurviveRestoreExactlyOnce() throws Exception {
+        OperatorSubtaskState snapshot;
+        try (OneInputStreamOperatorTestHarness<byte[], Tuple2<String, Integer>> harness = harness(1_000, 100)) {
+            harness.open();
+            harness.processElement(bytes("你好 世界 你好"), 0L);
+            snapshot = harness.snapshot(1L, 1L);
+            // checkpoint 之后、定时 flush 之前失败：部分计数还没发出
+            assertTrue(harness.extractOutputValues().isEmpty());
+        }
+
+        try (OneInputStreamOperatorTestHarness<byte[], Tuple2<String, Integer>> restored = harness(1_000, 100)) {
+            restored.initializeState(snapshot);
+            restored.open();
+            restored.processElement(bytes("你好"), 0L);
+            // 处理时间到达 flush 间隔，恢复的部分计数和新的计数一起发出
+            restored.setProcessingTime(100L);
+
+            Map<String, Integer> counts = sum(restored.extractOutputValues());
+            assertEquals(2, counts.size());
+            assertEquals(3, counts.get("你好"));
+            assertEquals(1, counts.get("世界"));
+        }
+    }
+
+    private static OneInputStreamOperatorTestHarness<byte[], Tuple2<String, Integer>> harness(int maxRecords, long intervalMs)
+            throws Exception {
+        return new OneInputStreamOperatorTestHarness<>(new WordCountPreAggregateOperator(
+                new Utf8WordTokenizer(Utf8WordTokenizer.CjkMode.NONE), maxRecords, intervalMs));
+    }
+
+    private static byte[] bytes(String message) {
+        return message.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Integer> sum(List<Tuple2<String, Integer>> partials) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Tuple2<String, Integer> partial : partials) {
+            counts.merge(partial.f0, partial.f1, Integer::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.benchmark;
+
+import com.example.BufferedRedisHashSink;
+import com.example.DataStreamJob1;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.apache.flink.streaming.api.operators.StreamSink;
+import org.apache.flink.streaming.connectors.redis.RedisSink;
+import org.apache.flink.streaming.connectors.redis.common.config.FlinkJedisPoolConfig;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单词计数写入 Redis Hash 的吞吐量（每秒处理的更新数）：Bahir 的 RedisSink（每条更新一次阻塞的 HSET）
+ * 与 BufferedRedisHashSink（合并同一单词的更新，pipeline 发送多字段 HMSET）对比。
+ *
+ * <p>Redis 是本机的内嵌 redis-server，往返只有回环网络的延迟；连真实的 Redis 时每次往返更贵，差距只会更大。
+ * 输入模拟 keyBy().sum() 的输出：单词按 Zipf 分布出现，每次出现输出该单词的新累计值。
+ * 每次调用处理 UPDATES 条更新，最后做一次 checkpoint，缓冲中剩余的部分也计入时间。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisHashSinkBenchmark {
+
+    private static final int UPDATES = 20_000;
+    private static final int VOCABULARY = 10_000;
+
+    @Param({"perRecord", "buffered"})
+    private String sink;
+
+    // BufferedRedisHashSink 的 batchSize，与 job.properties 中的默认值相同
+    @Param({"1000"})
+    private int batchSize;
+
+    private RedisServer redis;
+    private OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Object> harness;
+    private Tuple2<String, Integer>[] updates;
+    private long checkpointId;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+
+        FlinkJedisPoolConfig config = new FlinkJedisPoolConfig.Builder()
+                .setHost("localhost")
+                .setPort(port)
+                .build();
+        SinkFunction<Tuple2<String, Integer>> function = "buffered".equals(sink)
+                ? new BufferedRedisHashSink<>(config, new DataStreamJob1.RedisWordCountMapper(), batchSize, 0)
+                : new RedisSink<>(config, new DataStreamJob1.RedisWordCountMapper());
+        harness = new OneInputStreamOperatorTestHarness<>(new StreamSink<>(function));
+        harness.open();
+
+        updates = new Tuple2[UPDATES];
+        int[] counts = new int[VOCABULARY];
+        ZipfSampler words = new ZipfSampler(VOCABULARY, 1.0, new Random(42));
+        for (int i = 0; i < UPDATES; i++) {
+            int word = words.next();
+            updates[i] = Tuple2.of("word-" + word, ++counts[word]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.close();
+        redis.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void write() throws Exception {
+        for (Tuple2<String, Integer> update : updates) {
+            harness.processElement(update, 0L);
+        }
+        checkpointId++;
+        harness.snapshot(checkpointId, checkpointId);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.benchmark;
+
+import com.example.Utf8WordTokenizer;
+import com.example.Utf8WordTokenizer.CjkMode;
+import com.example.WordCountBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 切词的吞吐量（每秒处理的消息数）：原来的 new String(bytes).split("\\s") 与 Utf8WordTokenizer 直接在字节上切词对比。
+ *
+ * <p>split* 和 tokenize* 只切词；*Count 还把单词累加到预聚合的缓冲中（原来用 HashMap&lt;String, Integer&gt;，
+ * 现在用 WordCountBuffer），对应 WordCountPreAggregateOperator 每条消息做的全部工作。
+ * tokenizeBigram 是开启中文二元切分时的开销，作为参考。
+ * 输入是 MESSAGES 条消息，每条 20 个按 Zipf 分布抽取的单词，用 ASCII 空格分隔；
+ * text=ascii 时单词是英文，text=chinese 时是 2~4 个汉字的词。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private static final int MESSAGES = 1_000;
+    private static final int WORDS_PER_MESSAGE = 20;
+    private static final int VOCABULARY = 5_000;
+
+    @Param({"ascii", "chinese"})
+    private String text;
+
+    private byte[][] messages;
+    private Utf8WordTokenizer tokenizer;
+    private Utf8WordTokenizer bigramTokenizer;
+    private WordCountBuffer buffer;
+    private Map<String, Integer> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            vocabulary[i] = "chinese".equals(text) ? chineseWord(random) : asciiWord(random);
+        }
+        ZipfSampler words = new ZipfSampler(VOCABULARY, 1.0, random);
+        messages = new byte[MESSAGES][];
+        for (int i = 0; i < MESSAGES; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_MESSAGE; w++) {
+                if (w > 0) {
+                    message.append(' ');
+                }
+                message.append(vocabulary[words.next()]);
+            }
+            messages[i] = message.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        tokenizer = new Utf8WordTokenizer(CjkMode.NONE);
+        bigramTokenizer = new Utf8WordTokenizer(CjkMode.BIGRAM);
+        buffer = new WordCountBuffer(VOCABULARY);
+        map = new HashMap<>(VOCABULARY * 2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void split(Blackhole blackhole) {
+        for (byte[] message : messages) {
+            for (String word : new String(message, StandardCharsets.UTF_8).split("\\s")) {
+                blackhole.consume(word);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void tokenize(Blackhole blackhole) throws Exception {
+        for (byte[] message : messages) {
+            tokenizer.tokenize(message, (buf, offset, length) -> blackhole.consume(length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void tokenizeBigram(Blackhole blackhole) throws Exception {
+        for (byte[] message : messages) {
+            bigramTokenizer.tokenize(message, (buf, offset, length) -> blackhole.consume(length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int splitCount() {
+        map.clear();
+        for (byte[] message : messages) {
+            for (String word : new String(message, StandardCharsets.UTF_8).split("\\s")) {
+                map.merge(word, 1, Integer::sum);
+            }
+        }
+        return map.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int tokenizeCount() throws Exception {
+        buffer.clear();
+        for (byte[] message : messages) {
+            tokenizer.tokenize(message, (buf, offset, length) -> buffer.add(buf, offset, length, 1));
+        }
+        return buffer.size();
+    }
+
+    private static String asciiWord(Random random) {
+        int length = 3 + random.nextInt(8);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    // 从常用汉字区（U+4E00 起）中抽取
+    private static String chineseWord(Random random) {
+        int length = 2 + random.nextInt(3);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) (0x4E00 + random.nextInt(3_000)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 按 Zipf 分布抽取 [0, n) 中的整数：预先计算累计分布，二分查找。
+ */
+final class ZipfSampler {
+    private final double[] cumulative;
+    private final Random random;
+
+    ZipfSampler(int n, double exponent, Random random) {
+        this.cumulative = new double[n];
+        this.random = random;
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    int next() {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+    }
+}
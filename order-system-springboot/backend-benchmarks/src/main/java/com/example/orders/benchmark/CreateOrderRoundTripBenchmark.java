@@ -0,0 +1,205 @@
+package com.example.orders.benchmark;
+
+import com.example.orders.common.OrderStatus;
+import com.example.orders.entity.Order;
+import com.example.orders.entity.Product;
+import com.example.orders.mapper.OrderMapper;
+import com.example.orders.mapper.ProductMapper;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * OrderService.createOrder 的数据库往返：逐个商品查询、扣减、插入，与批量路径
+ * （一次 IN 查询 + BATCH 执行器合并的库存扣减 + 多行 INSERT）对比。
+ *
+ * <p>使用 backend 的 ProductMapper.xml / OrderMapper.xml，数据库是以 TCP 服务方式启动的 H2（MySQL 兼容模式），
+ * 每条语句都要经过一次本机网络往返；换成真实 MySQL 时往返延迟更高，两条路径的差距只会更大。
+ * H2 的客户端把 JDBC 批量中的语句逐条发送，这里批量路径的库存扣减仍是 lines 次往返；
+ * MySQL 在 rewriteBatchedStatements=true 时合并为一次，实际差距比这里测到的更大。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateOrderRoundTripBenchmark {
+
+    private static final int PRODUCT_COUNT = 1000;
+
+    // 购物车中的商品行数
+    @Param({"1", "10", "50"})
+    private int lines;
+
+    private Server server;
+    private PooledDataSource dataSource;
+    private SqlSessionFactory sessionFactory;
+    private List<Long> cart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:orders;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        dataSource = new PooledDataSource("org.h2.Driver", url, "sa", "");
+        createSchema();
+
+        Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        for (String resource : new String[]{"mapper/ProductMapper.xml", "mapper/OrderMapper.xml"}) {
+            try (InputStream in = Resources.getResourceAsStream(resource)) {
+                new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+            }
+        }
+        sessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        cart = new ArrayList<>(lines);
+        for (long id = 1; id <= lines; id++) {
+            cart.add(id * (PRODUCT_COUNT / lines));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearOrders() throws SQLException {
+        execute("TRUNCATE TABLE orders");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.forceCloseAll();
+        server.stop();
+    }
+
+    /**
+     * 原来的写法：每个商品一次查询、一次库存更新、一次插入，共 3 * lines 次往返加一次提交。
+     */
+    @Benchmark
+    public int perLine() {
+        String orderId = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        try (SqlSession session = sessionFactory.openSession(ExecutorType.SIMPLE)) {
+            ProductMapper productMapper = session.getMapper(ProductMapper.class);
+            OrderMapper orderMapper = session.getMapper(OrderMapper.class);
+            int inserted = 0;
+            for (Long productId : cart) {
+                Product product = productMapper.selectProductById(productId);
+                if (productMapper.decreaseStockIfCurrent(productId, 1, product.getVersion()) != 1) {
+                    throw new IllegalStateException("库存扣减失败，商品ID: " + productId);
+                }
+                // 单行 insertOrder 引用的 orderStatus 属性在实体上不存在，这里用单元素的 insertOrders，往返次数相同
+                inserted += orderMapper.insertOrders(Collections.singletonList(line(orderId, product, now)));
+            }
+            session.commit();
+            return inserted;
+        }
+    }
+
+    /**
+     * createOrder 现在的写法：一次 IN 查询，库存扣减在 BATCH 执行器中合并为一次 JDBC 批量，订单明细一条多行 INSERT。
+     */
+    @Benchmark
+    public int batched() {
+        String orderId = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        try (SqlSession session = sessionFactory.openSession(ExecutorType.BATCH)) {
+            ProductMapper productMapper = session.getMapper(ProductMapper.class);
+            OrderMapper orderMapper = session.getMapper(OrderMapper.class);
+            Map<Long, Product> products = productMapper.selectProductsByIds(cart).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+            List<Order> orderLines = new ArrayList<>(cart.size());
+            for (Long productId : cart) {
+                Product product = products.get(productId);
+                productMapper.decreaseStockIfCurrent(productId, 1, product.getVersion());
+                orderLines.add(line(orderId, product, now));
+            }
+            for (BatchResult result : session.flushStatements()) {
+                for (int count : result.getUpdateCounts()) {
+                    if (count == 0) {
+                        throw new IllegalStateException("库存扣减失败");
+                    }
+                }
+            }
+            orderMapper.insertOrders(orderLines);
+            session.flushStatements();
+            session.commit();
+            return orderLines.size();
+        }
+    }
+
+    private static Order line(String orderId, Product product, LocalDateTime now) {
+        Order line = new Order();
+        line.setOrderId(orderId);
+        line.setUserId("10001");
+        line.setProductId(String.valueOf(product.getId()));
+        line.setQuantity(1);
+        line.setUnitPrice(product.getPrice());
+        line.setTotalAmount(product.getPrice());
+        line.setStatus(OrderStatus.PENDING);
+        line.setCreateTime(now);
+        line.setUpdateTime(now);
+        return line;
+    }
+
+    // 只包含 mapper 用到的列，与 MySQL 中的表结构对应
+    private void createSchema() throws SQLException {
+        execute("CREATE TABLE products ("
+                + " id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), description VARCHAR(1000),"
+                + " price DECIMAL(10, 2), stock INT, image_url VARCHAR(255), category_id BIGINT, status VARCHAR(20),"
+                + " created_at DATETIME, updated_at DATETIME, version BIGINT NOT NULL DEFAULT 0)");
+        execute("CREATE TABLE product_stock_stripes ("
+                + " product_id BIGINT NOT NULL, stripe INT NOT NULL, stock INT NOT NULL, PRIMARY KEY (product_id, stripe))");
+        execute("CREATE TABLE orders ("
+                + " id BIGINT AUTO_INCREMENT PRIMARY KEY, order_id VARCHAR(64), user_id VARCHAR(64), product_id VARCHAR(64),"
+                + " quantity INT, unit_price DECIMAL(10, 2), total_amount DECIMAL(12, 2), order_status VARCHAR(20),"
+                + " create_time DATETIME, update_time DATETIME, UNIQUE (order_id, product_id))");
+        // 库存足够整个基准测试扣减，不会出现库存不足
+        execute("INSERT INTO products (name, price, stock, status, created_at, updated_at)"
+                + " SELECT CONCAT('商品-', X), 19.90, 1000000000, 'ACTIVE', NOW(), NOW() FROM SYSTEM_RANGE(1, " + PRODUCT_COUNT + ")");
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+}
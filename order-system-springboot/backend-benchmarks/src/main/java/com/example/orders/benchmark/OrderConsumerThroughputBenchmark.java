@@ -0,0 +1,303 @@
+package com.example.orders.benchmark;
+
+import com.example.orders.common.OrderMessageFormat;
+import com.example.orders.config.RabbitMQConfig;
+import com.example.orders.dto.OrderDTO;
+import com.example.orders.dto.OrderItemDTO;
+import com.example.orders.mapper.OrderMapper;
+import com.example.orders.service.OrderConsumerService;
+import com.example.orders.service.OrderMessageSerializer;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.qpid.server.SystemLauncher;
+import org.h2.tools.Server;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.MethodRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * order_queue 消费者的吞吐量（消息/秒）：原来的逐条消费与现在的批量监听容器对比。
+ *
+ * <p>broker 是内嵌的 Qpid Broker-J（AMQP 0-9-1，内存存储），代替 RabbitMQ；prefetch、ack、
+ * 并发消费者都走真实的协议交互。数据库是以 TCP 服务方式启动的 H2（MySQL 兼容模式），与 CreateOrderRoundTripBenchmark 相同。
+ * 两种模式调用的都是 backend 的 OrderConsumerService.processOrders，消息由 OrderMessageSerializer 编码，
+ * 差别只在监听容器：
+ * <ul>
+ *   <li>perMessage：改造前的配置，Spring Boot 默认的单个消费者，每条消息一次事务、一次 ack；</li>
+ *   <li>batch：RabbitMQConfig.orderBatchListenerFactory 的默认参数（并发 2~8，prefetch 250，每批 100 条），
+ *       一批消息一次事务、一次 ack。</li>
+ * </ul>
+ *
+ * <p>每次调用前把 MESSAGES 条消息发到队列（不计时），计时从启动监听容器开始，到所有消息处理完为止。
+ * 批量模式的最后一批凑不满时要等 receive-timeout（200 ms）才交出，消息数取得足够大来摊薄这部分时间。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderConsumerThroughputBenchmark {
+
+    private static final int MESSAGES = 5000;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(120);
+
+    @Param({"perMessage", "batch"})
+    private String mode;
+
+    // 订单消息的编码格式（order.message.format）；比较二进制格式时用 -p format=json,smile,cbor
+    @Param({"json"})
+    private String format;
+
+    private Path brokerWorkDir;
+    private int amqpPort;
+    private SystemLauncher broker;
+    private CachingConnectionFactory connectionFactory;
+    private RabbitTemplate rabbitTemplate;
+    private OrderMessageSerializer serializer;
+
+    private Server server;
+    private PooledDataSource dataSource;
+
+    private SimpleMessageListenerContainer container;
+    private final AtomicLong processed = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        startBroker();
+        connectionFactory = new CachingConnectionFactory("localhost", amqpPort);
+        connectionFactory.setUsername("guest");
+        connectionFactory.setPassword("guest");
+        rabbitTemplate = new RabbitTemplate(connectionFactory);
+        serializer = new OrderMessageSerializer(Jackson2ObjectMapperBuilder.json(), OrderMessageFormat.parse(format));
+
+        // 与 backend 声明相同的交换机、队列和绑定
+        RabbitMQConfig rabbitConfig = new RabbitMQConfig();
+        RabbitAdmin admin = new RabbitAdmin(connectionFactory);
+        admin.declareExchange(rabbitConfig.orderExchange());
+        admin.declareQueue(rabbitConfig.orderQueue());
+        admin.declareBinding(rabbitConfig.binding(rabbitConfig.orderQueue(), rabbitConfig.orderExchange()));
+
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:consumer;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        dataSource = new PooledDataSource("org.h2.Driver", url, "sa", "");
+        // 省略自增主键 id：消费者不读它，而 H2 在多个会话并发执行带参数的多行 INSERT 时会分配出重复的自增值
+        execute("CREATE TABLE orders ("
+                + " order_id VARCHAR(64), user_id VARCHAR(64), product_id VARCHAR(64),"
+                + " quantity INT, unit_price DECIMAL(10, 2), total_amount DECIMAL(12, 2), order_status VARCHAR(20),"
+                + " create_time DATETIME, update_time DATETIME, UNIQUE (order_id, product_id))");
+
+        // 与 Spring Boot 中相同的组装：SqlSessionTemplate 参与 DataSourceTransactionManager 管理的事务
+        SqlSessionFactoryBean sessionFactoryBean = new SqlSessionFactoryBean();
+        sessionFactoryBean.setDataSource(dataSource);
+        sessionFactoryBean.setMapperLocations(new ClassPathResource("mapper/OrderMapper.xml"));
+        org.apache.ibatis.session.Configuration configuration = new org.apache.ibatis.session.Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        sessionFactoryBean.setConfiguration(configuration);
+        OrderMapper orderMapper = new SqlSessionTemplate(sessionFactoryBean.getObject()).getMapper(OrderMapper.class);
+        OrderConsumerService consumer = new OrderConsumerService(orderMapper, new DataSourceTransactionManager(dataSource));
+
+        MessageConverter converter = rabbitConfig.orderMessageConverter(Jackson2ObjectMapperBuilder.json());
+        SimpleRabbitListenerContainerFactoryConfigurer configurer =
+                new SimpleRabbitListenerContainerFactoryConfigurer(new RabbitProperties());
+        if ("batch".equals(mode)) {
+            SimpleRabbitListenerContainerFactory factory = rabbitConfig.orderBatchListenerFactory(
+                    configurer, connectionFactory, converter, 2, 8, 250, 100, 200L,
+                    new DefaultListableBeanFactory().getBeanProvider(ExecutorService.class));
+            container = factory.createListenerContainer(batchEndpoint(new CountingConsumer(consumer, processed)));
+        } else {
+            SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+            configurer.configure(factory, connectionFactory);
+            factory.setMessageConverter(converter);
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("order-consumer-per-message");
+            endpoint.setQueueNames(RabbitMQConfig.QUEUE_NAME);
+            endpoint.setMessageListener(message -> {
+                consumer.processOrders(Collections.singletonList((OrderDTO) converter.fromMessage(message)));
+                processed.incrementAndGet();
+            });
+            container = factory.createListenerContainer(endpoint);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void publish() throws SQLException {
+        execute("TRUNCATE TABLE orders");
+        processed.set(0);
+        for (int i = 0; i < MESSAGES; i++) {
+            String orderId = UUID.randomUUID().toString();
+            rabbitTemplate.send(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY,
+                    serializer.toMessage(order(orderId), orderId));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopConsumers() throws SQLException {
+        container.stop();
+        long rows = queryLong("SELECT COUNT(*) FROM orders");
+        if (rows != (long) MESSAGES * ITEMS_PER_ORDER) {
+            throw new IllegalStateException("写入的订单明细行数不对: " + rows);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        container.destroy();
+        connectionFactory.destroy();
+        broker.shutdown();
+        dataSource.forceCloseAll();
+        server.stop();
+        deleteRecursively(brokerWorkDir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long consume() {
+        container.start();
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        long done;
+        while ((done = processed.get()) < MESSAGES) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("超时，只处理了 " + done + " 条消息");
+            }
+            LockSupport.parkNanos(100_000);
+        }
+        return done;
+    }
+
+    private void startBroker() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            amqpPort = socket.getLocalPort();
+        }
+        brokerWorkDir = Files.createTempDirectory("qpid-benchmark");
+        Map<String, String> context = new HashMap<>();
+        context.put("qpid.amqp_port", String.valueOf(amqpPort));
+        context.put("qpid.work_dir", brokerWorkDir.toString());
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("type", "Memory");
+        attributes.put("initialConfigurationLocation",
+                new ClassPathResource("qpid-broker-config.json").getURL().toExternalForm());
+        attributes.put("startupLoggedToSystemOut", false);
+        attributes.put("context", context);
+        broker = new SystemLauncher();
+        broker.startup(attributes);
+    }
+
+    private static MethodRabbitListenerEndpoint batchEndpoint(CountingConsumer bean) throws NoSuchMethodException {
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        handlerMethodFactory.afterPropertiesSet();
+        MethodRabbitListenerEndpoint endpoint = new MethodRabbitListenerEndpoint();
+        endpoint.setId("order-consumer-batch");
+        endpoint.setQueueNames(RabbitMQConfig.QUEUE_NAME);
+        endpoint.setBean(bean);
+        endpoint.setMethod(CountingConsumer.class.getMethod("processOrders", List.class));
+        endpoint.setMessageHandlerMethodFactory(handlerMethodFactory);
+        endpoint.setBatchListener(true);
+        return endpoint;
+    }
+
+    private static OrderDTO order(String orderId) {
+        List<OrderItemDTO> items = new ArrayList<>(ITEMS_PER_ORDER);
+        for (long productId = 1; productId <= ITEMS_PER_ORDER; productId++) {
+            OrderItemDTO item = new OrderItemDTO();
+            item.setProductId(productId);
+            item.setProductName("商品-" + productId);
+            item.setUnitPrice("19.90");
+            item.setQuantity(2);
+            item.setTotalPrice("39.80");
+            items.add(item);
+        }
+        // 与 OrderProducerService 发出的消息一致：createdAt/updatedAt 不填，由消费者写入时生成
+        return new OrderDTO(orderId, "10001", items, "PENDING", null, null, null);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Collections.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * 转发给 OrderConsumerService，方法返回（事务已提交）后才计数。
+     */
+    public static final class CountingConsumer {
+        private final OrderConsumerService delegate;
+        private final AtomicLong processed;
+
+        CountingConsumer(OrderConsumerService delegate, AtomicLong processed) {
+            this.delegate = delegate;
+            this.processed = processed;
+        }
+
+        public void processOrders(List<OrderDTO> orders) {
+            delegate.processOrders(orders);
+            processed.addAndGet(orders.size());
+        }
+    }
+}
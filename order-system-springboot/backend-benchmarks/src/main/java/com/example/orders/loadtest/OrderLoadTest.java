@@ -0,0 +1,230 @@
+package com.example.orders.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 对运行中的 backend 施加负载，比较平台线程模式和虚拟线程模式（virtual-threads profile）的 p50/p99 延迟与吞吐量。
+ *
+ * <p>两种模式各启动一个实例，连接同一套 MySQL / RabbitMQ：
+ * <pre>
+ *   java -jar order-backend.jar --server.port=8080
+ *   java -jar order-backend.jar --server.port=8081 --spring.profiles.active=virtual-threads
+ *   java -cp target/benchmarks.jar com.example.orders.loadtest.OrderLoadTest platform=http://localhost:8080 virtual=http://localhost:8081
+ * </pre>
+ * 各目标依次压测（不会同时），负载完全相同，最后输出一张对比表。
+ *
+ * <p>负载通过系统属性调整（-Dloadtest.xxx=...）：
+ * <ul>
+ *   <li>scenario：create 为 POST /api/orders?waitForConfirm=true，请求阻塞在 RabbitMQ 的 publisher confirm 上；
+ *       summaries 为 GET /api/orders/user/{userId}/summaries，阻塞在 MySQL 上；mixed 两者各一半（默认）</li>
+ *   <li>concurrency：同时在途的请求数上限，默认 400，超过 Tomcat 默认的 200 个线程，平台线程模式下会有请求排队</li>
+ *   <li>rate：每秒发起的请求数。大于 0 时按固定速率发起（开环），延迟从计划发出的时刻算起，
+ *       服务端变慢导致的发送推迟也计入延迟（避免协调遗漏）；默认 0 为闭环，一个请求完成后立即发起下一个</li>
+ *   <li>warmup-seconds（默认 15）、duration-seconds（默认 60）、users（订单的用户ID个数，默认 1000）、products（默认 100）</li>
+ * </ul>
+ * 非 2xx 响应和超时计为错误，不计入延迟分布。
+ */
+public final class OrderLoadTest {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final String scenario;
+    private final int concurrency;
+    private final int rate;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final int users;
+    private final int products;
+
+    private OrderLoadTest() {
+        this.scenario = System.getProperty("loadtest.scenario", "mixed");
+        if (!Arrays.asList("create", "summaries", "mixed").contains(scenario)) {
+            throw new IllegalArgumentException("loadtest.scenario 只能是 create、summaries 或 mixed: " + scenario);
+        }
+        this.concurrency = Integer.getInteger("loadtest.concurrency", 400);
+        this.rate = Integer.getInteger("loadtest.rate", 0);
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("loadtest.warmup-seconds", 15));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("loadtest.duration-seconds", 60));
+        this.users = Integer.getInteger("loadtest.users", 1000);
+        this.products = Integer.getInteger("loadtest.products", 100);
+        // 固定用 HTTP/1.1：默认的 HTTP/2 会在明文连接上先尝试升级，多一次往返
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            System.err.println("用法: OrderLoadTest <名称>=<backend 地址> [<名称>=<backend 地址> ...]");
+            System.err.println("例如: OrderLoadTest platform=http://localhost:8080 virtual=http://localhost:8081");
+            System.exit(2);
+        }
+        OrderLoadTest loadTest = new OrderLoadTest();
+        System.out.printf(Locale.ROOT, "场景 %s，并发上限 %d，%s，预热 %d s，测量 %d s%n",
+                loadTest.scenario, loadTest.concurrency,
+                loadTest.rate > 0 ? "固定速率 " + loadTest.rate + " req/s" : "闭环",
+                TimeUnit.NANOSECONDS.toSeconds(loadTest.warmupNanos), TimeUnit.NANOSECONDS.toSeconds(loadTest.durationNanos));
+
+        List<Result> results = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq > 0 ? arg.substring(0, eq) : arg;
+            String baseUrl = (eq > 0 ? arg.substring(eq + 1) : arg).replaceAll("/+$", "");
+            System.out.printf("压测 %s (%s) ...%n", name, baseUrl);
+            results.add(loadTest.run(name, baseUrl));
+        }
+
+        System.out.println();
+        System.out.printf("%-12s %10s %8s %10s %9s %9s %9s %9s%n",
+                "target", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Result result : results) {
+            System.out.println(result);
+        }
+    }
+
+    private Result run(String name, String baseUrl) throws InterruptedException {
+        // 预热阶段的结果丢弃：让两边的 JIT、连接池、Tomcat 线程池都进入稳定状态
+        drive(baseUrl, warmupNanos, new Recorder());
+        Recorder recorder = new Recorder();
+        long elapsed = drive(baseUrl, durationNanos, recorder);
+        return recorder.result(name, elapsed);
+    }
+
+    /**
+     * 在 durationNanos 内持续发起请求，返回实际用时（包括等待最后一批在途请求完成）。
+     */
+    private long drive(String baseUrl, long durationNanos, Recorder recorder) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        long sequence = 0;
+        while (true) {
+            long intended;
+            if (rate > 0) {
+                intended = start + sequence * intervalNanos;
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquire();
+            } else {
+                inFlight.acquire();
+                intended = System.nanoTime();
+            }
+            if (intended - end >= 0) {
+                inFlight.release();
+                break;
+            }
+            sequence++;
+            long sentAt = intended;
+            client.sendAsync(nextRequest(baseUrl), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - sentAt;
+                        if (error == null && response.statusCode() / 100 == 2) {
+                            recorder.success(latency);
+                        } else {
+                            recorder.error();
+                        }
+                        inFlight.release();
+                    });
+        }
+        // 等所有在途请求完成
+        if (!inFlight.tryAcquire(concurrency, REQUEST_TIMEOUT.getSeconds() + 5, TimeUnit.SECONDS)) {
+            System.err.println("有请求在超时后仍未完成");
+        }
+        return System.nanoTime() - start;
+    }
+
+    private HttpRequest nextRequest(String baseUrl) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String userId = "loadtest-" + random.nextInt(users);
+        boolean create = "create".equals(scenario) || ("mixed".equals(scenario) && random.nextBoolean());
+        if (create) {
+            long productId = 1 + random.nextInt(products);
+            String body = "{\"userId\":\"" + userId + "\",\"status\":\"PENDING\",\"items\":[{\"productId\":" + productId
+                    + ",\"quantity\":1,\"unitPrice\":\"9.90\",\"totalPrice\":\"9.90\"}]}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/orders?waitForConfirm=true"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/orders/user/" + userId + "/summaries?limit=20"))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    /**
+     * 收集成功请求的延迟（纳秒）和错误数。回调在 HttpClient 的线程上执行，用 synchronized 追加。
+     */
+    private static final class Recorder {
+        private long[] latencies = new long[1 << 16];
+        private int size;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void success(long latencyNanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+        }
+
+        void error() {
+            errors.incrementAndGet();
+        }
+
+        synchronized Result result(String name, long elapsedNanos) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return new Result(name, sorted, errors.get(), elapsedNanos);
+        }
+    }
+
+    private static final class Result {
+        private final String name;
+        private final long[] sortedLatencies;
+        private final long errors;
+        private final long elapsedNanos;
+
+        Result(String name, long[] sortedLatencies, long errors, long elapsedNanos) {
+            this.name = name;
+            this.sortedLatencies = sortedLatencies;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // 最近秩法：不小于 p% 样本的最小值
+        private double percentileMillis(double p) {
+            if (sortedLatencies.length == 0) {
+                return Double.NaN;
+            }
+            int rank = (int) Math.ceil(p / 100.0 * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            double throughput = sortedLatencies.length / (elapsedNanos / 1_000_000_000.0);
+            return String.format(Locale.ROOT, "%-12s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f",
+                    name, sortedLatencies.length, errors, throughput,
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100));
+        }
+    }
+}
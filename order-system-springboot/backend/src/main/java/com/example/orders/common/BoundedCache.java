@@ -0,0 +1,185 @@
+package com.example.orders.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 容量和存活时间都有上限的内存缓存。
+ *
+ * <p>超过 maxSize 时淘汰最久未访问的条目（LRU），写入超过 ttl 的条目在读取时视为不存在。
+ * 内部是 access-order 的 LinkedHashMap，读写都在同一把锁内完成，适合条目数在几万以内、
+ * 加载代价远高于加锁代价的场景（例如缓存数据库行）。
+ *
+ * <p>读穿透时加载在锁外进行，可能与失效并发：调用方在加载前取 {@link #generation()}，
+ * 加载后用 {@link #putIfGeneration} 写入，期间这个键被失效过则放弃写入，避免把旧值放回缓存。
+ * 失效按键记录（最近 maxSize 个被失效的键及其序号），其他键的失效不影响写入；
+ * 更早的记录被淘汰时只保留一个下限序号，保守地拒绝加载早于它的写入。
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    // 最近被失效的键 -> 失效时的序号，按失效先后排列，最多 maxSize 个
+    private final LinkedHashMap<K, Long> invalidations;
+    private final AtomicLong generation = new AtomicLong();
+    // 被淘汰的失效记录和 invalidateAll 的序号下限，加载早于它的写入一律放弃
+    private long invalidationFloor;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1_000_000L : Long.MAX_VALUE;
+        this.entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidations = new LinkedHashMap<K, Long>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    invalidationFloor = eldest.getValue();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 返回未过期的缓存值，不存在或已过期返回 null，并计入命中/未命中。
+     */
+    public V getIfPresent(K key) {
+        synchronized (entries) {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry != null && isExpired(entry, System.nanoTime())) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /**
+     * 当前的失效序号，读穿透加载前获取，配合 {@link #putIfGeneration} 使用。
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 仅当加载期间这个键没有被失效过时写入。
+     *
+     * @return 是否写入
+     */
+    public boolean putIfGeneration(K key, V value, long expectedGeneration) {
+        synchronized (entries) {
+            Long invalidatedAt = invalidations.get(key);
+            if (invalidationFloor > expectedGeneration
+                    || (invalidatedAt != null && invalidatedAt > expectedGeneration)) {
+                return false;
+            }
+            entries.put(key, new CacheEntry<>(value, System.nanoTime()));
+            return true;
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            // 先删再放，保持按失效先后排列，淘汰的总是序号最小的记录
+            invalidations.remove(key);
+            invalidations.put(key, generation.incrementAndGet());
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidationFloor = generation.incrementAndGet();
+            invalidations.clear();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public Stats stats() {
+        return new Stats(size(), maxSize, hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    private boolean isExpired(CacheEntry<V> entry, long now) {
+        return now - entry.loadedAt > ttlNanos;
+    }
+
+    private static final class CacheEntry<V> {
+        final V value;
+        final long loadedAt;
+
+        CacheEntry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * 缓存统计快照。
+     */
+    public static final class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+
+        Stats(int size, int maxSize, long hits, long misses, long evictions, long expirations) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+
+        public int getSize() { return size; }
+        public int getMaxSize() { return maxSize; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getExpirations() { return expirations; }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.orders.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 在竞争激烈的行上执行事务：遇到死锁、锁等待超时或乐观锁冲突（Spring 的 ConcurrencyFailureException）时，
+ * 整个事务回滚后按指数退避 + 随机抖动重试，最多重试 maxAttempts 次。
+ *
+ * <p>重试必须包住整个事务：InnoDB 检测到死锁时会回滚整个事务，在事务内部重试单条语句没有意义。
+ * 因此调用方不要再加 @Transactional，事务边界由这里的 TransactionTemplate 决定。
+ */
+@Component
+public class ContentionRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentionRetry.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+
+    public ContentionRetry(PlatformTransactionManager transactionManager,
+                           @Value("${inventory.retry.max-attempts:5}") int maxAttempts,
+                           @Value("${inventory.retry.base-backoff-ms:5}") long baseBackoffMs,
+                           @Value("${inventory.retry.max-backoff-ms:200}") long maxBackoffMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * 在新事务中执行 action，竞争失败时重试。最后一次仍失败则把异常抛给调用方。
+     */
+    public <T> T inTransaction(TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    logger.warn("事务竞争失败，已重试 {} 次，放弃: {}", attempt - 1, e.getMessage());
+                    throw e;
+                }
+                long backoff = backoff(attempt);
+                logger.debug("事务竞争失败，第 {} 次重试前等待 {} ms: {}", attempt, backoff, e.getMessage());
+                sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * Full jitter：在 [0, min(maxBackoff, base * 2^attempt)] 中随机取值，
+     * 同时失败的请求不会在同一时刻再次撞到同一行上。
+     */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt, 20));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待重试时被中断", e);
+        }
+    }
+}
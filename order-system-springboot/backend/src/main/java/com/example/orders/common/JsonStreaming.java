@@ -0,0 +1,45 @@
+package com.example.orders.common;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * 把逐行读取的查询结果（例如 MyBatis Cursor）直接写成 JSON 数组输出，不在内存中攒成 List。
+ */
+public final class JsonStreaming {
+
+    // 每写出多少个元素刷新一次输出流，让客户端尽早收到数据
+    private static final int FLUSH_EVERY = 500;
+
+    private JsonStreaming() {
+    }
+
+    /**
+     * 依次写出 rows 中的每个元素（经 mapper 转换后），返回写出的元素个数。不关闭 out。
+     */
+    public static <T, R> long writeArray(ObjectMapper objectMapper, OutputStream out,
+                                         Iterable<T> rows, Function<T, R> mapper) throws IOException {
+        // ObjectMapper 默认每写一个值就 flush 一次（FLUSH_AFTER_WRITE_VALUE），关掉后按 FLUSH_EVERY 刷新
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            for (T row : rows) {
+                writer.writeValue(generator, mapper.apply(row));
+                if (++count % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+}
@@ -1,16 +1,27 @@
 package com.example.orders.config;
 
+import com.example.orders.common.OrderMessageFormat;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter; // 如果你用JSON转换器
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 public class RabbitMQConfig {
@@ -18,6 +29,10 @@ public class RabbitMQConfig {
     public static final String EXCHANGE_NAME = "order.direct.exchange";
     public static final String QUEUE_NAME = "order_queue";
     public static final String ROUTING_KEY = "order.create";
+    // Flink 作业校验失败的订单消息会投递到这里，消息体和 content_type 与原始订单消息相同
+    public static final String DEAD_LETTER_QUEUE_NAME = "order_queue_dlq";
+    // 订单消费者使用的批量监听容器工厂（见 orderBatchListenerFactory）
+    public static final String ORDER_BATCH_LISTENER_FACTORY = "orderBatchListenerFactory";
 
     @Bean
     public Queue orderQueue() {
@@ -25,6 +40,12 @@ public class RabbitMQConfig {
         return new Queue("order_queue", true);
     }
 
+    // 死信队列：只声明，不绑定交换机，Flink 通过默认交换机按队列名直接投递
+    @Bean
+    public Queue orderDeadLetterQueue() {
+        return new Queue(DEAD_LETTER_QUEUE_NAME, true);
+    }
+
     // 2. 定义一个交换机 (可选，但推荐使用，特别是当你有多个routing key或更复杂的路由需求时)
     // 这里以 Direct Exchange 为例，最简单，路由键完全匹配
     @Bean
@@ -39,10 +60,48 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(orderQueue).to(orderExchange).with("order.create"); // <--- 定义路由键
     }
 
-    // 如果你使用了 Jackson2JsonMessageConverter，也确保它在这里定义了
+    // 订单消息的转换器：按消息的 content_type 选择 JSON、Smile 或 CBOR（见 OrderMessageFormat），
+    // 没有 content_type 或无法识别时按 JSON 处理。三种格式与发送端 OrderMessageSerializer 使用同样的 ObjectMapper 配置
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter orderMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(
+                new Jackson2JsonMessageConverter(OrderMessageFormat.JSON.createObjectMapper(objectMapperBuilder)));
+        for (OrderMessageFormat format : new OrderMessageFormat[]{OrderMessageFormat.SMILE, OrderMessageFormat.CBOR}) {
+            converter.addDelegate(format.getContentType(), new JacksonBinaryMessageConverter(
+                    format.createObjectMapper(objectMapperBuilder), format.getContentType()));
+        }
+        return converter;
+    }
+
+    // 订单消费者的监听容器：多个消费者线程并发消费，每次把最多 batchSize 条消息作为一个 List 交给监听方法，
+    // 监听方法正常返回后整批一起 ack，抛异常则整批按 Spring Boot 的配置拒绝/重新入队。
+    // 一批凑不满时，最多等待 receiveTimeout 后把已收到的消息先交出去。
+    // prefetch 至少要等于 batchSize，否则 broker 推送的未确认消息数不够凑满一批
+    @Bean(name = ORDER_BATCH_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory orderBatchListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            MessageConverter orderMessageConverter,
+            @Value("${order.consumer.concurrency:2}") int concurrency,
+            @Value("${order.consumer.max-concurrency:8}") int maxConcurrency,
+            @Value("${order.consumer.prefetch:250}") int prefetch,
+            @Value("${order.consumer.batch-size:100}") int batchSize,
+            @Value("${order.consumer.receive-timeout-ms:200}") long receiveTimeoutMs,
+            @Qualifier(VirtualThreadConfig.VIRTUAL_THREAD_EXECUTOR) ObjectProvider<ExecutorService> virtualThreadExecutor) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(orderMessageConverter);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        // 虚拟线程模式下消费者线程也用虚拟线程
+        virtualThreadExecutor.ifAvailable(executor -> factory.setTaskExecutor(new TaskExecutorAdapter(executor)));
+        return factory;
     }
 
     // 如果你手动配置了 RabbitTemplate，确保它使用了 MessageConverter
@@ -0,0 +1,67 @@
+package com.example.orders.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程模式（app.virtual-threads.enabled=true，通常通过 virtual-threads profile 开启）。
+ *
+ * <p>Tomcat 的请求处理、Spring MVC 的异步请求（例如流式导出）和订单消费者的监听容器都改用
+ * 每个任务一个虚拟线程的执行器，阻塞在 MySQL / RabbitMQ 上的请求不再占用平台线程。
+ * 并发不再受线程池大小限制，对 MySQL 的并发由 Hikari 连接池决定，见 application-virtual-threads.properties。
+ *
+ * <p>mysql-connector-java 8.0.33 在 synchronized 块中读写套接字，Java 21~23 上会钉住载体线程，
+ * 访问 MySQL 的并发实际被限制在载体线程数以内；需要 Connector/J 9.x 或 Java 24+ 才能去掉这个限制。
+ *
+ * <p>项目仍以 Java 11 编译，虚拟线程执行器通过反射获取，运行时需要 Java 21 及以上，否则启动失败。
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    public static final String VIRTUAL_THREAD_EXECUTOR = "virtualThreadExecutor";
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+    @Bean(name = VIRTUAL_THREAD_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return executor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            logger.info("虚拟线程模式已开启，Java {}", System.getProperty("java.version"));
+            return executor;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("app.virtual-threads.enabled=true 需要 Java 21 及以上，当前: "
+                    + System.getProperty("java.version"), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建虚拟线程执行器失败", e);
+        }
+    }
+}
@@ -4,17 +4,27 @@ import com.example.orders.service.OrderService;
 import com.example.orders.dto.OrderDetailDTO;
 import com.example.orders.common.ApiResponse;
 import com.example.orders.dto.OrderDTO;
+import com.example.orders.dto.OrderSummaryDTO;
+import com.example.orders.dto.PageDTO;
+import com.example.orders.entity.Order;
 import com.example.orders.service.OrderProducerService; // 导入 OrderProducerService
 // import com.example.orders.service.OrderService; // 如果 OrderService 仅用于数据库操作，并且你想完全异步化，可以注释掉此行或移除其注入
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 // 这个 Controller 负责订单的创建、查询和状态更新。
 // reminder: 一个逻辑订单在数据库中是多条记录
@@ -42,24 +52,43 @@ public class OrderController {
     @Autowired // 如果 OrderService 仍然需要被注入，用于下面的 GET/PUT/DELETE 方法
     private OrderService orderService; // 重新声明注入，或者在构造器中添加
 
+    // waitForConfirm=true 时等待 publisher confirm 的最长时间
+    @Value("${order.publisher.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
     /**
      * 创建订单。
      * 前端传入一个包含多个商品项的 OrderDTO。后端将为每个商品项在数据库的 `orders` 表中创建一条记录。
-     * POST /api/orders
+     * 订单消息异步发布到 RabbitMQ：默认放入发布缓冲区后立即返回 202；
+     * waitForConfirm=true 时等待 broker 确认收到消息后再返回，确认失败或超时返回 503。
+     * POST /api/orders?waitForConfirm=false
      * @param orderDTO 包含用户ID和订单商品列表的DTO
-     * @return 创建成功的订单业务ID
+     * @param waitForConfirm 是否等待 broker 的 publisher confirm
+     * @return 处理结果
      */
     @PostMapping
-    public ResponseEntity<ApiResponse<String>> createOrder(@RequestBody OrderDTO orderDTO) {
+    public ResponseEntity<ApiResponse<String>> createOrder(@RequestBody OrderDTO orderDTO,
+                                                           @RequestParam(defaultValue = "false") boolean waitForConfirm) {
         try {
-            // *** 核心修改点：调用 OrderProducerService 发送消息到 RabbitMQ ***
-            orderProducerService.sendOrderToQueue(orderDTO);
-
-            logger.info("订单请求已接收，订单数据已发送至 RabbitMQ 进行异步处理。用户ID: {}", orderDTO.getUserId());
-            // 返回 202 Accepted 状态码，表示请求已接受，但处理尚未完成。
-            // 或者继续使用 201 Created，但响应信息应明确指出是异步处理。
-            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("订单请求已接收，正在异步处理中。"));
+            if (!waitForConfirm) {
+                orderProducerService.sendOrderToQueue(orderDTO);
+                logger.info("订单请求已接收，订单数据已放入发布队列进行异步处理。用户ID: {}", orderDTO.getUserId());
+                // 返回 202 Accepted 状态码，表示请求已接受，但处理尚未完成。
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("订单请求已接收，正在异步处理中。"));
+            }
 
+            orderProducerService.publish(orderDTO).get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+            logger.info("订单消息已被 RabbitMQ 确认。用户ID: {}", orderDTO.getUserId());
+            // 消息已持久化到 broker，但订单仍由消费者异步写入数据库，所以仍然是 202
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("订单请求已被消息队列确认，正在异步处理中。"));
+
+        } catch (RejectedExecutionException | TimeoutException | ExecutionException e) {
+            String reason = e instanceof ExecutionException ? e.getCause().getMessage() : e.getMessage();
+            logger.warn("订单消息发布失败或未及时确认，用户ID: {}: {}", orderDTO.getUserId(), reason);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.<String>fail(HttpStatus.SERVICE_UNAVAILABLE.value(), "订单提交失败，请稍后重试。"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.<String>fail(HttpStatus.SERVICE_UNAVAILABLE.value(), "订单提交失败，请稍后重试。"));
         } catch (Exception e) {
             logger.error("处理订单请求时发生内部错误: {}", e.getMessage(), e);
             // 返回 500 服务器内部错误
@@ -67,6 +96,32 @@ public class OrderController {
         }
     }
 
+    /**
+     * 按自增ID游标分页获取订单明细行（每行是订单中的一个商品）。
+     * GET /api/orders?after=0&limit=50
+     * @param after 上一页返回的 nextAfter，第一页不传
+     * @param limit 每页行数，默认 50，最多 500
+     * @return 一页订单明细行，以及下一页的游标
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<PageDTO<Order>>> getOrderLines(@RequestParam(defaultValue = "0") long after,
+                                                                   @RequestParam(required = false) Integer limit) {
+        PageDTO<Order> page = orderService.getOrderLinesPage(after, limit);
+        logger.info("获取订单明细分页成功，after: {}，本页 {} 行。", after, page.getItems().size());
+        return ResponseEntity.ok(ApiResponse.success(page));
+    }
+
+    /**
+     * 导出全部订单明细行，响应体是流式写出的 JSON 数组。
+     * GET /api/orders/export
+     * @return 全部订单明细行
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrderLines() {
+        StreamingResponseBody body = out -> orderService.exportOrderLines(out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     /**
      * 根据订单业务ID获取订单详情。
      * 由于数据库orders表是扁平化的，此接口会聚合所有相关的订单明细行，并返回一个 OrderDTO。
@@ -99,6 +154,31 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success(orders));
     }
 
+    /**
+     * 分页获取用户的订单摘要（行数、件数、总金额、下单时间），按下单时间倒序。
+     * GET /api/orders/user/{userId}/summaries?cursor=&limit=20&includeItems=false
+     * @param userId 用户ID
+     * @param cursor 上一页返回的 nextCursor，第一页不传
+     * @param limit 每页订单数，默认 50，最多 500
+     * @param includeItems 是否同时返回本页订单的明细
+     * @return 一页订单摘要，以及下一页的游标
+     */
+    @GetMapping("/user/{userId}/summaries")
+    public ResponseEntity<ApiResponse<PageDTO<OrderSummaryDTO>>> getOrderSummariesByUserId(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean includeItems) {
+        try {
+            PageDTO<OrderSummaryDTO> page = orderService.getOrderSummariesByUserId(userId, cursor, limit, includeItems);
+            logger.info("获取用户 '{}' 的订单摘要成功，本页 {} 个。", userId, page.getItems().size());
+            return ResponseEntity.ok(ApiResponse.success(page));
+        } catch (IllegalArgumentException e) {
+            logger.warn("获取用户 '{}' 的订单摘要失败: {}", userId, e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.badRequest(e.getMessage()));
+        }
+    }
+
     /**
      * 更新订单状态。
      * 此操作将更新某个订单业务ID下的所有订单明细行的状态。
@@ -1,17 +1,21 @@
 package com.example.orders.controller;
 
 import com.example.orders.common.ApiResponse;
+import com.example.orders.common.BoundedCache;
+import com.example.orders.dto.PageDTO;
 import com.example.orders.dto.ProductDTO;
 import com.example.orders.entity.Product; // 注意：这里返回的是 Product Entity，也可以转换为 ProductDTO
+import com.example.orders.service.ProductCache;
 import com.example.orders.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/products") // 所有商品相关API的前缀
@@ -22,6 +26,9 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductCache productCache;
+
     /**
      * 创建新产品
      * POST /api/products
@@ -61,15 +68,29 @@ public class ProductController {
     }
 
     /**
-     * 获取所有产品
-     * GET /api/products
-     * @return 所有产品列表
+     * 按ID游标分页获取产品
+     * GET /api/products?after=0&limit=50
+     * @param after 上一页返回的 nextAfter，第一页不传
+     * @param limit 每页数量，默认 50，最多 500
+     * @return 一页产品，以及下一页的游标
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<ProductDTO>>> getAllProducts() {
-        List<ProductDTO> products = productService.getAllProducts();
-        logger.info("获取所有产品成功，共 {} 个。", products.size());
-        return ResponseEntity.ok(ApiResponse.success(products));
+    public ResponseEntity<ApiResponse<PageDTO<ProductDTO>>> getProducts(@RequestParam(defaultValue = "0") long after,
+                                                                       @RequestParam(required = false) Integer limit) {
+        PageDTO<ProductDTO> page = productService.getProductsPage(after, limit);
+        logger.info("获取产品分页成功，after: {}，本页 {} 个。", after, page.getItems().size());
+        return ResponseEntity.ok(ApiResponse.success(page));
+    }
+
+    /**
+     * 导出全部产品，响应体是流式写出的 JSON 数组
+     * GET /api/products/export
+     * @return 全部产品
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = out -> productService.exportProducts(out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /**
@@ -117,4 +138,14 @@ public class ProductController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.serverError("服务器内部错误，请稍后再试。"));
         }
     }
+
+    /**
+     * 商品缓存统计：容量、命中/未命中、淘汰和过期次数
+     * GET /api/products/cache/stats
+     * @return 缓存统计快照
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse<BoundedCache.Stats>> getCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(productCache.stats()));
+    }
 }
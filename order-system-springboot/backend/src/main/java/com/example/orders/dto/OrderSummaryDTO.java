@@ -0,0 +1,20 @@
+package com.example.orders.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// 订单摘要：由 SQL 按 order_id 聚合 orders 表中的明细行得到
+@Data
+public class OrderSummaryDTO {
+    private String orderId;
+    private String userId;
+    private Integer itemCount;      // 明细行数
+    private Integer totalQuantity;  // 商品总件数
+    private BigDecimal totalAmount; // 所有明细行 total_amount 之和
+    private String status;          // 明细行的状态（同一订单的明细行状态一起更新）
+    private LocalDateTime createdAt; // 订单的下单时间：各明细行 create_time 的最小值
+    private List<OrderItemDetailDTO> items; // 只在请求 includeItems 时填充
+}
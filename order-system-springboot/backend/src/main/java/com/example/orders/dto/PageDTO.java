@@ -0,0 +1,46 @@
+package com.example.orders.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// 游标（keyset）分页的一页结果：下一页用 nextAfter 作为 after 参数请求，hasMore 为 false 时已到末尾
+@Data
+public class PageDTO<T> {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private List<T> items;
+    private Integer limit;
+    private Long nextAfter; // 本页最后一条记录的ID，没有数据时为空
+    private String nextCursor; // 按复合键排序的分页使用的不透明游标，原样传回即可
+    private boolean hasMore;
+
+    public PageDTO() {}
+
+    public PageDTO(List<T> items, Integer limit, Long nextAfter, boolean hasMore) {
+        this.items = items;
+        this.limit = limit;
+        this.nextAfter = nextAfter;
+        this.hasMore = hasMore;
+    }
+
+    // 未传或不合法的 limit 取默认值，超过上限的截断到上限
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    // rows 是按 limit + 1 查出的结果：多出的一条只用来判断是否还有下一页，不返回
+    public static <E, T> PageDTO<T> fromRows(List<E> rows, int limit, Function<E, Long> idOf, Function<E, T> convert) {
+        boolean hasMore = rows.size() > limit;
+        List<E> page = hasMore ? rows.subList(0, limit) : rows;
+        Long nextAfter = page.isEmpty() ? null : idOf.apply(page.get(page.size() - 1));
+        List<T> items = page.stream().map(convert).collect(Collectors.toList());
+        return new PageDTO<>(items, limit, nextAfter, hasMore);
+    }
+}
@@ -11,6 +11,7 @@ public class ProductDTO {
     private String imageUrl;
     private Long categoryId;
     private String status;
+    private Long version; // 读取商品时的版本号，更新时带回来用于乐观锁校验，可为空
 
     // --- 构造函数 ---
     public ProductDTO() {
@@ -92,6 +93,14 @@ public class ProductDTO {
         this.status = status;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "ProductDTO{" +
@@ -103,6 +112,7 @@ public class ProductDTO {
                ", imageUrl='" + imageUrl + '\'' +
                ", categoryId=" + categoryId +
                ", status='" + status + '\'' +
+               ", version=" + version +
                '}';
     }
 }
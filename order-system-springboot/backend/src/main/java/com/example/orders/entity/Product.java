@@ -17,6 +17,7 @@ public class Product {
     private ProductStatus status; // 或者使用枚举 String status;
     private LocalDateTime createdAt; // 对应 created_at
     private LocalDateTime updatedAt; // 对应 updated_at
+    private Long version; // 乐观锁版本号，每次修改商品信息都加 1（库存变化不加）
 
     // Constructors
     public Product() {
@@ -54,6 +55,7 @@ public class Product {
                ", status='" + status + '\'' +
                ", createdAt=" + createdAt +
                ", updatedAt=" + updatedAt +
+               ", version=" + version +
                '}';
     }
 }
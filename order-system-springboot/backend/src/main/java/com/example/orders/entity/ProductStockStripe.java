@@ -0,0 +1,14 @@
+package com.example.orders.entity;
+
+import lombok.Data;
+
+/**
+ * 热点商品的库存分片。开启分片后商品库存分散在多行中，
+ * 并发扣减落在不同的行上，不会全部排队等待 products 表中的同一行锁。
+ */
+@Data
+public class ProductStockStripe {
+    private Long productId; // 对应 product_id
+    private Integer stripe; // 分片编号，从 0 开始
+    private Integer stock;  // 该分片上的库存
+}
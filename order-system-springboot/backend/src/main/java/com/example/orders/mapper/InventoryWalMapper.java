@@ -0,0 +1,15 @@
+package com.example.orders.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface InventoryWalMapper {
+    // 记录一个已写入数据库的 WAL 段，与库存变化量在同一事务中提交
+    int insertAppliedSegment(long segmentId);
+
+    // 段是否已经写入过数据库（崩溃恢复时避免重复应用）
+    int countAppliedSegment(long segmentId);
+
+    // 已写入数据库的最大段号，没有时返回 null
+    Long selectMaxAppliedSegment();
+}
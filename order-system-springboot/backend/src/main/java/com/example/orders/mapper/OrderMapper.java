@@ -1,11 +1,14 @@
 package com.example.orders.mapper;
 
+import com.example.orders.dto.OrderSummaryDTO;
 import com.example.orders.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -13,6 +16,9 @@ public interface OrderMapper {
     // 插入一条订单项记录
     int insertOrder(Order order); // 实际上是插入一个订单明细行
 
+    // 一条多行 INSERT 插入多条订单明细行
+    int insertOrders(@Param("orders") List<Order> orders);
+
     // 根据表自增ID查找订单明细行
     Order selectOrderById(Long id);
 
@@ -22,9 +28,24 @@ public interface OrderMapper {
     // 根据用户ID查找所有相关的订单明细行
     List<Order> selectOrdersByUserId(String userId);
 
-    // 查询所有订单明细行
+    // 按 order_id 聚合用户的订单，按下单时间倒序分页；afterTime/afterOrderId 为上一页最后一个订单，第一页传 null
+    List<OrderSummaryDTO> selectOrderSummariesByUserId(@Param("userId") String userId,
+                                                       @Param("afterTime") LocalDateTime afterTime,
+                                                       @Param("afterOrderId") String afterOrderId,
+                                                       @Param("limit") int limit);
+
+    // 一次查出多个订单的所有明细行
+    List<Order> selectOrdersByOrderIds(@Param("orderIds") Collection<String> orderIds);
+
+    // 查询所有订单明细行（一次性加载全表，数据多时用下面的分页或流式查询）
     List<Order> selectAllOrders();
 
+    // 按自增ID游标分页：返回 id > after 的前 limit 条订单明细行，按ID升序
+    List<Order> selectOrdersAfter(@Param("after") Long after, @Param("limit") int limit);
+
+    // 流式读取全部订单明细行（按ID升序），需在事务中使用并在读完后关闭
+    Cursor<Order> streamAllOrders();
+
     // 更新订单明细行信息
     int updateOrder(Order order);
 
@@ -1,9 +1,12 @@
 package com.example.orders.mapper;
 
 import com.example.orders.entity.Product;
+import com.example.orders.entity.ProductStockStripe;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper // 标记这是一个 MyBatis Mapper 接口
@@ -16,10 +19,19 @@ public interface ProductMapper {
     // 根据ID查找商品
     Product selectProductById(Long id);
 
-    // 查询所有商品
+    // 根据一组ID一次查出多个商品（IN 查询），不存在的ID不会出现在结果中
+    List<Product> selectProductsByIds(@Param("ids") Collection<Long> ids);
+
+    // 查询所有商品（一次性加载全表，商品多时用下面的分页或流式查询）
     List<Product> selectAllProducts();
 
-    // 更新商品信息
+    // 按ID游标分页：返回 id > after 的前 limit 个商品，按ID升序
+    List<Product> selectProductsAfter(@Param("after") Long after, @Param("limit") int limit);
+
+    // 流式读取全部商品（按ID升序），需在事务中使用并在读完后关闭
+    Cursor<Product> streamAllProducts();
+
+    // 更新商品信息（不含库存），按 version 做乐观锁校验，返回 0 表示已被并发修改
     int updateProduct(Product product);
 
     // 根据ID删除商品
@@ -29,9 +41,40 @@ public interface ProductMapper {
     // @Param 用于在XML中引用参数名
     int updateProductStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
 
-    // 检查库存是否充足
+    // 条件扣减库存：库存不足时返回 0，成功返回 1
+    int decreaseStockIfAvailable(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    // 条件扣减库存并校验商品信息 version：库存不足或 version 不一致时返回 0
+    int decreaseStockIfCurrent(@Param("productId") Long productId, @Param("quantity") Integer quantity, @Param("version") Long version);
+
+    // 查询商品实际库存（包含热点商品分片中的库存）
     Integer checkProductStock(@Param("productId") Long productId);
 
+    // 锁定 products 行并返回其中的库存（不含分片）
+    Integer lockProductStock(@Param("productId") Long productId);
+
+    // 直接设置 products.stock
+    int setProductStock(@Param("productId") Long productId, @Param("stock") Integer stock);
+
+    // --- 热点商品库存分片 ---
+
+    // 在指定分片上条件扣减，分片库存不足时返回 0
+    int decreaseStripeIfAvailable(@Param("productId") Long productId, @Param("stripe") Integer stripe, @Param("quantity") Integer quantity);
+
+    // 在指定分片上条件扣减并校验商品信息 version
+    int decreaseStripeIfCurrent(@Param("productId") Long productId, @Param("stripe") Integer stripe, @Param("quantity") Integer quantity, @Param("version") Long version);
+
+    int increaseStripe(@Param("productId") Long productId, @Param("stripe") Integer stripe, @Param("quantity") Integer quantity);
+
+    // 按分片编号顺序锁定商品的所有分片
+    List<ProductStockStripe> selectStripesForUpdate(@Param("productId") Long productId);
+
+    List<Long> selectStripedProductIds();
+
+    int insertStripes(@Param("stripes") List<ProductStockStripe> stripes);
+
+    int deleteStripes(@Param("productId") Long productId);
+
     // 更多自定义查询，例如：根据分类查询商品
     List<Product> selectProductsByCategoryId(Long categoryId);
 }
@@ -0,0 +1,201 @@
+package com.example.orders.service;
+
+import com.example.orders.common.ContentionRetry;
+import com.example.orders.entity.ProductStockStripe;
+import com.example.orders.mapper.ProductMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 库存扣减与归还。
+ *
+ * <p>普通商品用一条条件 UPDATE（stock &gt;= ?）完成判断和扣减，不会超卖。
+ * 配置在 inventory.striped-products 中的热点商品，库存分散到 product_stock_stripes 的多行上：
+ * 扣减先随机选一个分片做条件扣减，分片不够时再按顺序锁住全部分片合并扣减，
+ * 大部分并发写入落在不同的行上，不会全部排队等同一把行锁。
+ *
+ * <p>所有公开方法各自开启事务，并在死锁/锁超时时由 {@link ContentionRetry} 带抖动重试。
+ * 需要加入调用方事务的场景（例如 OrderService 的批量下单）使用接收 ProductMapper 参数的方法。
+ */
+@Service
+public class InventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ContentionRetry contentionRetry;
+
+    // 开启库存分片的热点商品ID，例如 inventory.striped-products=1001,1002
+    private final Set<Long> stripedProducts;
+    private final int stripeCount;
+
+    public InventoryService(@Value("${inventory.striped-products:}") List<Long> stripedProducts,
+                            @Value("${inventory.stripe-count:8}") int stripeCount) {
+        this.stripedProducts = Collections.unmodifiableSet(new HashSet<>(stripedProducts));
+        this.stripeCount = Math.max(1, stripeCount);
+    }
+
+    public boolean isStriped(Long productId) {
+        return stripedProducts.contains(productId);
+    }
+
+    /**
+     * 随机选择一个分片，分散同一商品上的并发写入。
+     */
+    public int pickStripe() {
+        return ThreadLocalRandom.current().nextInt(stripeCount);
+    }
+
+    /**
+     * 扣减库存。
+     *
+     * @return 库存充足并扣减成功返回 true，库存不足或商品不存在返回 false
+     */
+    public boolean tryDecrease(Long productId, int quantity) {
+        return contentionRetry.inTransaction(status -> {
+            if (isStriped(productId)) {
+                if (productMapper.decreaseStripeIfAvailable(productId, pickStripe(), quantity) > 0) {
+                    return true;
+                }
+                return decreaseAcrossStripes(productMapper, productId, quantity);
+            }
+            return productMapper.decreaseStockIfAvailable(productId, quantity) > 0;
+        });
+    }
+
+    /**
+     * 归还（增加）库存。
+     *
+     * @return 商品存在返回 true
+     */
+    public boolean increase(Long productId, int quantity) {
+        return contentionRetry.inTransaction(status -> increase(productMapper, productId, quantity));
+    }
+
+    /**
+     * 归还（增加）库存，在调用方的事务中执行（例如取消订单）。
+     *
+     * @return 商品存在返回 true
+     */
+    public boolean increase(ProductMapper mapper, Long productId, int quantity) {
+        if (isStriped(productId)
+                && mapper.increaseStripe(productId, pickStripe(), quantity) > 0) {
+            return true;
+        }
+        return mapper.updateProductStock(productId, quantity) > 0;
+    }
+
+    /**
+     * 把商品库存设置为一个绝对值（后台修改商品时使用），在调用方的事务中执行。
+     * 分片商品的库存平均分配到各分片，products.stock 置 0。
+     */
+    public void setStock(ProductMapper mapper, Long productId, int stock) {
+        if (!isStriped(productId)) {
+            mapper.setProductStock(productId, stock);
+            return;
+        }
+        mapper.lockProductStock(productId);
+        mapper.selectStripesForUpdate(productId);
+        mapper.deleteStripes(productId);
+        mapper.insertStripes(distribute(productId, stock));
+        mapper.setProductStock(productId, 0);
+    }
+
+    /**
+     * 随机分片不够扣时的兜底：按分片顺序锁住全部分片，总量足够则依次从各分片扣减。
+     * 只依赖 SELECT ... FOR UPDATE 读到的值，不依赖 UPDATE 的返回值，因此在 BATCH 执行器中也能使用。
+     *
+     * @return 全部分片加起来仍不足时返回 false，不做任何修改
+     */
+    public boolean decreaseAcrossStripes(ProductMapper mapper, Long productId, int quantity) {
+        List<ProductStockStripe> stripes = mapper.selectStripesForUpdate(productId);
+        long total = 0;
+        for (ProductStockStripe stripe : stripes) {
+            total += stripe.getStock();
+        }
+        if (total < quantity) {
+            return false;
+        }
+        int remaining = quantity;
+        for (ProductStockStripe stripe : stripes) {
+            if (remaining == 0) {
+                break;
+            }
+            int take = Math.min(remaining, stripe.getStock());
+            if (take > 0) {
+                mapper.decreaseStripeIfAvailable(productId, stripe.getStripe(), take);
+                remaining -= take;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 启动时让分片与配置保持一致：新配置的热点商品把 products.stock 搬到分片中；
+     * 已从配置中移除的商品把分片库存合并回 products.stock 并删除分片。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileStripes() {
+        List<Long> existing = productMapper.selectStripedProductIds();
+        for (Long productId : stripedProducts) {
+            if (!existing.contains(productId)) {
+                contentionRetry.inTransaction(status -> {
+                    Integer stock = productMapper.lockProductStock(productId);
+                    if (stock == null) {
+                        logger.warn("配置了库存分片的商品不存在，ID: {}", productId);
+                        return null;
+                    }
+                    productMapper.insertStripes(distribute(productId, stock));
+                    productMapper.setProductStock(productId, 0);
+                    logger.info("商品 {} 开启库存分片，{} 个分片，库存 {}", productId, stripeCount, stock);
+                    return null;
+                });
+            }
+        }
+        for (Long productId : existing) {
+            if (!stripedProducts.contains(productId)) {
+                contentionRetry.inTransaction(status -> {
+                    Integer stock = productMapper.lockProductStock(productId);
+                    int stripedStock = 0;
+                    for (ProductStockStripe stripe : productMapper.selectStripesForUpdate(productId)) {
+                        stripedStock += stripe.getStock();
+                    }
+                    productMapper.deleteStripes(productId);
+                    if (stock != null) {
+                        productMapper.setProductStock(productId, stock + stripedStock);
+                    }
+                    logger.info("商品 {} 关闭库存分片，合并库存 {}", productId, stripedStock);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private List<ProductStockStripe> distribute(Long productId, int stock) {
+        List<ProductStockStripe> stripes = new ArrayList<>(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            ProductStockStripe stripe = new ProductStockStripe();
+            stripe.setProductId(productId);
+            stripe.setStripe(i);
+            // 余数分给前面的分片
+            stripe.setStock(stock / stripeCount + (i < stock % stripeCount ? 1 : 0));
+            stripes.add(stripe);
+        }
+        return stripes;
+    }
+}
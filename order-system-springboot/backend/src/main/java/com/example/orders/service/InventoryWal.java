@@ -0,0 +1,148 @@
+package com.example.orders.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 库存预留的预写日志（WAL），供 {@link StockReservationService} 使用。
+ *
+ * <p>日志按段（segment）存放在目录中，文件名为段号，例如 00000000000000000042.wal。
+ * 每条记录 16 字节：商品ID(8) + 库存变化量(4) + 前 12 字节的 CRC32(4)。
+ * 进程崩溃时最后一条记录可能只写了一半，读取时按长度和 CRC 丢弃。
+ *
+ * <p>append 可以被多个线程同时调用（FileChannel 在 APPEND 模式下会串行化写入）；
+ * rotate 与 append 之间的互斥由调用方负责。
+ */
+class InventoryWal implements Closeable {
+
+    static final int RECORD_SIZE = 16;
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    // 每次写入后是否 fsync：开启后断电也不丢，关闭时只保证进程崩溃不丢（数据已在操作系统页缓存中）
+    private final boolean forceOnAppend;
+
+    private final ThreadLocal<ByteBuffer> recordBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(RECORD_SIZE));
+    private final ThreadLocal<CRC32> crc = ThreadLocal.withInitial(CRC32::new);
+
+    private volatile FileChannel channel;
+    private long segmentId;
+
+    InventoryWal(Path directory, boolean forceOnAppend) throws IOException {
+        this.directory = directory;
+        this.forceOnAppend = forceOnAppend;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * 打开一个新的段开始写入。
+     */
+    void open(long firstSegmentId) throws IOException {
+        this.segmentId = firstSegmentId;
+        this.channel = openSegment(firstSegmentId);
+    }
+
+    void append(long productId, int delta) throws IOException {
+        ByteBuffer buffer = recordBuffer.get();
+        buffer.clear();
+        buffer.putLong(productId).putInt(delta);
+        CRC32 checksum = crc.get();
+        checksum.reset();
+        checksum.update(buffer.array(), 0, 12);
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+        FileChannel current = channel;
+        while (buffer.hasRemaining()) {
+            current.write(buffer);
+        }
+        if (forceOnAppend) {
+            current.force(false);
+        }
+    }
+
+    /**
+     * 封存当前段并切换到下一个段，返回被封存的段号。调用期间不能有并发的 append。
+     */
+    long rotate() throws IOException {
+        long sealed = segmentId;
+        FileChannel previous = channel;
+        previous.force(false);
+        channel = openSegment(sealed + 1);
+        segmentId = sealed + 1;
+        previous.close();
+        return sealed;
+    }
+
+    /**
+     * 目录中现有的段号，从小到大排列。
+     */
+    List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * 读取一个段，按商品汇总库存变化量。
+     */
+    Map<Long, Long> readDeltas(long segment) throws IOException {
+        Map<Long, Long> deltas = new HashMap<>();
+        byte[] bytes = Files.readAllBytes(segmentPath(segment));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 checksum = new CRC32();
+        while (buffer.remaining() >= RECORD_SIZE) {
+            int start = buffer.position();
+            long productId = buffer.getLong();
+            int delta = buffer.getInt();
+            int expected = buffer.getInt();
+            checksum.reset();
+            checksum.update(bytes, start, 12);
+            if ((int) checksum.getValue() != expected) {
+                // 写了一半的尾部记录，之后不会再有完整记录
+                break;
+            }
+            deltas.merge(productId, (long) delta, Long::sum);
+        }
+        return deltas;
+    }
+
+    void delete(long segment) throws IOException {
+        Files.deleteIfExists(segmentPath(segment));
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileChannel current = channel;
+        if (current != null) {
+            current.force(false);
+            current.close();
+        }
+    }
+
+    private FileChannel openSegment(long segment) throws IOException {
+        return FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SUFFIX));
+    }
+}
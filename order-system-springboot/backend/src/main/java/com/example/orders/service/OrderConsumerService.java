@@ -1,117 +1,170 @@
 package com.example.orders.service;
 
 import com.example.orders.common.OrderStatus; // 确保导入 OrderStatus 枚举
+import com.example.orders.config.RabbitMQConfig;
 import com.example.orders.dto.OrderDTO;
 import com.example.orders.dto.OrderItemDTO;
 import com.example.orders.entity.Order;
-import com.example.orders.repository.OrderRepository;
+import com.example.orders.mapper.OrderMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID; // Used for generating orderId
 
+/**
+ * 消费 order_queue 中的订单消息并写入 orders 表。
+ *
+ * <p>监听容器按批投递（见 {@link RabbitMQConfig#orderBatchListenerFactory}）：一批消息的所有订单明细行
+ * 在一个事务中用多行 INSERT 写入，方法返回后整批 ack。批量写入失败时逐个订单重试，
+ * 只丢弃确实写不进去的订单，不让一条坏消息拖着整批反复重新入队。
+ */
 @Service
 public class OrderConsumerService {
 
-    private final OrderRepository orderRepository;
+    private static final Logger logger = LoggerFactory.getLogger(OrderConsumerService.class);
 
-    public OrderConsumerService(OrderRepository orderRepository) {
-        this.orderRepository = orderRepository;
+    // 单条多行 INSERT 最多包含的订单明细行数
+    private static final int INSERT_CHUNK_SIZE = 500;
+
+    private final OrderMapper orderMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderConsumerService(OrderMapper orderMapper, PlatformTransactionManager transactionManager) {
+        this.orderMapper = orderMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @RabbitListener(queues = "order_queue")
-    public void processOrder(OrderDTO orderDTO) {
-        System.out.println("从 RabbitMQ 接收到订单消息: " + orderDTO.getOrderId());
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME, containerFactory = RabbitMQConfig.ORDER_BATCH_LISTENER_FACTORY)
+    public void processOrders(List<OrderDTO> orders) {
+        List<Order> lines = new ArrayList<>();
+        for (OrderDTO orderDTO : orders) {
+            lines.addAll(toOrderLines(orderDTO));
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
         try {
-            // Generate or retrieve the unique business orderId (this ID will be used for all order items)
-            String commonOrderId = orderDTO.getOrderId();
-            if (commonOrderId == null || commonOrderId.isEmpty()) {
-                commonOrderId = UUID.randomUUID().toString();
-                System.out.println("为订单生成新的业务ID: " + commonOrderId);
+            insertInTransaction(lines);
+            logger.debug("已保存 {} 个订单，共 {} 个订单项", orders.size(), lines.size());
+        } catch (DataAccessException e) {
+            logger.warn("批量保存 {} 个订单失败，改为逐个保存: {}", orders.size(), e.getMessage());
+            saveOneByOne(orders);
+        }
+    }
+
+    private void saveOneByOne(List<OrderDTO> orders) {
+        for (OrderDTO orderDTO : orders) {
+            List<Order> lines = toOrderLines(orderDTO);
+            if (lines.isEmpty()) {
+                continue;
+            }
+            try {
+                insertInTransaction(lines);
+            } catch (DataAccessException e) {
+                logger.error("处理订单 {} 失败，已丢弃: {}", lines.get(0).getOrderId(), e.getMessage(), e);
             }
+        }
+    }
 
-            // Check if OrderDTO contains order items
-            if (orderDTO.getItems() != null && !orderDTO.getItems().isEmpty()) {
-                for (OrderItemDTO itemDTO : orderDTO.getItems()) {
-                    Order orderEntity = new Order(); // Create a new Order entity for each OrderItemDTO
-
-                    // --- 设置订单的公共属性（类型转换） ---
-
-                    orderEntity.setOrderId(commonOrderId); // String to String
-
-                    // OrderDTO.userId (Long) -> Order.userId (String)
-                    if (orderDTO.getUserId() != null) {
-                        orderEntity.setUserId(orderDTO.getUserId());
-                    } else {
-                        orderEntity.setUserId(null); // 或者设置一个默认值，取决于业务需求
-                    }
-
-
-                    // OrderDTO.status (String) -> Order.status (OrderStatus enum)
-                    if (orderDTO.getStatus() != null && !orderDTO.getStatus().isEmpty()) {
-                        try {
-                            orderEntity.setStatus(OrderStatus.valueOf(orderDTO.getStatus().toUpperCase()));
-                        } catch (IllegalArgumentException e) {
-                            System.err.println("警告: 无法将状态字符串 '" + orderDTO.getStatus() + "' 转换为 OrderStatus 枚举。订单ID: " + commonOrderId);
-                            orderEntity.setStatus(OrderStatus.UNKNOWN); // 设置一个默认的未知状态，或抛出异常
-                        }
-                    } else {
-                        orderEntity.setStatus(OrderStatus.UNKNOWN); // 或者设置默认状态
-                    }
-
-
-                    orderEntity.setCreateTime(LocalDateTime.now());
-                    orderEntity.setUpdateTime(LocalDateTime.now());
-
-                    // --- 设置订单项的特定属性（类型转换） ---
-
-                    // OrderItemDTO.productId (Long) -> Order.productId (String)
-                    if (itemDTO.getProductId() != null) {
-                        orderEntity.setProductId(String.valueOf(itemDTO.getProductId()));
-                    } else {
-                        orderEntity.setProductId(null); // 或者设置默认值
-                    }
-
-                    orderEntity.setQuantity(itemDTO.getQuantity()); // Integer to Integer
-
-                    // OrderItemDTO.unitPrice (String) -> Order.unitPrice (BigDecimal)
-                    if (itemDTO.getUnitPrice() != null && !itemDTO.getUnitPrice().isEmpty()) {
-                        try {
-                            orderEntity.setUnitPrice(new BigDecimal(itemDTO.getUnitPrice()));
-                        } catch (NumberFormatException e) {
-                            System.err.println("警告: 订单项ProductId=" + itemDTO.getProductId() + "的单价字符串 '" + itemDTO.getUnitPrice() + "' 无法转换为 BigDecimal。设为0。");
-                            orderEntity.setUnitPrice(BigDecimal.ZERO); // 转换失败设为0
-                        }
-                    } else {
-                        orderEntity.setUnitPrice(BigDecimal.ZERO); // 为空设为0
-                    }
-
-                    // --- 计算并设置订单项的总金额 ---
-                    // 这里仍然使用 OrderEntity 的 unitPrice 和 quantity 来计算 totalAmount，
-                    // 避免 OrderItemDTO 的 totalPrice 字段可能存在的冗余或不一致。
-                    if (orderEntity.getUnitPrice() != null && orderEntity.getQuantity() != null) {
-                        BigDecimal itemTotal = orderEntity.getUnitPrice().multiply(BigDecimal.valueOf(orderEntity.getQuantity()));
-                        orderEntity.setTotalAmount(itemTotal);
-                    } else {
-                        orderEntity.setTotalAmount(BigDecimal.ZERO);
-                        System.err.println("警告: 订单项ProductId=" + orderEntity.getProductId() + "的单价或数量为空，总金额设为0。");
-                    }
-
-                    // 保存这个订单项实体到数据库
-                    orderRepository.save(orderEntity);
-                    System.out.println("已保存订单项: OrderID=" + orderEntity.getOrderId() + ", ProductID=" + orderEntity.getProductId() + ", Quantity=" + orderEntity.getQuantity());
-                }
-                System.out.println("订单 " + commonOrderId + " (共 " + orderDTO.getItems().size() + " 个订单项) 已成功保存到数据库。");
+    private void insertInTransaction(List<Order> lines) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < lines.size(); from += INSERT_CHUNK_SIZE) {
+                orderMapper.insertOrders(lines.subList(from, Math.min(from + INSERT_CHUNK_SIZE, lines.size())));
+            }
+        });
+    }
+
+    /**
+     * 把一个订单消息转换为 orders 表的明细行（每个商品一行）。没有订单项时返回空列表。
+     * orders 表上有 (order_id, product_id) 唯一键，同一商品出现多次时合并成一行：数量和金额相加，单价取第一次出现的。
+     */
+    private List<Order> toOrderLines(OrderDTO orderDTO) {
+        List<Order> lines = new ArrayList<>();
+        Map<String, Order> linesByProduct = new HashMap<>();
+        // Generate or retrieve the unique business orderId (this ID will be used for all order items)
+        String commonOrderId = orderDTO.getOrderId();
+        if (commonOrderId == null || commonOrderId.isEmpty()) {
+            commonOrderId = UUID.randomUUID().toString();
+            logger.debug("为订单生成新的业务ID: {}", commonOrderId);
+        }
 
+        // Check if OrderDTO contains order items
+        if (orderDTO.getItems() == null || orderDTO.getItems().isEmpty()) {
+            logger.info("订单 {} 没有包含有效的订单项，无需保存到数据库。", commonOrderId);
+            return lines;
+        }
+
+        // OrderDTO.status (String) -> Order.status (OrderStatus enum)
+        OrderStatus status = OrderStatus.UNKNOWN; // 或者设置默认状态
+        if (orderDTO.getStatus() != null && !orderDTO.getStatus().isEmpty()) {
+            try {
+                status = OrderStatus.valueOf(orderDTO.getStatus().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("无法将状态字符串 '{}' 转换为 OrderStatus 枚举。订单ID: {}", orderDTO.getStatus(), commonOrderId);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        for (OrderItemDTO itemDTO : orderDTO.getItems()) {
+            Order orderEntity = new Order(); // Create a new Order entity for each OrderItemDTO
+
+            // --- 设置订单的公共属性 ---
+            orderEntity.setOrderId(commonOrderId);
+            orderEntity.setUserId(orderDTO.getUserId());
+            orderEntity.setStatus(status);
+            orderEntity.setCreateTime(now);
+            orderEntity.setUpdateTime(now);
+
+            // --- 设置订单项的特定属性（类型转换） ---
+
+            // OrderItemDTO.productId (Long) -> Order.productId (String)
+            orderEntity.setProductId(itemDTO.getProductId() != null ? String.valueOf(itemDTO.getProductId()) : null);
+            orderEntity.setQuantity(itemDTO.getQuantity()); // Integer to Integer
+
+            // OrderItemDTO.unitPrice (String) -> Order.unitPrice (BigDecimal)
+            if (itemDTO.getUnitPrice() != null && !itemDTO.getUnitPrice().isEmpty()) {
+                try {
+                    orderEntity.setUnitPrice(new BigDecimal(itemDTO.getUnitPrice()));
+                } catch (NumberFormatException e) {
+                    logger.warn("订单项ProductId={}的单价字符串 '{}' 无法转换为 BigDecimal。设为0。", itemDTO.getProductId(), itemDTO.getUnitPrice());
+                    orderEntity.setUnitPrice(BigDecimal.ZERO); // 转换失败设为0
+                }
             } else {
-                System.out.println("订单 " + commonOrderId + " 没有包含有效的订单项，无需保存到数据库。");
+                orderEntity.setUnitPrice(BigDecimal.ZERO); // 为空设为0
             }
 
-        } catch (Exception e) {
-            System.err.println("处理订单 " + orderDTO.getOrderId() + " 失败，错误: " + e.getMessage());
-            e.printStackTrace(); // 打印完整堆栈跟踪，便于调试
+            // --- 计算并设置订单项的总金额 ---
+            // 这里仍然使用 OrderEntity 的 unitPrice 和 quantity 来计算 totalAmount，
+            // 避免 OrderItemDTO 的 totalPrice 字段可能存在的冗余或不一致。
+            if (orderEntity.getQuantity() != null) {
+                orderEntity.setTotalAmount(orderEntity.getUnitPrice().multiply(BigDecimal.valueOf(orderEntity.getQuantity())));
+            } else {
+                orderEntity.setTotalAmount(BigDecimal.ZERO);
+                logger.warn("订单项ProductId={}的数量为空，总金额设为0。", orderEntity.getProductId());
+            }
+            Order existing = orderEntity.getProductId() != null ? linesByProduct.get(orderEntity.getProductId()) : null;
+            if (existing != null) {
+                existing.setQuantity((existing.getQuantity() != null ? existing.getQuantity() : 0)
+                        + (orderEntity.getQuantity() != null ? orderEntity.getQuantity() : 0));
+                existing.setTotalAmount(existing.getTotalAmount().add(orderEntity.getTotalAmount()));
+                continue;
+            }
+            if (orderEntity.getProductId() != null) {
+                linesByProduct.put(orderEntity.getProductId(), orderEntity);
+            }
+            lines.add(orderEntity);
         }
+        return lines;
     }
 }
@@ -1,32 +1,186 @@
 package com.example.orders.service;
 
 import com.example.orders.dto.OrderDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步发布订单消息，是向 order_queue 发送订单的唯一入口。消息体由 {@link OrderMessageSerializer} 编码。
+ *
+ * <p>请求线程只把消息放进有界的环形缓冲区（ArrayBlockingQueue）并拿到一个 future，立即返回；
+ * 发布线程从缓冲区批量取出消息，在同一个 channel 上连续发布。每条消息带 CorrelationData，
+ * broker 的 publisher confirm 到达后完成对应的 future：ack 正常完成，nack 或消息无法路由（被退回）异常完成。
+ * 缓冲区满时直接拒绝，而不是让请求线程阻塞等待。
+ *
+ * <p>需要 spring.rabbitmq.publisher-confirm-type=correlated、publisher-returns=true 和 template.mandatory=true
+ * （消息无法路由时由 broker 退回，confirm 之前退回的消息会放到 CorrelationData 上）。
+ */
 @Service
 public class OrderProducerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderProducerService.class);
+
+    // 定义常量以避免硬编码和潜在的拼写错误
+    // 确保这些常量的值与 RabbitMQConfig 中定义的完全一致
+    public static final String ORDER_EXCHANGE_NAME = "order.direct.exchange"; // 你的交换机名称
+    public static final String ORDER_ROUTING_KEY = "order.create"; // 你的路由键
+
     private final RabbitTemplate rabbitTemplate;
-    
+    private final OrderMessageSerializer serializer;
+    private final BlockingQueue<PendingPublish> buffer;
+    private final int batchSize;
+
+    private volatile boolean running;
+    private Thread publisherThread;
+
     // 注入 RabbitTemplate
     @Autowired
-    public OrderProducerService(RabbitTemplate rabbitTemplate) {
+    public OrderProducerService(RabbitTemplate rabbitTemplate,
+                                OrderMessageSerializer serializer,
+                                @Value("${order.publisher.buffer-capacity:10000}") int bufferCapacity,
+                                @Value("${order.publisher.batch-size:100}") int batchSize) {
         this.rabbitTemplate = rabbitTemplate;
+        this.serializer = serializer;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = Math.max(1, batchSize);
     }
-	
-    // 定义常量以避免硬编码和潜在的拼写错误
-    // 确保这些常量的值与 RabbitMQConfig 中定义的完全一致
-    public static final String ORDER_EXCHANGE_NAME = "order.direct.exchange"; // 你的交换机名称
-    public static final String ORDER_ROUTING_KEY = "order.create"; // 你的路由键
 
-    // 明确指定要发送到的交换机和路由键。
+    @PostConstruct
+    void start() {
+        running = true;
+        publisherThread = new Thread(this::publishLoop, "order-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // 停止接收新消息，已在缓冲区中的消息发布完再退出
+        running = false;
+        publisherThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * 把订单消息放入发布缓冲区。
+     *
+     * @return broker 确认收到消息后完成的 future；被 nack、无法路由或发布失败时异常完成
+     * @throws RejectedExecutionException 缓冲区已满或服务正在停止
+     * @throws IllegalArgumentException 订单无法序列化
+     */
+    public CompletableFuture<Void> publish(OrderDTO orderDTO) {
+        // 在调用方线程中编码，序列化错误直接抛给调用方，发布线程只做网络 I/O
+        String correlationId = UUID.randomUUID().toString();
+        PendingPublish pending = new PendingPublish(serializer.toMessage(orderDTO, correlationId), correlationId);
+        if (!running || !buffer.offer(pending)) {
+            throw new RejectedExecutionException("订单发布缓冲区已满，请稍后再试");
+        }
+        return pending.confirmed;
+    }
+
+    /**
+     * 发布后不等待确认；发布失败只记录日志。
+     */
     public void sendOrderToQueue(OrderDTO orderDTO) {
-        // "order.direct.exchange" 是交换机名称
-        // "order.direct.routingkey" 是路由键
-	System.out.println("DEBUG: 准备发送订单消息到 Exchange: " + ORDER_EXCHANGE_NAME + ", Routing Key: " + ORDER_ROUTING_KEY + ", DTO: " + orderDTO);
-        rabbitTemplate.convertAndSend(ORDER_EXCHANGE_NAME, ORDER_ROUTING_KEY, orderDTO);
-        System.out.println("订单消息已发送到 RabbitMQ: " + orderDTO.getOrderId());
+        publish(orderDTO).whenComplete((ignored, error) -> {
+            if (error != null) {
+                logger.error("订单消息发布失败，用户ID: {}: {}", orderDTO.getUserId(), error.getMessage());
+            }
+        });
+    }
+
+    private void publishLoop() {
+        List<PendingPublish> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                PendingPublish first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                publishBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("发布订单消息时出现未预期的错误: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        // 被中断退出时，剩下的消息不会再发布
+        PendingPublish leftover;
+        while ((leftover = buffer.poll()) != null) {
+            leftover.confirmed.completeExceptionally(new RejectedExecutionException("订单发布服务已停止"));
+        }
+    }
+
+    /**
+     * 在同一个 channel 上连续发布一批消息，confirm 异步到达。
+     */
+    private void publishBatch(List<PendingPublish> batch) {
+        int[] published = {0};
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingPublish pending : batch) {
+                    // 每条消息带唯一的 correlation_id，Flink 的 RMQSource 在 checkpoint 模式下据此对重投递的消息去重；
+                    // 同一个ID也用来关联 publisher confirm。消息已编码好，不再经过 MessageConverter
+                    operations.send(ORDER_EXCHANGE_NAME, ORDER_ROUTING_KEY, pending.message, pending.correlation);
+                    pending.bindConfirm();
+                    published[0]++;
+                }
+                return null;
+            });
+            logger.debug("已发布 {} 条订单消息", batch.size());
+        } catch (AmqpException e) {
+            logger.error("发布订单消息失败，{} 条未发出: {}", batch.size() - published[0], e.getMessage());
+            for (int i = published[0]; i < batch.size(); i++) {
+                batch.get(i).confirmed.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class PendingPublish {
+        final Message message;
+        final CorrelationData correlation;
+        final CompletableFuture<Void> confirmed = new CompletableFuture<>();
+
+        PendingPublish(Message message, String correlationId) {
+            this.message = message;
+            this.correlation = new CorrelationData(correlationId);
+        }
+
+        // 消息发出后，把 broker 的 confirm 转换为 future 的结果
+        void bindConfirm() {
+            correlation.getFuture().addCallback(confirm -> {
+                if (confirm == null || !confirm.isAck()) {
+                    String reason = confirm != null ? confirm.getReason() : null;
+                    confirmed.completeExceptionally(new AmqpException("broker 拒绝了订单消息: " + reason));
+                } else if (correlation.getReturned() != null) {
+                    confirmed.completeExceptionally(new AmqpException("订单消息无法路由到队列: "
+                            + correlation.getReturned().getReplyText()));
+                } else {
+                    confirmed.complete(null);
+                }
+            }, confirmed::completeExceptionally);
+        }
     }
 }
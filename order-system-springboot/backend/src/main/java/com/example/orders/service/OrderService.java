@@ -2,25 +2,47 @@ package com.example.orders.service;
 
 import com.example.orders.dto.OrderDetailDTO;
 import com.example.orders.dto.OrderItemDTO;
+import com.example.orders.common.ContentionRetry;
+import com.example.orders.common.JsonStreaming;
 import com.example.orders.common.OrderStatus;
 import com.example.orders.dto.OrderDTO;
 import com.example.orders.dto.OrderItemDetailDTO;
+import com.example.orders.dto.OrderSummaryDTO;
+import com.example.orders.dto.PageDTO;
 import com.example.orders.entity.Order; // 这是扁平化的Order Entity
 import com.example.orders.entity.Product; // 用于查询商品信息
 import com.example.orders.mapper.OrderMapper;
 import com.example.orders.mapper.ProductMapper; // 用于商品库存操作
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID; // 用于生成订单业务ID
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,10 +50,35 @@ public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    // 单条多行 INSERT 最多包含的订单明细行数
+    private static final int INSERT_CHUNK_SIZE = 500;
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
     private ProductMapper productMapper; // 用于检查和扣减库存
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private ContentionRetry contentionRetry;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // BATCH 执行器的 SqlSession，参与 Spring 管理的事务。
+    // 不注册为 Bean：否则 MyBatis 自动配置会让所有 Mapper 都改用 BATCH 执行器。
+    // 同一个事务中不能混用执行器类型，createOrder 内的所有 Mapper 调用都要通过它。
+    private SqlSessionTemplate batchSqlSession;
+
+    @PostConstruct
+    void initBatchSqlSession() {
+        batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+    }
 
     /**
      * 创建订单。
@@ -41,8 +88,47 @@ public class OrderService {
      * @param orderDTO 包含订单信息的DTO，其中items是商品列表
      * @return 创建成功的订单业务ID
      */
-    @Transactional // 确保订单创建和库存扣减的原子性
     public String createOrder(OrderDTO orderDTO) {
+        // 开启内存预留的热点商品先在内存中扣减，事务失败时归还。
+        // 预留在事务提交前就写入 WAL，此处崩溃会少掉这部分库存（见 StockReservationService 的类注释）
+        Map<Long, Integer> reserved = reserveManagedItems(orderDTO);
+        try {
+            // 订单创建和库存扣减在同一个事务中；死锁或锁超时时整个事务回滚后带抖动重试
+            return contentionRetry.inTransaction(status -> doCreateOrder(orderDTO, reserved.keySet()));
+        } catch (RuntimeException e) {
+            reserved.forEach(stockReservationService::release);
+            throw e;
+        }
+    }
+
+    /**
+     * 在内存中预留订单里热点商品的库存。任何一个商品不足时归还已预留的部分并失败。
+     *
+     * @return 已预留的商品ID和数量
+     */
+    private Map<Long, Integer> reserveManagedItems(OrderDTO orderDTO) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        if (orderDTO.getItems() != null) {
+            for (OrderItemDTO itemDTO : orderDTO.getItems()) {
+                Long productId = Long.valueOf(itemDTO.getProductId());
+                // 数量不合法的商品留给 doCreateOrder 统一校验
+                if (stockReservationService.isManaged(productId) && itemDTO.getQuantity() > 0) {
+                    quantities.merge(productId, itemDTO.getQuantity(), Integer::sum);
+                }
+            }
+        }
+        Map<Long, Integer> reserved = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (!stockReservationService.tryReserve(entry.getKey(), entry.getValue())) {
+                reserved.forEach(stockReservationService::release);
+                throw new RuntimeException("商品 (ID: " + entry.getKey() + ") 库存不足，请重新下单。");
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+        return reserved;
+    }
+
+    private String doCreateOrder(OrderDTO orderDTO, Set<Long> reservedProducts) {
         // 1. 生成唯一的订单业务ID
         String orderBusinessId = UUID.randomUUID().toString();
         orderDTO.setOrderId(orderBusinessId); // 设置到DTO中，方便后续处理
@@ -52,17 +138,30 @@ public class OrderService {
             throw new IllegalArgumentException("订单商品列表不能为空。");
         }
 
+        // 所有写操作都走 BATCH 执行器：库存更新和订单明细插入在提交前合并发送
+        ProductMapper batchProductMapper = batchSqlSession.getMapper(ProductMapper.class);
+        OrderMapper batchOrderMapper = batchSqlSession.getMapper(OrderMapper.class);
+
+        // 购物车中的商品优先取自缓存，未命中的用一次 IN 查询取出，而不是每个商品查一次
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (OrderItemDTO itemDTO : orderDTO.getItems()) {
+            productIds.add(Long.valueOf(itemDTO.getProductId()));
+        }
+        Map<Long, Product> productsById = productCache.getAll(batchProductMapper, productIds);
+
         // 计算总金额并进行库存检查和预扣减
         BigDecimal totalOrderAmount = BigDecimal.ZERO;
-        List<Order> ordersToInsert = new ArrayList<>();
+        // 同一商品在购物车中出现多次时合并成一行（数量、金额相加）：orders 表上有 (order_id, product_id) 唯一键
+        Map<Long, Order> linesByProduct = new LinkedHashMap<>();
+        // 同一商品在购物车中出现多次时合并扣减数量；按商品ID排序扣减，
+        // 并发的订单以相同顺序锁定商品行，不会因加锁顺序相反而死锁
+        Map<Long, Integer> quantityByProduct = new TreeMap<>();
+        // 同一订单的所有明细行使用同一个时间（订单摘要分页按各行的 MIN(create_time)，不依赖这一点）
+        LocalDateTime now = LocalDateTime.now();
 	
 	// orderDTO.getItems() 返回的是List<OrderItemDTO> 而不是List<OrderItemDetailDTO>
         for (OrderItemDTO itemDTO : orderDTO.getItems()) {
-            // 获取商品信息，检查是否存在和价格
-            // 不需要创建: OrderItemDetailDTO detailDTO = new OrderItemDetailDTO(); // 创建新的 DetailDTO
-	    //     detailDTO.setProductId(itemDTO.getProductId());
-	    //     detailDTO.setQuantity(itemDTO.getQuantity());
-	    Product product = productMapper.selectProductById(Long.valueOf(itemDTO.getProductId()));
+	    Product product = productsById.get(Long.valueOf(itemDTO.getProductId()));
             if (product == null) {
                 throw new IllegalArgumentException("商品不存在，ID: " + itemDTO.getProductId());
             }
@@ -86,23 +185,23 @@ public class OrderService {
                  // throw new IllegalArgumentException("商品价格不匹配: " + itemDTO.getProductId());
             }
 
-            // 尝试扣减库存
-            // 注意：这里需要更高级的并发控制，比如数据库行锁，或者在 ProductService.decreaseStock 内部实现乐观锁/悲观锁
-            int remainingStock = productMapper.updateProductStock(product.getId(), -itemDTO.getQuantity());
-            if (remainingStock < 0) { // updateProductStock 返回的是 affected rows，不是剩余库存
-                // 重新查询库存以判断是否不足
-                Integer currentStock = productMapper.checkProductStock(product.getId());
-                if (currentStock == null || currentStock < itemDTO.getQuantity()) {
-                    throw new RuntimeException("商品 " + product.getName() + " (ID: " + product.getId() + ") 库存不足，请重新下单。");
-                }
-                // 如果是乐观锁，这里可能捕获到 StaleObjectStateException 或类似的异常
-                // 暂时用简单的判断，实际在高并发下需要更严格的锁
+            // 已在内存中预留的商品不再扣减数据库库存
+            if (!reservedProducts.contains(product.getId())) {
+                quantityByProduct.merge(product.getId(), itemDTO.getQuantity(), Integer::sum);
             }
 
             // 计算当前订单项的总金额
             BigDecimal itemTotalAmount = itemUnitPrice.multiply(new BigDecimal(itemDTO.getQuantity()));
             totalOrderAmount = totalOrderAmount.add(itemTotalAmount);
 
+            // 单价统一取自数据库，合并后仍满足 单价 * 数量 = 金额
+            Order existingLine = linesByProduct.get(product.getId());
+            if (existingLine != null) {
+                existingLine.setQuantity(existingLine.getQuantity() + itemDTO.getQuantity());
+                existingLine.setTotalAmount(existingLine.getTotalAmount().add(itemTotalAmount));
+                continue;
+            }
+
             // 构建 Order 实体（代表订单中的一个商品记录）
             Order orderLine = new Order();
             orderLine.setOrderId(orderBusinessId); // 关联同一个订单业务ID
@@ -110,9 +209,7 @@ public class OrderService {
             orderLine.setProductId(String.valueOf(itemDTO.getProductId()));
             orderLine.setQuantity(itemDTO.getQuantity());
             orderLine.setUnitPrice(itemUnitPrice);
-            // orderLine.setTotalAmount(itemTotalAmount);
-	    orderLine.setTotalAmount(itemUnitPrice.multiply(new BigDecimal(itemDTO.getQuantity())));
-            // orderLine.setStatus("NEW"); // 新订单状态，等待支付等
+            orderLine.setTotalAmount(itemTotalAmount);
 	    // 将 DTO 中的 String status 转换为 OrderStatus 枚举
     	    if (orderDTO.getStatus() != null && !orderDTO.getStatus().trim().isEmpty()) {
          	orderLine.setStatus(OrderStatus.fromString(orderDTO.getStatus()));		
@@ -121,15 +218,33 @@ public class OrderService {
        		orderLine.setStatus(OrderStatus.PENDING);
 	    }            
 
-	    orderLine.setCreateTime(LocalDateTime.now());
-            orderLine.setUpdateTime(LocalDateTime.now());
-            ordersToInsert.add(orderLine);
+	    orderLine.setCreateTime(now);
+            orderLine.setUpdateTime(now);
+            linesByProduct.put(product.getId(), orderLine);
+        }
+        List<Order> ordersToInsert = new ArrayList<>(linesByProduct.values());
+
+        // 3. 扣减库存：每个商品一条条件 UPDATE（stock >= 数量），在 BATCH 执行器里合并成一次 JDBC 批量发送。
+        // 热点商品随机落到一个库存分片上。UPDATE 同时校验商品信息的 version，保证上面用到的价格不是过期的缓存
+        for (Map.Entry<Long, Integer> entry : quantityByProduct.entrySet()) {
+            Long version = productsById.get(entry.getKey()).getVersion();
+            if (inventoryService.isStriped(entry.getKey())) {
+                batchProductMapper.decreaseStripeIfCurrent(entry.getKey(), inventoryService.pickStripe(), entry.getValue(), version);
+            } else {
+                batchProductMapper.decreaseStockIfCurrent(entry.getKey(), entry.getValue(), version);
+            }
         }
+        // 刷出库存更新的批次，逐条检查影响行数（BATCH 模式下 mapper 方法的返回值不是真实的行数）
+        List<BatchResult> stockResults = batchSqlSession.flushStatements();
+        // 缓存中的商品行不因库存变化失效：库存不从缓存读取，价格等信息由上面的 version 校验保证
+        checkStockUpdates(stockResults, quantityByProduct, batchProductMapper, productsById);
 
-        // 3. 批量插入订单明细记录 (MyBatis 通常不直接支持批量插入，需要循环或使用 foreach 标签)
-        for (Order orderLine : ordersToInsert) {
-            orderMapper.insertOrder(orderLine);
+        // 4. 多行插入订单明细，超长购物车按块拆分，避免单条 SQL 超过 max_allowed_packet
+        for (int from = 0; from < ordersToInsert.size(); from += INSERT_CHUNK_SIZE) {
+            int to = Math.min(from + INSERT_CHUNK_SIZE, ordersToInsert.size());
+            batchOrderMapper.insertOrders(ordersToInsert.subList(from, to));
         }
+        batchSqlSession.flushStatements();
 
         // logger.info("订单 (业务ID: {}) 已创建，包含 {} 个商品项，总金额: {}",
            //         orderBusinessId, orderDTO.getItems().size(), totalOrderAmount);
@@ -141,6 +256,37 @@ public class OrderService {
         return orderBusinessId; // 返回订单业务ID
     }
 
+    /**
+     * 检查批量库存扣减的结果。updateCounts 按顺序与 quantityByProduct 中的商品一一对应。
+     * 影响行数为 0 时先重新读取商品：version 变了说明下单用的商品信息已过期，让缓存失效后整个事务重试；
+     * 否则是库存不足：普通商品直接失败（事务回滚，已扣减的库存一并恢复），热点商品再尝试合并所有分片扣减。
+     */
+    private void checkStockUpdates(List<BatchResult> results, Map<Long, Integer> quantityByProduct,
+                                   ProductMapper batchProductMapper, Map<Long, Product> productsById) {
+        List<Long> productIds = new ArrayList<>(quantityByProduct.keySet());
+        int index = 0;
+        for (BatchResult result : results) {
+            for (int count : result.getUpdateCounts()) {
+                // 驱动对批量语句可能只返回 SUCCESS_NO_INFO（-2），这种情况视为成功
+                if (count == 0) {
+                    Long productId = productIds.get(index);
+                    int quantity = quantityByProduct.get(productId);
+                    Product current = batchProductMapper.selectProductById(productId);
+                    if (current == null || !current.getVersion().equals(productsById.get(productId).getVersion())) {
+                        productCache.invalidate(productId);
+                        throw new OptimisticLockingFailureException("商品 (ID: " + productId + ") 信息已更新，重新下单");
+                    }
+                    if (!inventoryService.isStriped(productId)
+                            || !inventoryService.decreaseAcrossStripes(batchProductMapper, productId, quantity)) {
+                        Product product = productsById.get(productId);
+                        throw new RuntimeException("商品 " + product.getName() + " (ID: " + productId + ") 库存不足，请重新下单。");
+                    }
+                }
+                index++;
+            }
+        }
+    }
+
     /**
      * 根据订单业务ID获取订单详情。
      * 由于一个订单对应多条orders表记录，这里会聚合为一个 OrderDTO。
@@ -167,8 +313,37 @@ public class OrderService {
         return orderDTO;
     }
 
+    /**
+     * 按自增ID游标分页获取订单明细行。
+     *
+     * @param after 上一页最后一行的ID，第一页传 0
+     * @param limit 每页行数，超过上限会被截断
+     * @return 一页订单明细行
+     */
+    public PageDTO<Order> getOrderLinesPage(long after, Integer limit) {
+        int pageSize = PageDTO.normalizeLimit(limit);
+        List<Order> rows = orderMapper.selectOrdersAfter(after, pageSize + 1);
+        return PageDTO.fromRows(rows, pageSize, Order::getId, Function.identity());
+    }
+
+    /**
+     * 以 JSON 数组的形式导出全部订单明细行，边从数据库流式读取边写出，不在内存中保存整个列表。
+     *
+     * @param out 响应输出流（不会被关闭）
+     * @return 导出的行数
+     */
+    @Transactional(readOnly = true)
+    public long exportOrderLines(OutputStream out) throws IOException {
+        try (Cursor<Order> cursor = orderMapper.streamAllOrders()) {
+            long count = JsonStreaming.writeArray(objectMapper, out, cursor, Function.identity());
+            logger.info("已导出 {} 条订单明细行", count);
+            return count;
+        }
+    }
+
     /**
      * 根据用户ID获取所有订单（每个订单聚合为一个 OrderDTO）。
+     * 一次加载用户的全部明细行，订单多的用户请用分页的 {@link #getOrderSummariesByUserId}。
      *
      * @param userId 用户ID
      * @return 用户所有订单的列表
@@ -218,6 +393,75 @@ public class OrderService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 分页获取用户的订单摘要，按下单时间倒序。
+     * 行数、金额等在 SQL 中按 order_id 聚合，每页只返回 limit 个订单；
+     * 需要明细时只为本页的订单用一次 IN 查询加载。
+     *
+     * @param userId 用户ID
+     * @param cursor 上一页返回的 nextCursor，第一页传空
+     * @param limit 每页订单数，超过上限会被截断
+     * @param includeItems 是否加载订单明细
+     * @return 一页订单摘要
+     */
+    public PageDTO<OrderSummaryDTO> getOrderSummariesByUserId(String userId, String cursor, Integer limit, boolean includeItems) {
+        int pageSize = PageDTO.normalizeLimit(limit);
+        LocalDateTime afterTime = null;
+        String afterOrderId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeSummaryCursor(cursor);
+            afterTime = LocalDateTime.parse(position[0]);
+            afterOrderId = position[1];
+        }
+
+        List<OrderSummaryDTO> rows = orderMapper.selectOrderSummariesByUserId(userId, afterTime, afterOrderId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderSummaryDTO> summaries = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        if (includeItems && !summaries.isEmpty()) {
+            attachItems(summaries);
+        }
+
+        PageDTO<OrderSummaryDTO> page = new PageDTO<>(summaries, pageSize, null, hasMore);
+        if (!summaries.isEmpty()) {
+            OrderSummaryDTO last = summaries.get(summaries.size() - 1);
+            page.setNextCursor(encodeSummaryCursor(last.getCreatedAt(), last.getOrderId()));
+        }
+        return page;
+    }
+
+    // 一次查出本页所有订单的明细行，按 order_id 挂到对应的摘要上
+    private void attachItems(List<OrderSummaryDTO> summaries) {
+        Map<String, OrderSummaryDTO> byOrderId = new LinkedHashMap<>();
+        for (OrderSummaryDTO summary : summaries) {
+            summary.setItems(new ArrayList<>());
+            byOrderId.put(summary.getOrderId(), summary);
+        }
+        for (Order line : orderMapper.selectOrdersByOrderIds(byOrderId.keySet())) {
+            byOrderId.get(line.getOrderId()).getItems().add(convertOrderItemToDetailDTO(line));
+        }
+    }
+
+    // 游标是 "下单时间|订单ID" 的 Base64，对调用方不透明
+    private static String encodeSummaryCursor(LocalDateTime createdAt, String orderId) {
+        String raw = createdAt + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeSummaryCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            String[] position = {raw.substring(0, separator), raw.substring(separator + 1)};
+            LocalDateTime.parse(position[0]);
+            return position;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor, e);
+        }
+    }
+
     /**
      * 更新订单状态 (影响某个订单业务ID下的所有订单明细行)
      * @param orderId 订单业务ID
@@ -235,28 +479,47 @@ public class OrderService {
      * 取消订单 (删除某个订单业务ID下的所有订单明细行)
      * 在实际应用中，取消订单通常是更新状态而不是物理删除
      *
+     * 库存的归还方式与下单时的扣减方式一致：分片商品归还到分片上，开启内存预留的热点商品在事务提交后归还到内存中。
+     *
      * @param orderId 订单业务ID
      * @return 是否成功删除
      */
-    @Transactional
     public boolean cancelOrder(String orderId) {
-        // TODO: 在取消订单前，可能需要将库存回滚
+        Map<Long, Integer> toRelease = new TreeMap<>();
+        // 删除订单和归还数据库库存在同一个事务中；死锁或锁超时时整个事务回滚后带抖动重试
+        boolean cancelled = contentionRetry.inTransaction(status -> {
+            toRelease.clear();
+            return doCancelOrder(orderId, toRelease);
+        });
+        // 内存预留不随事务回滚，只在提交后归还
+        toRelease.forEach(stockReservationService::release);
+        return cancelled;
+    }
+
+    private boolean doCancelOrder(String orderId, Map<Long, Integer> toRelease) {
         List<Order> orderItemsToRollback = orderMapper.selectOrdersByOrderId(orderId);
-        if (orderItemsToRollback != null && !orderItemsToRollback.isEmpty()) {
-            for (Order item : orderItemsToRollback) {
-                // 回滚库存
-                productMapper.updateProductStock(Long.valueOf(item.getProductId()), item.getQuantity());
-                logger.info("订单取消：产品ID {} 库存回滚 {}。", item.getProductId(), item.getQuantity());
-            }
+        // 先删除再归还：并发取消同一个订单时只有删除成功的一方归还库存
+        int rowsAffected = orderMapper.deleteOrdersByOrderId(orderId);
+        if (rowsAffected == 0 || orderItemsToRollback == null || orderItemsToRollback.isEmpty()) {
+            logger.warn("尝试取消不存在的订单 (业务ID: {})。", orderId);
+            return false;
         }
 
-        int rowsAffected = orderMapper.deleteOrdersByOrderId(orderId);
-        if (rowsAffected > 0) {
-            logger.info("订单 (业务ID: {}) 已取消（删除），影响 {} 条记录。", orderId, rowsAffected);
-            return true;
+        // 按商品ID排序后归还，加锁顺序与下单一致
+        Map<Long, Integer> quantityByProduct = new TreeMap<>();
+        for (Order item : orderItemsToRollback) {
+            quantityByProduct.merge(Long.valueOf(item.getProductId()), item.getQuantity(), Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> entry : quantityByProduct.entrySet()) {
+            if (stockReservationService.isManaged(entry.getKey())) {
+                toRelease.put(entry.getKey(), entry.getValue());
+            } else {
+                inventoryService.increase(productMapper, entry.getKey(), entry.getValue());
+            }
+            logger.info("订单取消：产品ID {} 库存回滚 {}。", entry.getKey(), entry.getValue());
         }
-        logger.warn("尝试取消不存在的订单 (业务ID: {})。", orderId);
-        return false;
+        logger.info("订单 (业务ID: {}) 已取消（删除），影响 {} 条记录。", orderId, rowsAffected);
+        return true;
     }
 
     // 辅助方法：将 Order Entity (扁平化行) 转换为 OrderItemDetailDTO
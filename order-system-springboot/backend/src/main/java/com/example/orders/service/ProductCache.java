@@ -0,0 +1,150 @@
+package com.example.orders.service;
+
+import com.example.orders.common.BoundedCache;
+import com.example.orders.entity.Product;
+import com.example.orders.mapper.ProductMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品行的读穿透缓存，放在 ProductMapper.selectProductById / selectProductsByIds 前面。
+ *
+ * <p>商品信息修改和删除会让对应条目失效；在事务中失效时，提交后会再失效一次，
+ * 防止其他线程在提交前把旧行重新加载进缓存。缓存的 Product 实例是共享的，调用方不要修改。
+ *
+ * <p>库存变化（下单、取消、内存预留写回）不让缓存失效，缓存行里的 stock 可能是旧值，不能用于判断库存：
+ * 扣减由条件 UPDATE 判断，展示时由 ProductService 单独读取当前库存。
+ *
+ * <p>下单时价格等商品信息直接取自缓存，正确性由 version 保证：version 只在商品信息变化时递增，
+ * 扣减库存的 UPDATE 带上缓存中的 version，不一致说明缓存已过期（见 OrderService）。
+ */
+@Component
+public class ProductCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCache.class);
+
+    private static final int WARM_UP_PAGE_SIZE = 500;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    private final BoundedCache<Long, Product> cache;
+    private final boolean warmUp;
+
+    public ProductCache(@Value("${product.cache.max-size:10000}") int maxSize,
+                        @Value("${product.cache.ttl-seconds:300}") long ttlSeconds,
+                        @Value("${product.cache.warm-up:true}") boolean warmUp) {
+        this.cache = new BoundedCache<>(maxSize, ttlSeconds * 1000);
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * 按ID取商品，未命中时查库并放入缓存。商品不存在返回 null（不缓存不存在的结果）。
+     */
+    public Product get(Long id) {
+        Product product = cache.getIfPresent(id);
+        if (product != null) {
+            return product;
+        }
+        long generation = cache.generation();
+        product = productMapper.selectProductById(id);
+        if (product != null) {
+            cache.putIfGeneration(id, product, generation);
+        }
+        return product;
+    }
+
+    /**
+     * 批量取商品，未命中的ID用一次 IN 查询加载。
+     * 在 BATCH 执行器的事务中调用时传入该事务的 mapper：同一事务中不能混用执行器类型。
+     *
+     * @return 商品ID到商品的映射，不存在的ID不在其中
+     */
+    public Map<Long, Product> getAll(ProductMapper mapper, Collection<Long> ids) {
+        Map<Long, Product> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Product product = cache.getIfPresent(id);
+            if (product != null) {
+                result.put(id, product);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = cache.generation();
+            for (Product product : mapper.selectProductsByIds(missing)) {
+                result.put(product.getId(), product);
+                cache.putIfGeneration(product.getId(), product, generation);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 让商品的缓存失效。当前线程有事务时，提交（或回滚）后再失效一次。
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        for (Long id : ids) {
+            invalidate(id);
+        }
+    }
+
+    public BoundedCache.Stats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 启动后按ID分页加载商品预热，最多加载到缓存容量为止。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmUp) {
+            return;
+        }
+        long generation = cache.generation();
+        int loaded = 0;
+        long after = 0;
+        while (loaded < cache.getMaxSize()) {
+            List<Product> page = productMapper.selectProductsAfter(after, Math.min(WARM_UP_PAGE_SIZE, cache.getMaxSize() - loaded));
+            for (Product product : page) {
+                if (!cache.putIfGeneration(product.getId(), product, generation)) {
+                    // 预热期间已有失效，剩下的交给读穿透
+                    logger.info("商品缓存预热被失效打断，已加载 {} 个商品", loaded);
+                    return;
+                }
+                loaded++;
+                after = product.getId();
+            }
+            if (page.size() < WARM_UP_PAGE_SIZE) {
+                break;
+            }
+        }
+        logger.info("商品缓存预热完成，加载 {} 个商品", loaded);
+    }
+}
@@ -1,19 +1,26 @@
 package com.example.orders.service;
 
+import com.example.orders.common.ContentionRetry;
+import com.example.orders.common.JsonStreaming;
 import com.example.orders.common.ProductStatus; // <-- 确保有这一行
+import com.example.orders.dto.PageDTO;
 import com.example.orders.dto.ProductDTO;
 import com.example.orders.entity.Product;
 import com.example.orders.mapper.ProductMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
@@ -23,6 +30,21 @@ public class ProductService {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ContentionRetry contentionRetry;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 创建新产品
      * @param productDTO 从前端接收的 ProductDTO 对象
@@ -59,38 +81,79 @@ public class ProductService {
 
     /**
      * 根据ID获取产品，并转换为 ProductDTO 返回给前端
+     * 商品信息取自缓存，库存变化不让缓存失效，所以库存单独读取当前值（内存预留的商品取内存中的可用量）
      * @param id 产品ID
      * @return ProductDTO 对象
      */
     public ProductDTO getProductById(Long id) {
-        Product product = productMapper.selectProductById(id);
-        return product != null ? convertToDto(product) : null;
+        Product product = productCache.get(id);
+        if (product == null) {
+            return null;
+        }
+        ProductDTO dto = convertToDto(product);
+        if (stockReservationService.isManaged(id)) {
+            dto.setStock((int) stockReservationService.available(id));
+        } else {
+            Integer currentStock = productMapper.checkProductStock(id);
+            dto.setStock(currentStock != null ? currentStock : 0);
+        }
+        return dto;
+    }
+
+    /**
+     * 按ID游标分页获取产品
+     * @param after 上一页最后一个产品的ID，第一页传 0
+     * @param limit 每页数量，超过上限会被截断
+     * @return 一页 ProductDTO
+     */
+    public PageDTO<ProductDTO> getProductsPage(long after, Integer limit) {
+        int pageSize = PageDTO.normalizeLimit(limit);
+        List<Product> rows = productMapper.selectProductsAfter(after, pageSize + 1);
+        return PageDTO.fromRows(rows, pageSize, Product::getId, this::convertToDto);
     }
 
     /**
-     * 获取所有产品，并转换为 ProductDTO 列表返回给前端
-     * @return ProductDTO 列表
+     * 以 JSON 数组的形式导出全部产品，边从数据库流式读取边写出，不在内存中保存整个列表
+     * @param out 响应输出流（不会被关闭）
+     * @return 导出的产品数量
      */
-    public List<ProductDTO> getAllProducts() {
-        return productMapper.selectAllProducts().stream()
-                       .map(this::convertToDto)
-                       .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream out) throws IOException {
+        try (Cursor<Product> cursor = productMapper.streamAllProducts()) {
+            long count = JsonStreaming.writeArray(objectMapper, out, cursor, this::convertToDto);
+            logger.info("已导出 {} 个产品", count);
+            return count;
+        }
     }
 
     /**
      * 更新产品信息
+     * 按 version 做乐观锁：DTO 带了 version 且与数据库不一致时拒绝更新（前端需要刷新后重试）；
+     * 没带 version 时，读取和写入之间被并发修改会自动重新读取后重试。
      * @param productDTO 待更新的产品DTO
      * @return 更新后的产品Entity
      */
-    @Transactional
     public Product updateProduct(ProductDTO productDTO) {
         if (productDTO.getId() == null) {
             throw new IllegalArgumentException("更新产品时ID不能为空。");
         }
+        if (productDTO.getStock() != null && productDTO.getStock() < 0) {
+            throw new IllegalArgumentException("库存不能为负数: " + productDTO.getStock());
+        }
+        if (productDTO.getStock() != null && stockReservationService.isManaged(productDTO.getId())) {
+            throw new IllegalArgumentException("该产品库存由内存预留管理，请使用增减库存接口，ID: " + productDTO.getId());
+        }
+        return contentionRetry.inTransaction(status -> doUpdateProduct(productDTO));
+    }
+
+    private Product doUpdateProduct(ProductDTO productDTO) {
         Product existingProduct = productMapper.selectProductById(productDTO.getId());
         if (existingProduct == null) {
             throw new IllegalArgumentException("产品不存在，ID: " + productDTO.getId());
         }
+        if (productDTO.getVersion() != null && !productDTO.getVersion().equals(existingProduct.getVersion())) {
+            throw new IllegalArgumentException("产品已被修改，请刷新后重试，ID: " + productDTO.getId());
+        }
 
         if (productDTO.getName() != null) existingProduct.setName(productDTO.getName());
         if (productDTO.getDescription() != null) existingProduct.setDescription(productDTO.getDescription());
@@ -105,7 +168,6 @@ public class ProductService {
             }
         }
 
-        if (productDTO.getStock() != null) existingProduct.setStock(productDTO.getStock());
         if (productDTO.getImageUrl() != null) existingProduct.setImageUrl(productDTO.getImageUrl());
         if (productDTO.getCategoryId() != null) existingProduct.setCategoryId(productDTO.getCategoryId());
         if (productDTO.getStatus() != null) {
@@ -120,9 +182,17 @@ public class ProductService {
 	// existingProduct.setStatus(productDTO.getStatus());
         existingProduct.setUpdatedAt(LocalDateTime.now());
 
-        productMapper.updateProduct(existingProduct);
+        productCache.invalidate(existingProduct.getId());
+        if (productMapper.updateProduct(existingProduct) == 0) {
+            throw new OptimisticLockingFailureException("产品ID: " + existingProduct.getId() + " 已被并发修改");
+        }
+        // 库存单独写入：热点商品的库存在分片中，不能直接覆盖 products.stock
+        if (productDTO.getStock() != null) {
+            inventoryService.setStock(productMapper, existingProduct.getId(), productDTO.getStock());
+        }
         logger.info("产品ID: {} 已更新: {}", existingProduct.getId(), existingProduct.getName());
-        return existingProduct;
+        // 重新读取，返回最新的库存和 version
+        return productMapper.selectProductById(existingProduct.getId());
     }
 
     /**
@@ -132,6 +202,7 @@ public class ProductService {
      */
     @Transactional
     public boolean deleteProduct(Long id) {
+        productCache.invalidate(id);
         int rowsAffected = productMapper.deleteProductById(id);
         if (rowsAffected > 0) {
             logger.info("产品 (ID: {}) 已删除。", id);
@@ -143,28 +214,31 @@ public class ProductService {
 
     /**
      * 扣减产品库存
+     * 判断和扣减在同一条条件 UPDATE 中完成，并发下不会超卖；死锁/锁超时由 InventoryService 带抖动重试。
+     * 开启内存预留的热点商品只在内存中扣减，由 StockReservationService 异步写回数据库。
      * @param productId 产品ID
      * @param quantity 扣减数量
      * @return 实际扣减后的库存量 (如果返回-1表示库存不足或产品不存在)
      */
-    @Transactional
     public int decreaseStock(Long productId, int quantity) {
-        Integer currentStock = productMapper.checkProductStock(productId);
-        if (currentStock == null) {
-            logger.warn("尝试扣减不存在的产品ID: {} 的库存。", productId);
-            return -1; // 产品不存在
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("扣减数量必须大于0: " + quantity);
         }
-        if (currentStock < quantity) {
-            logger.warn("产品ID: {} 库存不足，当前库存: {}，尝试扣减: {}", productId, currentStock, quantity);
-            return -1; // 库存不足
+        if (stockReservationService.isManaged(productId)) {
+            if (!stockReservationService.tryReserve(productId, quantity)) {
+                logger.warn("产品ID: {} 库存不足，尝试扣减: {}", productId, quantity);
+                return -1;
+            }
+            return (int) stockReservationService.available(productId);
         }
-        int rowsAffected = productMapper.updateProductStock(productId, -quantity); // 扣减用负数
-        if (rowsAffected > 0) {
-            logger.info("产品ID: {} 库存已扣减 {}，当前库存: {}", productId, quantity, currentStock - quantity);
-            return currentStock - quantity;
+        if (!inventoryService.tryDecrease(productId, quantity)) {
+            logger.warn("产品ID: {} 库存不足或产品不存在，尝试扣减: {}", productId, quantity);
+            return -1; // 库存不足或产品不存在
         }
-        logger.error("扣减产品ID: {} 库存失败，可能存在并发问题。", productId);
-        throw new RuntimeException("库存扣减失败，请重试。"); // 通常是并发更新失败
+        // 扣减之后的库存只用于展示，并发下可能已被其他请求继续扣减
+        Integer currentStock = productMapper.checkProductStock(productId);
+        logger.info("产品ID: {} 库存已扣减 {}，当前库存: {}", productId, quantity, currentStock);
+        return currentStock != null ? currentStock : 0;
     }
 
     /**
@@ -173,10 +247,12 @@ public class ProductService {
      * @param quantity 增加数量
      * @return 实际增加后的库存量
      */
-    @Transactional
     public int increaseStock(Long productId, int quantity) {
-        int rowsAffected = productMapper.updateProductStock(productId, quantity);
-        if (rowsAffected > 0) {
+        if (stockReservationService.isManaged(productId)) {
+            stockReservationService.release(productId, quantity);
+            return (int) stockReservationService.available(productId);
+        }
+        if (inventoryService.increase(productId, quantity)) {
             logger.info("产品ID: {} 库存已增加 {}。", productId, quantity);
             // 这里可以再次查询库存返回，或者根据业务逻辑直接返回成功
             return productMapper.checkProductStock(productId);
@@ -196,6 +272,7 @@ public class ProductService {
         dto.setImageUrl(product.getImageUrl());
         dto.setCategoryId(product.getCategoryId());
         dto.setStatus(product.getStatus().name());
+        dto.setVersion(product.getVersion());
         return dto;
     }
 
@@ -0,0 +1,306 @@
+package com.example.orders.service;
+
+import com.example.orders.common.ContentionRetry;
+import com.example.orders.mapper.InventoryWalMapper;
+import com.example.orders.mapper.ProductMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 热点商品的内存库存预留。
+ *
+ * <p>配置在 inventory.reservation.products 中的商品，启动时从数据库加载库存到内存计数器，
+ * 之后的扣减/归还只做一次 CAS 并追加一条 WAL 记录，不再访问数据库；
+ * 累计的净变化量由后台线程每隔 flush-interval-ms 在一个事务中批量写回 products.stock。
+ *
+ * <p>崩溃恢复：每次写回前先封存当前 WAL 段，段内记录与这次写回的变化量完全对应；
+ * 变化量和段号在同一事务中提交，提交后再删除段文件。重启时重放仍在磁盘上、且数据库里没有记录的段，
+ * 然后才从数据库加载库存，因此已确认的预留不会丢失也不会重复应用。
+ *
+ * <p>少卖窗口：预留在订单事务提交之前就写入 WAL（见 OrderService.createOrder），WAL 记录不带订单号。
+ * 如果进程在 tryReserve 之后、订单提交或 release 之前崩溃，重放时这笔扣减仍然生效，但数据库里没有对应的订单，
+ * 这部分库存会永久少掉（只会少卖，不会超卖）。需要时用订单表核对后人工补回库存。
+ *
+ * <p>内存计数器是库存的唯一权威，只适用于单实例部署（或按商品把流量固定到一个实例）；
+ * 开启后这些商品的库存不能再直接改数据库，后台修改商品时也不能设置绝对库存。
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private InventoryWalMapper inventoryWalMapper;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ContentionRetry contentionRetry;
+
+    // 开启内存预留的热点商品ID，例如 inventory.reservation.products=1001,1002
+    private final Set<Long> managedProducts;
+    private final long flushIntervalMs;
+    private final String walDirectory;
+    private final boolean walForce;
+
+    private final Map<Long, StockCounter> counters = new ConcurrentHashMap<>();
+    // 追加 WAL（读锁，可并发）与封存段、取走变化量（写锁）互斥，保证段内记录和取走的变化量一一对应
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    // 已封存但还没写入数据库的段，只在 flush() 中访问
+    private final Deque<SealedSegment> pendingSegments = new ArrayDeque<>();
+
+    private InventoryWal wal;
+    private ScheduledExecutorService flusher;
+
+    public StockReservationService(@Value("${inventory.reservation.products:}") List<Long> managedProducts,
+                                   @Value("${inventory.reservation.flush-interval-ms:1000}") long flushIntervalMs,
+                                   @Value("${inventory.reservation.wal-dir:data/inventory-wal}") String walDirectory,
+                                   @Value("${inventory.reservation.wal-force:false}") boolean walForce) {
+        this.managedProducts = Collections.unmodifiableSet(new HashSet<>(managedProducts));
+        this.flushIntervalMs = Math.max(10, flushIntervalMs);
+        this.walDirectory = walDirectory;
+        this.walForce = walForce;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (managedProducts.isEmpty()) {
+            return;
+        }
+        for (Long productId : managedProducts) {
+            if (inventoryService.isStriped(productId)) {
+                // 写回只改 products.stock，分片商品的扣减路径会忽略这部分库存
+                throw new IllegalStateException("商品不能同时开启库存分片和内存预留，ID: " + productId);
+            }
+        }
+
+        wal = new InventoryWal(Paths.get(walDirectory), walForce);
+        long lastSegment = recover();
+
+        for (Long productId : managedProducts) {
+            Integer stock = productMapper.checkProductStock(productId);
+            if (stock == null) {
+                logger.warn("配置了内存预留的商品不存在，ID: {}", productId);
+                continue;
+            }
+            counters.put(productId, new StockCounter(stock));
+        }
+        wal.open(lastSegment + 1);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-reservation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("内存库存预留已开启，商品: {}，写回间隔 {} ms，WAL 目录: {}", counters.keySet(), flushIntervalMs, walDirectory);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        wal.close();
+    }
+
+    /**
+     * 商品的库存是否由内存预留管理。
+     */
+    public boolean isManaged(Long productId) {
+        return counters.containsKey(productId);
+    }
+
+    /**
+     * 预留（扣减）库存。
+     *
+     * @return 库存充足并预留成功返回 true，库存不足返回 false
+     */
+    public boolean tryReserve(Long productId, int quantity) {
+        StockCounter counter = counter(productId);
+        long current;
+        do {
+            current = counter.available.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.available.compareAndSet(current, current - quantity));
+
+        try {
+            log(productId, counter, -quantity);
+        } catch (IOException e) {
+            // WAL 写不进去就不能确认这次预留
+            counter.available.addAndGet(quantity);
+            throw new UncheckedIOException("写入库存 WAL 失败，商品ID: " + productId, e);
+        }
+        return true;
+    }
+
+    /**
+     * 归还（增加）库存。
+     */
+    public void release(Long productId, int quantity) {
+        StockCounter counter = counter(productId);
+        try {
+            log(productId, counter, quantity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入库存 WAL 失败，商品ID: " + productId, e);
+        }
+        counter.available.addAndGet(quantity);
+    }
+
+    /**
+     * 内存中的当前可用库存。
+     */
+    public long available(Long productId) {
+        return counter(productId).available.get();
+    }
+
+    /**
+     * 封存当前 WAL 段，把这段时间的净变化量写回数据库。写回失败的段留在队列中，下次按顺序重试。
+     */
+    public synchronized void flush() throws IOException {
+        if (wal == null) {
+            return;
+        }
+        Map<Long, Long> deltas = new TreeMap<>();
+        long sealed;
+        rotationLock.writeLock().lock();
+        try {
+            sealed = wal.rotate();
+            for (Map.Entry<Long, StockCounter> entry : counters.entrySet()) {
+                long delta = entry.getValue().pendingDelta.getAndSet(0);
+                if (delta != 0) {
+                    deltas.put(entry.getKey(), delta);
+                }
+            }
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+        pendingSegments.addLast(new SealedSegment(sealed, deltas));
+
+        while (!pendingSegments.isEmpty()) {
+            SealedSegment segment = pendingSegments.peekFirst();
+            apply(segment.id, segment.deltas);
+            pendingSegments.removeFirst();
+            wal.delete(segment.id);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("库存变化量写回数据库失败，{} 个段等待重试: {}", pendingSegments.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 重放上次运行遗留的 WAL 段。
+     *
+     * @return 已使用过的最大段号，新段从它的下一个开始
+     */
+    private long recover() throws IOException {
+        Long maxApplied = inventoryWalMapper.selectMaxAppliedSegment();
+        long lastSegment = maxApplied != null ? maxApplied : 0L;
+        for (Long segment : wal.listSegments()) {
+            Map<Long, Long> deltas = new TreeMap<>(wal.readDeltas(segment));
+            deltas.values().removeIf(delta -> delta == 0);
+            apply(segment, deltas);
+            wal.delete(segment);
+            lastSegment = Math.max(lastSegment, segment);
+            logger.info("已重放库存 WAL 段 {}，涉及 {} 个商品", segment, deltas.size());
+        }
+        return lastSegment;
+    }
+
+    private void apply(long segment, Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        contentionRetry.inTransaction(status -> {
+            if (inventoryWalMapper.countAppliedSegment(segment) > 0) {
+                return null;
+            }
+            // TreeMap 按商品ID排序，加锁顺序固定
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                productMapper.updateProductStock(entry.getKey(), Math.toIntExact(entry.getValue()));
+            }
+            inventoryWalMapper.insertAppliedSegment(segment);
+            return null;
+        });
+    }
+
+    private void log(Long productId, StockCounter counter, int delta) throws IOException {
+        rotationLock.readLock().lock();
+        try {
+            wal.append(productId, delta);
+            counter.pendingDelta.addAndGet(delta);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    private StockCounter counter(Long productId) {
+        StockCounter counter = counters.get(productId);
+        if (counter == null) {
+            throw new IllegalArgumentException("商品未开启内存库存预留，ID: " + productId);
+        }
+        return counter;
+    }
+
+    private static final class StockCounter {
+        // 可用库存，扣减用 CAS 保证不会小于 0
+        final AtomicLong available;
+        // 上次写回之后的净变化量；用 getAndSet(0) 取走，LongAdder 的 sumThenReset 在并发累加时会丢数
+        final AtomicLong pendingDelta = new AtomicLong();
+
+        StockCounter(long stock) {
+            this.available = new AtomicLong(stock);
+        }
+    }
+
+    private static final class SealedSegment {
+        final long id;
+        final Map<Long, Long> deltas;
+
+        SealedSegment(long id, Map<Long, Long> deltas) {
+            this.id = id;
+            this.deltas = deltas;
+        }
+    }
+}
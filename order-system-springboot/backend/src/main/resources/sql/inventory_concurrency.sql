@@ -0,0 +1,16 @@
+-- 库存并发控制所需的表结构变更（ProductMapper / InventoryService 依赖）
+
+-- 1. 乐观锁版本号：商品信息（名称、价格、状态等）的每次修改都把 version 加 1，库存变化不递增；
+--    更新商品时带上读取时的 version，被并发修改过则更新 0 行
+ALTER TABLE products
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- 2. 热点商品库存分片：开启分片的商品，products.stock 置 0，库存分散在这里的多行中，
+--    商品的实际库存 = products.stock + 各分片 stock 之和
+CREATE TABLE IF NOT EXISTS product_stock_stripes (
+    product_id BIGINT NOT NULL,
+    stripe     INT    NOT NULL,
+    stock      INT    NOT NULL DEFAULT 0,
+    PRIMARY KEY (product_id, stripe),
+    CONSTRAINT chk_stripe_stock_non_negative CHECK (stock >= 0)
+);
@@ -0,0 +1,8 @@
+-- 热点商品内存预留所需的表（InventoryWalMapper / StockReservationService 依赖）
+
+-- 已写入 products.stock 的 WAL 段号。段内的库存变化量和这里的记录在同一事务中提交，
+-- 写库成功但删除本地段文件之前崩溃时，重启恢复据此跳过已应用的段，不会重复扣减
+CREATE TABLE IF NOT EXISTS inventory_wal_segments (
+    segment_id BIGINT   NOT NULL PRIMARY KEY,
+    applied_at DATETIME NOT NULL
+);
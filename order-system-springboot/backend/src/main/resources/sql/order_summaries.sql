@@ -0,0 +1,7 @@
+-- 订单摘要分页（OrderMapper.selectOrderSummariesByUserId）使用的索引：
+-- 按 (user_id, order_id) 分组求每个订单的 MIN(create_time)，只读索引、不回表；
+-- 选出一页订单号之后，再按 (user_id, order_id) 定位这些订单的明细行做聚合
+CREATE INDEX idx_orders_user_order ON orders (user_id, order_id, create_time);
+
+-- 按用户查询明细行并按下单时间排序（OrderMapper.selectOrdersByUserId）
+CREATE INDEX idx_orders_user_created ON orders (user_id, create_time, order_id);
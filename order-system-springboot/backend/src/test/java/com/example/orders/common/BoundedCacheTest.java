@@ -0,0 +1,159 @@
+package com.example.orders.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(2, 0);
+        cache.putIfGeneration(1L, "a", cache.generation());
+        cache.putIfGeneration(2L, "b", cache.generation());
+        // 访问 1 之后 2 成为最久未访问的条目
+        assertEquals("a", cache.getIfPresent(1L));
+        cache.putIfGeneration(3L, "c", cache.generation());
+
+        assertNull(cache.getIfPresent(2L));
+        assertEquals("a", cache.getIfPresent(1L));
+        assertEquals("c", cache.getIfPresent(3L));
+
+        BoundedCache.Stats stats = cache.stats();
+        assertEquals(2, stats.getSize());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(3, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void expiredEntryIsNotReturned() throws InterruptedException {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, 1);
+        cache.putIfGeneration(1L, "a", cache.generation());
+        Thread.sleep(10);
+
+        assertNull(cache.getIfPresent(1L));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.stats().getExpirations());
+    }
+
+    @Test
+    void loadStartedBeforeInvalidateIsDiscarded() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, 0);
+        long generation = cache.generation();
+        // 加载期间这个键被失效
+        cache.invalidate(1L);
+
+        assertFalse(cache.putIfGeneration(1L, "stale", generation));
+        assertNull(cache.getIfPresent(1L));
+        // 失效之后开始的加载可以写入
+        assertTrue(cache.putIfGeneration(1L, "fresh", cache.generation()));
+        assertEquals("fresh", cache.getIfPresent(1L));
+    }
+
+    @Test
+    void invalidatingAnotherKeyDoesNotDiscardLoad() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, 0);
+        long generation = cache.generation();
+        cache.invalidate(2L);
+
+        assertTrue(cache.putIfGeneration(1L, "a", generation));
+    }
+
+    @Test
+    void evictedInvalidationRecordsStillRejectOlderLoads() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(2, 0);
+        long generation = cache.generation();
+        cache.invalidate(1L);
+        // 失效记录最多保留 maxSize 个，键 1 的记录被挤掉后由下限序号兜底
+        cache.invalidate(2L);
+        cache.invalidate(3L);
+
+        assertFalse(cache.putIfGeneration(1L, "stale", generation));
+        // 保守：下限之前开始的加载，即使是没被失效过的键也放弃
+        assertFalse(cache.putIfGeneration(4L, "d", generation));
+        assertTrue(cache.putIfGeneration(4L, "d", cache.generation()));
+    }
+
+    @Test
+    void invalidateAllDiscardsLoadsInFlight() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, 0);
+        cache.putIfGeneration(1L, "a", cache.generation());
+        long generation = cache.generation();
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertFalse(cache.putIfGeneration(2L, "b", generation));
+    }
+
+    /**
+     * 读穿透与更新并发：更新方先改“数据库”再失效，读取方未命中时按 generation -> 读数据库 -> putIfGeneration 加载。
+     * 更新方失效之后公布这次写入的值；读取方先读公布值再读缓存，命中的值不能小于公布值，否则就是失效之后写回了旧值。
+     */
+    @Test
+    void concurrentLoadsNeverResurrectInvalidatedValue() throws Exception {
+        int keys = 8;
+        int threads = 16;
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(keys, 0);
+        AtomicIntegerArray database = new AtomicIntegerArray(keys);
+        AtomicIntegerArray invalidatedUpTo = new AtomicIntegerArray(keys);
+        AtomicInteger staleReads = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean writer = t % 4 == 0;
+            futures.add(pool.submit(() -> {
+                startGate.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5_000; i++) {
+                    int key = random.nextInt(keys);
+                    if (writer) {
+                        int written = database.incrementAndGet(key);
+                        cache.invalidate(key);
+                        invalidatedUpTo.accumulateAndGet(key, written, Math::max);
+                        LockSupport.parkNanos(1_000);
+                        continue;
+                    }
+                    int floor = invalidatedUpTo.get(key);
+                    Integer cached = cache.getIfPresent(key);
+                    if (cached != null) {
+                        if (cached < floor) {
+                            staleReads.incrementAndGet();
+                        }
+                        continue;
+                    }
+                    long generation = cache.generation();
+                    int loaded = database.get(key);
+                    // 在“读到数据库之后、写入缓存之前”让出 CPU，让失效插进来
+                    LockSupport.parkNanos(1_000);
+                    cache.putIfGeneration(key, loaded, generation);
+                }
+                return null;
+            }));
+        }
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(0, staleReads.get(), "失效之后读到了旧值");
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.orders.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageDTOTest {
+
+    @Test
+    void normalizeLimitFallsBackToDefaultAndCapsAtMaximum() {
+        assertEquals(PageDTO.DEFAULT_LIMIT, PageDTO.normalizeLimit(null));
+        assertEquals(PageDTO.DEFAULT_LIMIT, PageDTO.normalizeLimit(0));
+        assertEquals(PageDTO.DEFAULT_LIMIT, PageDTO.normalizeLimit(-5));
+        assertEquals(20, PageDTO.normalizeLimit(20));
+        assertEquals(PageDTO.MAX_LIMIT, PageDTO.normalizeLimit(PageDTO.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void extraRowMeansMorePagesAndIsNotReturned() {
+        // 按 limit + 1 查出的 4 行
+        List<Long> rows = Arrays.asList(11L, 12L, 13L, 14L);
+
+        PageDTO<String> page = PageDTO.fromRows(rows, 3, id -> id, id -> "p" + id);
+
+        assertEquals(Arrays.asList("p11", "p12", "p13"), page.getItems());
+        assertTrue(page.isHasMore());
+        // 下一页从本页最后一条之后开始，多查出的 14 不能被跳过
+        assertEquals(13L, page.getNextAfter());
+        assertEquals(3, page.getLimit());
+    }
+
+    @Test
+    void lastPageHasNoMore() {
+        PageDTO<String> page = PageDTO.fromRows(Arrays.asList(21L, 22L), 3, id -> id, id -> "p" + id);
+
+        assertEquals(Arrays.asList("p21", "p22"), page.getItems());
+        assertFalse(page.isHasMore());
+        assertEquals(22L, page.getNextAfter());
+    }
+
+    @Test
+    void emptyPageHasNoCursor() {
+        PageDTO<String> page = PageDTO.fromRows(Collections.<Long>emptyList(), 3, id -> id, id -> "p" + id);
+
+        assertTrue(page.getItems().isEmpty());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextAfter());
+    }
+}
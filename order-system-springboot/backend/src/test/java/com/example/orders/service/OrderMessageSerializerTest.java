@@ -0,0 +1,139 @@
+package com.example.orders.service;
+
+import com.example.orders.common.OrderMessageFormat;
+import com.example.orders.config.RabbitMQConfig;
+import com.example.orders.dto.OrderDTO;
+import com.example.orders.dto.OrderItemDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderMessageSerializerTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+
+    private final MessageConverter consumerConverter = new RabbitMQConfig().orderMessageConverter(bootObjectMapperBuilder());
+
+    @Test
+    void everyFormatRoundTripsThroughConsumerConverter() {
+        for (OrderMessageFormat format : OrderMessageFormat.values()) {
+            Message message = serializer(format).toMessage(order(), "corr-1");
+
+            OrderDTO decoded = (OrderDTO) consumerConverter.fromMessage(message);
+
+            assertEquals("1001", decoded.getOrderId(), format.name());
+            assertEquals("7", decoded.getUserId(), format.name());
+            assertEquals("PENDING", decoded.getStatus(), format.name());
+            assertEquals(new BigDecimal("59.97"), decoded.getTotalAmount(), format.name());
+            assertEquals(CREATED_AT, decoded.getCreatedAt(), format.name());
+            assertNull(decoded.getUpdatedAt(), format.name());
+            assertEquals(2, decoded.getItems().size(), format.name());
+            OrderItemDTO item = decoded.getItems().get(1);
+            assertEquals(12L, item.getProductId(), format.name());
+            assertEquals("绿茶", item.getProductName(), format.name());
+            assertEquals(3, item.getQuantity(), format.name());
+            assertEquals("9.99", item.getUnitPrice(), format.name());
+        }
+    }
+
+    @Test
+    void propertiesDescribeTheFormat() {
+        for (OrderMessageFormat format : OrderMessageFormat.values()) {
+            Message message = serializer(format).toMessage(order(), "corr-2");
+            MessageProperties properties = message.getMessageProperties();
+
+            assertEquals(format.getContentType(), properties.getContentType(), format.name());
+            // 二进制消息不能带 content_encoding，否则消费端的转换器会先把消息体当作文本转成 String
+            assertEquals(format.isTextual() ? "UTF-8" : null, properties.getContentEncoding(), format.name());
+            assertEquals(message.getBody().length, properties.getContentLength(), format.name());
+            assertEquals(MessageDeliveryMode.PERSISTENT, properties.getDeliveryMode(), format.name());
+            assertEquals(OrderDTO.class.getName(), properties.getHeader("__TypeId__"), format.name());
+            assertEquals("corr-2", properties.getCorrelationId(), format.name());
+        }
+    }
+
+    @Test
+    void jsonKeepsDatesAsIsoTextForFlink() throws Exception {
+        byte[] body = serializer(OrderMessageFormat.JSON).toMessage(order(), "corr-3").getBody();
+
+        JsonNode tree = new ObjectMapper().readTree(body);
+        assertTrue(tree.get("createdAt").isTextual());
+        assertEquals("2024-05-01T12:30:15", tree.get("createdAt").asText());
+        assertEquals("1001", tree.get("orderId").asText());
+        assertTrue(tree.get("items").isArray());
+    }
+
+    @Test
+    void binaryFormatsAreSmallerThanJson() {
+        Map<OrderMessageFormat, byte[]> bodies = new EnumMap<>(OrderMessageFormat.class);
+        for (OrderMessageFormat format : OrderMessageFormat.values()) {
+            bodies.put(format, serializer(format).toMessage(order(), "corr-4").getBody());
+        }
+        // Smile 消息以 ":)\n" 开头，Flink 端也以此校验
+        assertArrayEquals(":)\n".getBytes(StandardCharsets.US_ASCII), Arrays.copyOf(bodies.get(OrderMessageFormat.SMILE), 3));
+        assertTrue(bodies.get(OrderMessageFormat.SMILE).length < bodies.get(OrderMessageFormat.JSON).length);
+        assertTrue(bodies.get(OrderMessageFormat.CBOR).length < bodies.get(OrderMessageFormat.JSON).length);
+    }
+
+    @Test
+    void messagesWithoutContentTypeAreReadAsJson() {
+        // 升级前发布、没有 content_type 的消息仍按 JSON 解码
+        Message json = serializer(OrderMessageFormat.JSON).toMessage(order(), "corr-5");
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("__TypeId__", OrderDTO.class.getName());
+        OrderDTO decoded = (OrderDTO) consumerConverter.fromMessage(new Message(json.getBody(), properties));
+        assertEquals("1001", decoded.getOrderId());
+    }
+
+    @Test
+    void formatIsParsedFromConfiguration() {
+        assertEquals(OrderMessageFormat.JSON, OrderMessageFormat.parse("json"));
+        assertEquals(OrderMessageFormat.SMILE, OrderMessageFormat.parse(" Smile "));
+        assertEquals(OrderMessageFormat.CBOR, OrderMessageFormat.parse("CBOR"));
+        assertThrows(IllegalArgumentException.class, () -> OrderMessageFormat.parse("xml"));
+        assertEquals(OrderMessageFormat.SMILE, new OrderMessageSerializer(bootObjectMapperBuilder(), "smile").getFormat());
+    }
+
+    private static OrderMessageSerializer serializer(OrderMessageFormat format) {
+        return new OrderMessageSerializer(bootObjectMapperBuilder(), format);
+    }
+
+    // 与 Spring Boot 的 JacksonAutoConfiguration 一样，日期写成 ISO-8601 字符串
+    private static Jackson2ObjectMapperBuilder bootObjectMapperBuilder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static OrderDTO order() {
+        OrderItemDTO first = new OrderItemDTO();
+        first.setProductId(11L);
+        first.setProductName("Coffee");
+        first.setQuantity(3);
+        first.setUnitPrice("10.00");
+        OrderItemDTO second = new OrderItemDTO();
+        second.setProductId(12L);
+        second.setProductName("绿茶");
+        second.setQuantity(3);
+        second.setUnitPrice("9.99");
+        return new OrderDTO("1001", "7", Arrays.asList(first, second), "PENDING",
+                new BigDecimal("59.97"), CREATED_AT, null);
+    }
+}
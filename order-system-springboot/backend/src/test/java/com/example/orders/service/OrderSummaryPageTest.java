@@ -0,0 +1,118 @@
+package com.example.orders.service;
+
+import com.example.orders.dto.OrderSummaryDTO;
+import com.example.orders.dto.PageDTO;
+import com.example.orders.mapper.OrderMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 订单摘要的复合游标：上一页最后一个订单的 (下单时间, order_id) 编码后返回，下一页原样传回。
+ */
+class OrderSummaryPageTest {
+
+    private static final String USER_ID = "10001";
+
+    private final OrderMapper orderMapper = mock(OrderMapper.class);
+    private final OrderService orderService = new OrderService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderService, "orderMapper", orderMapper);
+    }
+
+    @Test
+    void cursorOfLastOrderIsPassedBackToNextQuery() {
+        LocalDateTime t1 = LocalDateTime.of(2024, 5, 1, 10, 0, 3, 123_000_000);
+        LocalDateTime t2 = LocalDateTime.of(2024, 5, 1, 10, 0, 2);
+        LocalDateTime t3 = LocalDateTime.of(2024, 5, 1, 10, 0, 1);
+        // 每页 2 个，查询 limit + 1 = 3 行
+        when(orderMapper.selectOrderSummariesByUserId(eq(USER_ID), isNull(), isNull(), eq(3)))
+                .thenReturn(Arrays.asList(summary("o-3", t1), summary("o-2", t2), summary("o-1", t3)));
+
+        PageDTO<OrderSummaryDTO> first = orderService.getOrderSummariesByUserId(USER_ID, null, 2, false);
+
+        assertEquals(2, first.getItems().size());
+        assertTrue(first.isHasMore());
+        assertNull(first.getNextAfter());
+
+        when(orderMapper.selectOrderSummariesByUserId(eq(USER_ID), eq(t2), eq("o-2"), eq(3)))
+                .thenReturn(Collections.singletonList(summary("o-1", t3)));
+
+        PageDTO<OrderSummaryDTO> second = orderService.getOrderSummariesByUserId(USER_ID, first.getNextCursor(), 2, false);
+
+        verify(orderMapper).selectOrderSummariesByUserId(USER_ID, t2, "o-2", 3);
+        assertEquals("o-1", second.getItems().get(0).getOrderId());
+        assertFalse(second.isHasMore());
+    }
+
+    @Test
+    void cursorKeepsOrderIdsContainingSeparator() {
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(orderMapper.selectOrderSummariesByUserId(eq(USER_ID), isNull(), isNull(), anyInt()))
+                .thenReturn(Collections.singletonList(summary("a|b", time)));
+
+        String cursor = orderService.getOrderSummariesByUserId(USER_ID, null, 1, false).getNextCursor();
+        orderService.getOrderSummariesByUserId(USER_ID, cursor, 1, false);
+
+        verify(orderMapper).selectOrderSummariesByUserId(USER_ID, time, "a|b", 2);
+    }
+
+    @Test
+    void emptyPageHasNoCursor() {
+        when(orderMapper.selectOrderSummariesByUserId(eq(USER_ID), isNull(), isNull(), anyInt()))
+                .thenReturn(Collections.emptyList());
+
+        PageDTO<OrderSummaryDTO> page = orderService.getOrderSummariesByUserId(USER_ID, "", null, false);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        verify(orderMapper).selectOrderSummariesByUserId(USER_ID, null, null, PageDTO.DEFAULT_LIMIT + 1);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        List<String> cursors = Arrays.asList(
+                "not base64!",
+                encode("2024-05-01T10:00"),   // 缺少 order_id
+                encode("|o-1"),               // 缺少时间
+                encode("2024-05-01T10:00|"),  // order_id 为空
+                encode("yesterday|o-1"));     // 时间格式不对
+        for (String cursor : cursors) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> orderService.getOrderSummariesByUserId(USER_ID, cursor, 10, false), cursor);
+        }
+    }
+
+    private static OrderSummaryDTO summary(String orderId, LocalDateTime createdAt) {
+        OrderSummaryDTO summary = new OrderSummaryDTO();
+        summary.setOrderId(orderId);
+        summary.setUserId(USER_ID);
+        summary.setCreatedAt(createdAt);
+        return summary;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.orders.service;
+
+import com.example.orders.common.ContentionRetry;
+import com.example.orders.mapper.InventoryWalMapper;
+import com.example.orders.mapper.ProductMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 内存库存预留的并发压力测试：数据库用内存中的 Map 代替，WAL 写到临时目录。
+ */
+class StockReservationServiceTest {
+
+    private static final long PRODUCT_ID = 1001L;
+    private static final int INITIAL_STOCK = 10_000;
+    private static final int THREADS = 64;
+
+    @TempDir
+    Path walDir;
+
+    // 模拟的 products.stock 和已写回的 WAL 段
+    private final Map<Long, AtomicLong> dbStock = new ConcurrentHashMap<>();
+    private final Set<Long> appliedSegments = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        dbStock.put(PRODUCT_ID, new AtomicLong(INITIAL_STOCK));
+    }
+
+    @Test
+    void concurrentReserveAndReleaseNeverOversells() throws Exception {
+        // 写回间隔很短，后台 flush 与预留/归还并发进行
+        StockReservationService service = newService(10);
+        service.start();
+
+        AtomicLong reserved = new AtomicLong();
+        AtomicLong released = new AtomicLong();
+        AtomicBoolean negativeSeen = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread monitor = new Thread(() -> {
+            while (running.get()) {
+                if (service.available(PRODUCT_ID) < 0) {
+                    negativeSeen.set(true);
+                }
+            }
+        });
+        monitor.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                startGate.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 2_000; i++) {
+                    int quantity = 1 + random.nextInt(3);
+                    if (service.tryReserve(PRODUCT_ID, quantity)) {
+                        reserved.addAndGet(quantity);
+                        // 约四分之一的订单被取消，库存归还
+                        if (random.nextInt(4) == 0) {
+                            service.release(PRODUCT_ID, quantity);
+                            released.addAndGet(quantity);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        running.set(false);
+        monitor.join();
+
+        // stop 会做最后一次写回
+        service.stop();
+
+        long available = service.available(PRODUCT_ID);
+        assertFalse(negativeSeen.get(), "可用库存出现过负数");
+        assertTrue(available >= 0);
+        // 需求远大于库存：库存应该恰好被卖完（除去被归还又没再卖出的部分），净卖出不超过初始库存
+        assertTrue(reserved.get() - released.get() <= INITIAL_STOCK, "超卖");
+        assertEquals(INITIAL_STOCK - (reserved.get() - released.get()), available);
+        // 写回数据库的变化量之和 + 初始库存 == 内存中的可用库存
+        assertEquals(available, dbStock.get(PRODUCT_ID).get());
+    }
+
+    @Test
+    void walIsReplayedAfterCrash() throws Exception {
+        // 写回间隔足够长，测试期间不会自动写回
+        StockReservationService crashed = newService(60_000);
+        crashed.start();
+        int reservedTotal = 0;
+        for (int i = 1; i <= 50; i++) {
+            assertTrue(crashed.tryReserve(PRODUCT_ID, i));
+            reservedTotal += i;
+        }
+        crashed.release(PRODUCT_ID, 7);
+        long availableBeforeCrash = crashed.available(PRODUCT_ID);
+        assertEquals(INITIAL_STOCK - reservedTotal + 7, availableBeforeCrash);
+        // 不调用 stop()：模拟进程崩溃，数据库中还是初始库存
+        assertEquals(INITIAL_STOCK, dbStock.get(PRODUCT_ID).get());
+
+        StockReservationService restarted = newService(60_000);
+        restarted.start();
+        assertEquals(availableBeforeCrash, dbStock.get(PRODUCT_ID).get());
+        assertEquals(availableBeforeCrash, restarted.available(PRODUCT_ID));
+        restarted.stop();
+        assertEquals(availableBeforeCrash, dbStock.get(PRODUCT_ID).get());
+    }
+
+    private StockReservationService newService(long flushIntervalMs) {
+        StockReservationService service = new StockReservationService(
+                Collections.singletonList(PRODUCT_ID), flushIntervalMs, walDir.toString(), false);
+
+        ProductMapper productMapper = mock(ProductMapper.class);
+        when(productMapper.checkProductStock(anyLong()))
+                .thenAnswer(inv -> Math.toIntExact(dbStock.get(inv.<Long>getArgument(0)).get()));
+        when(productMapper.updateProductStock(anyLong(), anyInt())).thenAnswer(inv -> {
+            dbStock.get(inv.<Long>getArgument(0)).addAndGet(inv.<Integer>getArgument(1));
+            return 1;
+        });
+
+        InventoryWalMapper walMapper = mock(InventoryWalMapper.class);
+        when(walMapper.selectMaxAppliedSegment())
+                .thenAnswer(inv -> appliedSegments.stream().max(Long::compare).orElse(null));
+        when(walMapper.countAppliedSegment(anyLong()))
+                .thenAnswer(inv -> appliedSegments.contains(inv.<Long>getArgument(0)) ? 1 : 0);
+        when(walMapper.insertAppliedSegment(anyLong()))
+                .thenAnswer(inv -> appliedSegments.add(inv.getArgument(0)) ? 1 : 0);
+
+        InventoryService inventoryService = mock(InventoryService.class);
+        when(inventoryService.isStriped(anyLong())).thenReturn(false);
+
+        // 模拟的数据库没有事务，回调直接执行
+        ContentionRetry contentionRetry = mock(ContentionRetry.class);
+        when(contentionRetry.inTransaction(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        ReflectionTestUtils.setField(service, "productMapper", productMapper);
+        ReflectionTestUtils.setField(service, "inventoryWalMapper", walMapper);
+        ReflectionTestUtils.setField(service, "inventoryService", inventoryService);
+        ReflectionTestUtils.setField(service, "contentionRetry", contentionRetry);
+        return service;
+    }
+}
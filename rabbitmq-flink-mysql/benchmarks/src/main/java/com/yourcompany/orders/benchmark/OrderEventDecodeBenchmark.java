@@ -0,0 +1,130 @@
+package com.yourcompany.orders.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.yourcompany.orders.event.OrderEvent;
+import com.yourcompany.orders.serialization.OrderEventDeserializationSchema;
+import com.yourcompany.orders.serialization.OrderMessageFormat;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单消息解码：流式解析 {@link OrderEventDeserializationSchema} + {@link OrderEvent#forEachItem}
+ * 与原来 SimpleStringSchema + org.json 的做法对比。
+ *
+ * <p>两条路径读取相同的字段（包括把 unitPrice 转成 BigDecimal），结果交给 Blackhole，
+ * 加 -prof gc 可以同时看到每条消息的分配量。
+ *
+ * <p>format 是 streaming 解码的消息格式（后端的 order.message.format），同一订单转换成 JSON、Smile 或 CBOR；
+ * orgJson 只能解析 JSON，结果与 format 无关。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderEventDecodeBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int itemCount;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private byte[] json;
+    private byte[] message;
+    private OrderMessageFormat messageFormat;
+    private OrderEventDeserializationSchema schema;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder text = new StringBuilder(256 + itemCount * 96)
+                .append("{\"orderId\":\"ORD-20240501-000123\",\"userId\":\"10086\",\"status\":\"PAID\",")
+                .append("\"createdAt\":\"2024-05-01T10:15:30.123+08:00\",")
+                .append("\"updatedAt\":\"2024-05-01T10:16:02.456+08:00\",\"items\":[");
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append("{\"productId\":").append(1000 + i)
+                .append(",\"productName\":\"商品-").append(i)
+                .append("\",\"quantity\":").append(1 + i % 5)
+                .append(",\"unitPrice\":\"").append(19 + i).append(".99\"}");
+        }
+        text.append("]}");
+        json = text.toString().getBytes(StandardCharsets.UTF_8);
+        messageFormat = OrderMessageFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        message = convert(json, messageFormat);
+        schema = new OrderEventDeserializationSchema();
+    }
+
+    // 用流式 API 把 JSON 消息逐个 token 转写成目标格式，与后端用 ObjectMapper 编码的结果结构相同
+    private static byte[] convert(byte[] json, OrderMessageFormat format) throws IOException {
+        if (format == OrderMessageFormat.JSON) {
+            return json;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonParser parser = OrderMessageFormat.JSON.getFactory().createParser(json);
+             JsonGenerator generator = format.getFactory().createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws Exception {
+        OrderEvent event = schema.deserialize(message, messageFormat);
+        blackhole.consume(event.getOrderId());
+        blackhole.consume(event.getUserId());
+        blackhole.consume(event.getStatus());
+        blackhole.consume(event.getCreatedAt());
+        blackhole.consume(event.getUpdatedAt());
+        event.forEachItem(item -> {
+            blackhole.consume(item.getProductId());
+            blackhole.consume(item.getProductName());
+            blackhole.consume(item.getQuantity());
+            blackhole.consume(new BigDecimal(item.getUnitPrice()));
+        });
+    }
+
+    @Benchmark
+    public void orgJson(Blackhole blackhole) {
+        // SimpleStringSchema 先把整条消息转成 String
+        JSONObject order = new JSONObject(new String(json, StandardCharsets.UTF_8));
+        blackhole.consume(order.getString("orderId"));
+        blackhole.consume(order.getLong("userId"));
+        blackhole.consume(order.getString("status"));
+        blackhole.consume(order.getString("createdAt"));
+        blackhole.consume(order.getString("updatedAt"));
+        JSONArray items = order.getJSONArray("items");
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject item = items.getJSONObject(i);
+            blackhole.consume(item.getLong("productId"));
+            blackhole.consume(item.getString("productName"));
+            blackhole.consume(item.getInt("quantity"));
+            blackhole.consume(new BigDecimal(item.getString("unitPrice")));
+        }
+    }
+}
@@ -1,218 +1,233 @@
 package com.yourcompany;
 
-import org.apache.flink.api.common.functions.FlatMapFunction;
+import org.apache.flink.api.common.eventtime.WatermarkStrategy;
+import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.streaming.api.CheckpointingMode;
 import org.apache.flink.api.java.tuple.Tuple3;
 import org.apache.flink.connector.jdbc.JdbcConnectionOptions;
 import org.apache.flink.connector.jdbc.JdbcExecutionOptions;
 import org.apache.flink.connector.jdbc.JdbcSink;
+import org.apache.flink.streaming.api.datastream.BroadcastStream;
 import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.datastream.KeyedStream;
+import org.apache.flink.streaming.api.datastream.SingleOutputStreamOperator;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.assigners.TumblingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.time.Time;
+import org.apache.flink.streaming.connectors.rabbitmq.RMQSink;
 import org.apache.flink.streaming.connectors.rabbitmq.RMQSource;
 import org.apache.flink.streaming.connectors.rabbitmq.common.RMQConnectionConfig;
-import org.apache.flink.streaming.util.serialization.SimpleStringSchema;
-import org.apache.flink.util.Collector;
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import com.yourcompany.orders.common.OrderStatus;
+import org.apache.flink.types.Either;
+
+import com.yourcompany.orders.config.JobConfig;
+import com.yourcompany.orders.config.SinkSettings;
+import com.yourcompany.orders.event.OrderEvent;
+import com.yourcompany.orders.event.RejectedMessage;
+import com.yourcompany.orders.function.OrderMessageSplitter;
+import com.yourcompany.orders.function.ProductChangeFilter;
+import com.yourcompany.orders.function.ProductHistoryFunction;
+import com.yourcompany.orders.function.ProductSalesAggregate;
+import com.yourcompany.orders.function.ProductSalesWindowFunction;
+import com.yourcompany.orders.function.SinkSettingsBroadcaster;
+import com.yourcompany.orders.serialization.OrderEventDeserializationSchema;
+import com.yourcompany.orders.serialization.SinkSettingsDeserializationSchema;
+import com.yourcompany.orders.sink.DeadLetterPublishOptions;
+import com.yourcompany.orders.sink.LateOrderLineSink;
+import com.yourcompany.orders.sink.OrderTableSink;
 import com.yourcompany.orders.entity.Order;
 import com.yourcompany.orders.entity.Product;
 import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.ProductSales;
 
-import java.math.BigDecimal;
-import java.sql.Timestamp;
-import java.time.LocalDateTime;
+import java.time.Duration;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
 
 public class RabbitMQToMySQL {
 
     public static void main(String[] args) throws Exception {
-        final StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
-        env.setParallelism(1);
-
-        RMQConnectionConfig connectionConfig = new RMQConnectionConfig.Builder()
-                .setHost("localhost")
-                .setPort(5672)
-                .setUserName("guest")
-                .setPassword("guest")
-                .setVirtualHost("/")
-                .build();
+        // 配置来自 jar 内 application.properties、--config 指定的文件和命令行参数，见 JobConfig
+        // 例如: --config /etc/order-job.properties --parallelism 4 --sink.batch-size 1000
+        final JobConfig config = JobConfig.load(args);
+        final boolean checkpointed = config.isCheckpointed();
+        final int sinkParallelism = config.getSinkParallelism();
+        final boolean productScd2 = config.isProductScd2();
 
-        RMQSource<String> rabbitSource = new RMQSource<>(
+        final StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+        env.setParallelism(config.getParallelism());
+        env.getConfig().setGlobalJobParameters(config.getPublicParameters());
+        if (checkpointed) {
+            env.enableCheckpointing(config.getCheckpointInterval(), CheckpointingMode.EXACTLY_ONCE);
+            // 两次 checkpoint 之间至少留出半个间隔给数据处理，避免慢 flush 时 checkpoint 首尾相接
+            env.getCheckpointConfig().setMinPauseBetweenCheckpoints(config.getCheckpointInterval() / 2);
+        }
+
+        RMQConnectionConfig.Builder connectionConfigBuilder = new RMQConnectionConfig.Builder()
+                .setHost(config.getRabbitHost())
+                .setPort(config.getRabbitPort())
+                .setUserName(config.getRabbitUsername())
+                .setPassword(config.getRabbitPassword())
+                .setVirtualHost(config.getRabbitVirtualHost());
+        if (config.getPrefetchCount() > 0) {
+            connectionConfigBuilder.setPrefetchCount(config.getPrefetchCount());
+        }
+        RMQConnectionConfig connectionConfig = connectionConfigBuilder.build();
+
+        // RMQSource 不是并行 Source：队列只挂一个消费者，消息顺序和去重都在这一个实例里完成。
+        // 提高 parallelism 只会放大下游算子，不会在同一队列上多出竞争消费者。
+        // 消息字节直接流式解码为 OrderEvent，订单项留到下游并行的拆分算子中再解码
+        RMQSource<OrderEvent> rabbitSource = new RMQSource<>(
                 connectionConfig,
-                "order_queue",
-                false,
-                new SimpleStringSchema()
+                config.getOrderQueue(),
+                config.isUsesCorrelationId(),
+                new OrderEventDeserializationSchema()
         );
 
-        DataStream<Tuple3<Order, Product, OrderItem>> processedStream = env.addSource(rabbitSource)
-                .flatMap(new FlatMapFunction<String, Tuple3<Order, Product, OrderItem>>() {
-                    @Override
-                    public void flatMap(String jsonMessage, Collector<Tuple3<Order, Product, OrderItem>> collector) throws Exception {
-                        System.out.println("🐇 Received raw message from RabbitMQ: " + jsonMessage);
-                        JSONObject orderDtoJson = new JSONObject(jsonMessage);
-
-                        // --- 解析 OrderDTO 顶级字段 ---
-                        // 订单ID在JSON中是字符串，但在Order实体中也可能是字符串
-                        String commonOrderIdString = orderDtoJson.getString("orderId");
-                        if (commonOrderIdString == null || commonOrderIdString.isEmpty()) {
-                            commonOrderIdString = UUID.randomUUID().toString();
-                            System.out.println("Flink: 为订单生成新的业务ID: " + commonOrderIdString);
-                        }
-                        
-                        // 订单ID在 OrderItem 实体中是 Long
-                        Long commonOrderIdLong = null;
-                        try {
-                            if (commonOrderIdString != null && !commonOrderIdString.isEmpty()) {
-                                commonOrderIdLong = Long.parseLong(commonOrderIdString);
-                            }
-                        } catch (NumberFormatException e) {
-                             System.err.println("Flink: 无法将订单ID '" + commonOrderIdString + "' 转换为 Long。");
-                        }
-
-
-                        // 用户ID在JSON中是Long，但可能在Order实体中是String
-                        Long userId = orderDtoJson.has("userId") && !orderDtoJson.isNull("userId")
-                                ? orderDtoJson.getLong("userId") : null;
+        // 校验并拆分订单消息：坏消息连同原始字节、原因、字段发到侧输出，不会让作业失败重启
+        SingleOutputStreamOperator<Tuple3<Order, Product, OrderItem>> processedStream = env.addSource(rabbitSource)
+                .name("RabbitMQ Source")
+                .uid("rabbitmq-order-source")
+                .setParallelism(1)
+                .process(new OrderMessageSplitter(config.getDebugSamplesPerSecond()))
+                .name("Parse Order Message")
+                .uid("parse-order-message");
+
+        // --- 死信队列：原始消息字节作为消息体，拒绝原因和字段放在 headers 中 ---
+        processedStream.getSideOutput(OrderMessageSplitter.REJECTED_MESSAGES)
+                .addSink(new RMQSink<>(connectionConfig, RejectedMessage::getPayload,
+                        new DeadLetterPublishOptions(config.getDeadLetterQueue())))
+                .name("RabbitMQ Dead Letter Sink")
+                .uid("rabbitmq-dead-letter-sink");
+
+        JdbcExecutionOptions executionOptions = JdbcExecutionOptions.builder()
+                .withBatchSize(config.getBatchSize())
+                .withBatchIntervalMs(config.getBatchIntervalMs())
+                .withMaxRetries(config.getMaxRetries())
+                .build();
 
-                        OrderStatus status = OrderStatus.UNKNOWN;
-                        if (orderDtoJson.has("status") && !orderDtoJson.isNull("status")) {
-                            try {
-                                status = OrderStatus.valueOf(orderDtoJson.getString("status").toUpperCase());
-                            } catch (IllegalArgumentException e) {
-                                System.err.println("Flink: 无法将状态字符串 '" + orderDtoJson.getString("status") + "' 转换为 OrderStatus 枚举。设为UNKNOWN。");
-                            }
-                        }
+        JdbcConnectionOptions connectionOptions = new JdbcConnectionOptions.JdbcConnectionOptionsBuilder()
+                .withUrl(config.getMysqlUrl())
+                .withDriverName(config.getMysqlDriver())
+                .withUsername(config.getMysqlUsername())
+                .withPassword(config.getMysqlPassword())
+                .build();
 
-                        ZoneId cstZoneId = ZoneId.of("Asia/Shanghai");
-                        LocalDateTime createTime, updateTime;
-                        
-                        ZonedDateTime zonedCreateTime = orderDtoJson.has("createdAt") && !orderDtoJson.isNull("createdAt")
-                            ? ZonedDateTime.parse(orderDtoJson.getString("createdAt"), DateTimeFormatter.ISO_DATE_TIME)
-                            : ZonedDateTime.now(cstZoneId);
-                        createTime = zonedCreateTime.withZoneSameInstant(cstZoneId).toLocalDateTime();
-
-                        ZonedDateTime zonedUpdateTime = orderDtoJson.has("updatedAt") && !orderDtoJson.isNull("updatedAt")
-                            ? ZonedDateTime.parse(orderDtoJson.getString("updatedAt"), DateTimeFormatter.ISO_DATE_TIME)
-                            : ZonedDateTime.now(cstZoneId);
-                        updateTime = zonedUpdateTime.withZoneSameInstant(cstZoneId).toLocalDateTime();
-
-                        // --- 解析 items 数组 ---
-                        if (orderDtoJson.has("items") && !orderDtoJson.isNull("items")) {
-                            JSONArray itemsArray = orderDtoJson.getJSONArray("items");
-
-                            for (int i = 0; i < itemsArray.length(); i++) {
-                                JSONObject itemJson = itemsArray.getJSONObject(i);
-                                
-                                Long productId = itemJson.getLong("productId");
-                                String productName = itemJson.getString("productName");
-                                Integer quantity = itemJson.getInt("quantity");
-                                BigDecimal unitPrice = new BigDecimal(itemJson.getString("unitPrice"));
-                                BigDecimal itemTotalAmount = unitPrice.multiply(BigDecimal.valueOf(quantity));
-                                
-                                // 1. 创建 Order 实体
-                                Order orderEntity = new Order();
-                                orderEntity.setOrderId(commonOrderIdString); // 假设 Order 实体的 orderId 是 String
-                                orderEntity.setUserId(String.valueOf(userId)); // 假设 Order 实体的 userId 是 String
-                                orderEntity.setStatus(status);
-                                orderEntity.setCreateTime(createTime);
-                                orderEntity.setUpdateTime(updateTime);
-                                orderEntity.setProductId(String.valueOf(productId)); // 假设 Order 实体的 productId 是 String
-                                orderEntity.setQuantity(quantity);
-                                orderEntity.setUnitPrice(unitPrice);
-                                orderEntity.setTotalAmount(itemTotalAmount);
-
-                                // 2. 创建 Product 实体
-                                Product productEntity = new Product();
-                                productEntity.setProductId(productId);
-                                productEntity.setProductName(productName);
-                                productEntity.setUnitPrice(unitPrice);
-
-                                // 3. 创建 OrderItem 实体
-                                OrderItem orderItemEntity = new OrderItem();
-                                orderItemEntity.setOrderId(commonOrderIdLong); // **修正：这里使用 Long 类型的 orderId**
-                                orderItemEntity.setProductId(productId);
-                                orderItemEntity.setQuantity(quantity);
-                                orderItemEntity.setUnitPrice(unitPrice);
-                                orderItemEntity.setTotalAmount(itemTotalAmount);
-
-                                collector.collect(new Tuple3<>(orderEntity, productEntity, orderItemEntity));
-                            }
-                        } else {
-                            System.out.println("Flink: 订单 " + commonOrderIdString + " 没有包含有效的订单项，不写入数据库。");
+        // --- 商品维表：按 productId 分区处理，只有变化的商品才 upsert 到 products ---
+        DataStream<Tuple3<Order, Product, OrderItem>> factStream = processedStream;
+        SingleOutputStreamOperator<Tuple3<Order, Product, OrderItem>> productStage = null;
+        if (productScd2) {
+            // SCD2：按版本维护商品历史，版本行写 product_dim
+            productStage = processedStream
+                    .keyBy(t -> t.f1.getProductId())
+                    .process(new ProductHistoryFunction())
+                    .name("Product History (SCD2)")
+                    .uid("product-history-scd2");
+            productStage.getSideOutput(ProductHistoryFunction.PRODUCT_VERSIONS)
+                    .addSink(JdbcSink.sink(OrderTableSink.PRODUCT_DIM_UPSERT_SQL, OrderTableSink::bindProductVersion,
+                            executionOptions, connectionOptions))
+                    .name("MySQL Product Dim Sink")
+                    .uid("mysql-product-dim-sink");
+        } else if (config.isProductDedup()) {
+            productStage = processedStream
+                    .keyBy(t -> t.f1.getProductId())
+                    .process(new ProductChangeFilter(config.getProductDedupTtlMinutes()))
+                    .name("Product Change Filter")
+                    .uid("product-change-filter");
+        }
+        if (productStage != null) {
+            productStage.getSideOutput(ProductChangeFilter.CHANGED_PRODUCTS)
+                    .addSink(JdbcSink.sink(OrderTableSink.PRODUCT_UPSERT_SQL, OrderTableSink::bindProduct,
+                            executionOptions, connectionOptions))
+                    .name("MySQL Product Sink")
+                    .uid("mysql-product-sink");
+            factStream = productStage;
+        }
+
+        // 按 orderId 分区后，同一订单的所有行都落到同一个写入子任务；
+        // 来自同一条上游通道的行保持发出时的顺序（开启商品去重时，同一订单不同商品的行之间不保证先后）。
+        KeyedStream<Tuple3<Order, Product, OrderItem>, String> keyedByOrder = factStream
+                .keyBy(t -> t.f0.getOrderId());
+
+        // --- 写入批次参数的控制流：控制队列中的消息广播给每个写入子任务，运行时生效 ---
+        DataStream<Either<Tuple3<Order, Product, OrderItem>, SinkSettings>> sinkInput;
+        if (config.hasControlQueue()) {
+            BroadcastStream<SinkSettings> controlStream = env
+                    .addSource(new RMQSource<>(connectionConfig, config.getControlQueue(), new SinkSettingsDeserializationSchema()))
+                    .name("RabbitMQ Control Source")
+                    .uid("rabbitmq-control-source")
+                    .setParallelism(1)
+                    .broadcast(SinkSettingsBroadcaster.SETTINGS_DESCRIPTOR);
+            sinkInput = keyedByOrder
+                    .connect(controlStream)
+                    .process(new SinkSettingsBroadcaster(config.initialSinkSettings()))
+                    .name("Sink Settings")
+                    .uid("sink-settings")
+                    .setParallelism(sinkParallelism);
+        } else {
+            sinkInput = keyedByOrder
+                    .map(new MapFunction<Tuple3<Order, Product, OrderItem>, Either<Tuple3<Order, Product, OrderItem>, SinkSettings>>() {
+                        @Override
+                        public Either<Tuple3<Order, Product, OrderItem>, SinkSettings> map(Tuple3<Order, Product, OrderItem> row) {
+                            return Either.Left(row);
                         }
-                    }
-                });
-
-        // --- 1. 将数据写入 orders 表 ---
-        DataStream<Order> orderStream = processedStream.map(t -> t.f0);
-        orderStream.addSink(JdbcSink.sink(
-                "INSERT INTO orders (order_id, user_id, product_id, quantity, unit_price, total_amount, order_status, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
-                (statement, order) -> {
-                    System.out.println("💾 Preparing to write order to MySQL: " + order);
-                    statement.setString(1, order.getOrderId());
-                    statement.setString(2, order.getUserId());
-                    statement.setString(3, order.getProductId());
-                    statement.setInt(4, order.getQuantity());
-                    statement.setBigDecimal(5, order.getUnitPrice());
-                    statement.setBigDecimal(6, order.getTotalAmount());
-                    statement.setString(7, order.getStatus() != null ? order.getStatus().name() : null);
-                    statement.setTimestamp(8, Timestamp.valueOf(order.getCreateTime()));
-                    statement.setTimestamp(9, Timestamp.valueOf(order.getUpdateTime()));
-                    System.out.println("💾 Finished preparing statement for OrderID: " + order.getOrderId());
-                },
-                JdbcExecutionOptions.builder().withBatchSize(100).withBatchIntervalMs(500).withMaxRetries(5).build(),
-                new JdbcConnectionOptions.JdbcConnectionOptionsBuilder()
-                        .withUrl("jdbc:mysql://127.0.0.1:3306/ecommerce?useSSL=false&serverTimezone=Asia/Shanghai")
-                        .withDriverName("com.mysql.cj.jdbc.Driver")
-                        .withUsername("root")
-                        .withPassword("093390Aa")
-                        .build()
-        ));
-        
-        // --- 2. 将数据写入 products 表 ---
-        DataStream<Product> productStream = processedStream.map(t -> t.f1);
-        productStream.addSink(JdbcSink.sink(
-                "INSERT INTO products (product_id, product_name, unit_price) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE product_name = VALUES(product_name), unit_price = VALUES(unit_price)",
-                (statement, product) -> {
-                    statement.setLong(1, product.getProductId());
-                    statement.setString(2, product.getProductName());
-                    statement.setBigDecimal(3, product.getUnitPrice());
-                    System.out.println("💾 Writing product to MySQL: " + product.getProductId());
-                },
-                JdbcExecutionOptions.builder().withBatchSize(100).withBatchIntervalMs(500).withMaxRetries(5).build(),
-                new JdbcConnectionOptions.JdbcConnectionOptionsBuilder()
-                        .withUrl("jdbc:mysql://127.0.0.1:3306/ecommerce?useSSL=false&serverTimezone=Asia/Shanghai")
-                        .withDriverName("com.mysql.cj.jdbc.Driver")
-                        .withUsername("root")
-                        .withPassword("093390Aa")
-                        .build()
-        ));
-
-        // --- 3. 将数据写入 order_items 表 ---
-        DataStream<OrderItem> orderItemStream = processedStream.map(t -> t.f2);
-        orderItemStream.addSink(JdbcSink.sink(
-                "INSERT INTO order_items (order_id, product_id, quantity, unit_price, total_amount) VALUES (?, ?, ?, ?, ?)",
-                (statement, orderItem) -> {
-                    statement.setLong(1, orderItem.getOrderId()); // **修正：使用 setLong**
-                    statement.setLong(2, orderItem.getProductId());
-                    statement.setInt(3, orderItem.getQuantity());
-                    statement.setBigDecimal(4, orderItem.getUnitPrice());
-                    statement.setBigDecimal(5, orderItem.getTotalAmount());
-                    System.out.println("💾 Writing order item to MySQL: " + orderItem.getOrderId());
-                },
-                JdbcExecutionOptions.builder().withBatchSize(100).withBatchIntervalMs(500).withMaxRetries(5).build(),
-                new JdbcConnectionOptions.JdbcConnectionOptionsBuilder()
-                        .withUrl("jdbc:mysql://127.0.0.1:3306/ecommerce?useSSL=false&serverTimezone=Asia/Shanghai")
-                        .withDriverName("com.mysql.cj.jdbc.Driver")
-                        .withUsername("root")
-                        .withPassword("093390Aa")
-                        .build()
-        ));
-
+                    })
+                    .name("Sink Rows")
+                    .uid("sink-rows")
+                    .setParallelism(sinkParallelism);
+        }
+
+        // --- 将 orders、order_items（以及未去重时的 products）在同一个 Sink 中按批次、按事务写入 ---
+        sinkInput.addSink(new OrderTableSink(connectionOptions, executionOptions, productStage == null, productScd2))
+                .name("MySQL Order Sink")
+                .uid("mysql-order-sink")
+                .setParallelism(sinkParallelism);
+
+        if (config.isSalesAggregates()) {
+            // --- 销售预聚合：事件时间窗口 + 增量 AggregateFunction，窗口内只保存一个累加器 ---
+            KeyedStream<Tuple3<Order, Product, OrderItem>, Long> salesByProduct = processedStream
+                    .assignTimestampsAndWatermarks(WatermarkStrategy
+                            .<Tuple3<Order, Product, OrderItem>>forBoundedOutOfOrderness(Duration.ofSeconds(config.getSalesOutOfOrdernessSeconds()))
+                            .withTimestampAssigner((t, recordTimestamp) ->
+                                    t.f0.getCreateTime().atZone(ZoneId.of("Asia/Shanghai")).toInstant().toEpochMilli())
+                            // 某个解析子任务长时间没有订单时，不阻塞整体 watermark 前进
+                            .withIdleness(Duration.ofMinutes(1)))
+                    .name("Order Event Time")
+                    .uid("order-event-time")
+                    .keyBy(t -> t.f1.getProductId());
+
+            // 窗口关闭后再保留 allowedLateness：期间的迟到订单重新触发窗口，写入端按主键覆盖修正已写入的行；
+            // 更晚的订单行从侧输出计数
+            Time allowedLateness = Time.seconds(config.getSalesAllowedLatenessSeconds());
+            SingleOutputStreamOperator<ProductSales> perMinuteSales = salesByProduct
+                    .window(TumblingEventTimeWindows.of(Time.minutes(1)))
+                    .allowedLateness(allowedLateness)
+                    .sideOutputLateData(ProductSalesWindowFunction.LATE_ORDER_LINES)
+                    .aggregate(new ProductSalesAggregate(), new ProductSalesWindowFunction())
+                    .name("Product Sales Per Minute")
+                    .uid("product-sales-per-minute");
+            SingleOutputStreamOperator<ProductSales> slidingSales = salesByProduct
+                    .window(SlidingEventTimeWindows.of(Time.minutes(config.getSalesSlidingSizeMinutes()), Time.minutes(config.getSalesSlidingSlideMinutes())))
+                    .allowedLateness(allowedLateness)
+                    .sideOutputLateData(ProductSalesWindowFunction.LATE_ORDER_LINES)
+                    .aggregate(new ProductSalesAggregate(), new ProductSalesWindowFunction())
+                    .name("Product Sales Sliding")
+                    .uid("product-sales-sliding");
+
+            perMinuteSales.getSideOutput(ProductSalesWindowFunction.LATE_ORDER_LINES)
+                    .addSink(new LateOrderLineSink())
+                    .name("Late Sales Per Minute")
+                    .uid("late-sales-per-minute");
+            slidingSales.getSideOutput(ProductSalesWindowFunction.LATE_ORDER_LINES)
+                    .addSink(new LateOrderLineSink())
+                    .name("Late Sales Sliding")
+                    .uid("late-sales-sliding");
+
+            perMinuteSales.union(slidingSales)
+                    .addSink(JdbcSink.sink(OrderTableSink.PRODUCT_SALES_UPSERT_SQL, OrderTableSink::bindProductSales,
+                            executionOptions, connectionOptions))
+                    .name("MySQL Sales Aggregate Sink")
+                    .uid("mysql-sales-aggregate-sink");
+        }
 
         env.execute("Ecommerce Order Processing Job");
     }
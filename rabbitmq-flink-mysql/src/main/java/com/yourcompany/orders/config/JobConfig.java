@@ -0,0 +1,201 @@
+package com.yourcompany.orders.config;
+
+import org.apache.flink.api.java.utils.ParameterTool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 订单作业的类型化配置。
+ *
+ * <p>配置按以下顺序叠加，后者覆盖前者：
+ * <ol>
+ *     <li>jar 内的 application.properties（默认值）</li>
+ *     <li>--config 指定的外部 properties 文件（各环境的地址、账号、调优参数，不必重新打包）</li>
+ *     <li>命令行参数，例如 --sink.batch-size 1000</li>
+ * </ol>
+ * 写入批次相关的参数（batch size / interval / max retries）还可以在运行时通过控制队列调整，
+ * 见 {@link SinkSettings}。
+ */
+public class JobConfig implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final String DEFAULTS_RESOURCE = "/application.properties";
+
+    private final ParameterTool parameters;
+
+    // --- 并行度与 checkpoint ---
+    private final int parallelism;
+    private final int sinkParallelism;
+    private final long checkpointInterval;
+
+    // --- RabbitMQ ---
+    private final String rabbitHost;
+    private final int rabbitPort;
+    private final String rabbitUsername;
+    private final String rabbitPassword;
+    private final String rabbitVirtualHost;
+    private final String orderQueue;
+    private final int prefetchCount;
+    private final boolean usesCorrelationId;
+    private final String deadLetterQueue;
+    private final String controlQueue;
+
+    // --- MySQL ---
+    private final String mysqlUrl;
+    private final String mysqlDriver;
+    private final String mysqlUsername;
+    private final String mysqlPassword;
+    private final int batchSize;
+    private final long batchIntervalMs;
+    private final int maxRetries;
+
+    // --- 商品维表 ---
+    private final boolean productDedup;
+    private final long productDedupTtlMinutes;
+    private final boolean productScd2;
+
+    // --- 销售预聚合 ---
+    private final boolean salesAggregates;
+    private final long salesOutOfOrdernessSeconds;
+    private final long salesAllowedLatenessSeconds;
+    private final long salesSlidingSizeMinutes;
+    private final long salesSlidingSlideMinutes;
+
+    // --- 调试 ---
+    private final int debugSamplesPerSecond;
+
+    private JobConfig(ParameterTool params) {
+        this.parameters = params;
+
+        // 解析/拆分算子的并行度，默认 1 与原来的单槽行为一致
+        this.parallelism = params.getInt("parallelism", 1);
+        // JDBC 写入算子的并行度，每个写入子任务持有一个 MySQL 连接，也就是写入端的连接数
+        this.sinkParallelism = params.getInt("sink.parallelism", parallelism);
+        // Checkpoint 间隔（毫秒），大于 0 时开启 checkpoint 模式：
+        // Source 的 ack 与 JDBC 批次的 flush 都跟随 checkpoint，崩溃后从上一个 checkpoint 重放
+        this.checkpointInterval = params.getLong("checkpoint.interval", 0L);
+        boolean checkpointed = checkpointInterval > 0;
+
+        this.rabbitHost = params.get("rabbitmq.host", "localhost");
+        this.rabbitPort = params.getInt("rabbitmq.port", 5672);
+        this.rabbitUsername = params.get("rabbitmq.username", "guest");
+        this.rabbitPassword = params.get("rabbitmq.password", "guest");
+        this.rabbitVirtualHost = params.get("rabbitmq.virtual-host", "/");
+        this.orderQueue = params.get("rabbitmq.queue", "order_queue");
+        // 消费者未确认消息的上限；checkpoint 模式下消息在 checkpoint 完成后才确认，上限至少要覆盖一个 checkpoint 间隔的流量
+        this.prefetchCount = params.getInt("rabbitmq.prefetch", 0);
+        // 是否按 AMQP correlation_id 去重（只在 checkpoint 模式下生效）。开启后 RMQSource 遇到没有 correlation_id 的消息
+        // 会直接失败，作业反复重启；Node.js 生产者不设置 correlation_id，所以默认关闭，
+        // 只有所有生产者都设置 correlation_id 时才能开启。关闭时重放的消息由 upsert 保证幂等
+        this.usesCorrelationId = params.getBoolean("rabbitmq.correlation-id", false);
+        // 校验失败的订单消息投递到的死信队列
+        this.deadLetterQueue = params.get("rabbitmq.dead-letter-queue", "order_queue_dlq");
+        // 运行时调整写入批次参数的控制队列，为空表示不开启
+        this.controlQueue = params.get("rabbitmq.control-queue", "");
+
+        this.mysqlUrl = params.get("mysql.url",
+                "jdbc:mysql://127.0.0.1:3306/ecommerce?useSSL=false&serverTimezone=Asia/Shanghai&rewriteBatchedStatements=true");
+        this.mysqlDriver = params.get("mysql.driver", "com.mysql.cj.jdbc.Driver");
+        this.mysqlUsername = params.get("mysql.username", "root");
+        this.mysqlPassword = params.get("mysql.password", "");
+        // checkpoint 模式下批次由 checkpoint 触发提交：不按时间 flush，重试也交给作业级重启 + 幂等 upsert
+        this.batchSize = params.getInt("sink.batch-size", checkpointed ? 5000 : 100);
+        this.batchIntervalMs = params.getLong("sink.batch-interval-ms", checkpointed ? 0L : 500L);
+        this.maxRetries = params.getInt("sink.max-retries", checkpointed ? 0 : 5);
+
+        // 商品维表去重：只有名称/单价变化的商品才写 products，状态 TTL（分钟）到期后重新写一次
+        this.productDedup = params.getBoolean("product.dedup", true);
+        this.productDedupTtlMinutes = params.getLong("product.dedup-ttl-minutes", 60L);
+        // 商品维表 SCD2：在 product_dim 中保留历史版本，order_items 写入 product_sk；开启后取代上面的去重
+        this.productScd2 = params.getBoolean("product.scd2", false);
+
+        // 销售预聚合分支：按订单 createdAt 的事件时间，计算每个商品每分钟及滑动窗口内的销量和销售额
+        this.salesAggregates = params.getBoolean("sales.aggregates", false);
+        this.salesOutOfOrdernessSeconds = params.getLong("sales.out-of-orderness-seconds", 5L);
+        // watermark 越过窗口结束后，窗口状态再保留多久：期间到达的迟到订单会让窗口重新触发，按主键覆盖已写入的汇总行
+        this.salesAllowedLatenessSeconds = params.getLong("sales.allowed-lateness-seconds", 60L);
+        this.salesSlidingSizeMinutes = params.getLong("sales.sliding-size-minutes", 60L);
+        this.salesSlidingSlideMinutes = params.getLong("sales.sliding-slide-minutes", 5L);
+
+        // 调试用：每秒最多把多少条原始消息打印到 TaskManager 日志，默认 0 不打印
+        this.debugSamplesPerSecond = params.getInt("debug.sample-per-second", 0);
+    }
+
+    /**
+     * 依次合并 jar 内默认配置、--config 指定的文件和命令行参数。
+     */
+    public static JobConfig load(String[] args) throws IOException {
+        ParameterTool cli = ParameterTool.fromArgs(args);
+        ParameterTool params = ParameterTool.fromMap(Collections.emptyMap());
+        try (InputStream defaults = JobConfig.class.getResourceAsStream(DEFAULTS_RESOURCE)) {
+            if (defaults != null) {
+                params = ParameterTool.fromPropertiesFile(defaults);
+            }
+        }
+        if (cli.has("config")) {
+            params = params.mergeWith(ParameterTool.fromPropertiesFile(cli.get("config")));
+        }
+        return new JobConfig(params.mergeWith(cli));
+    }
+
+    /**
+     * 启动时的批次参数，作为控制队列调整前的初始值。
+     */
+    public SinkSettings initialSinkSettings() {
+        return new SinkSettings(batchSize, batchIntervalMs, maxRetries);
+    }
+
+    /**
+     * 去掉密码后的参数，用于 setGlobalJobParameters：全局参数会显示在 Flink Web UI 上。
+     */
+    public ParameterTool getPublicParameters() {
+        Map<String, String> visible = new HashMap<>(parameters.toMap());
+        visible.keySet().removeIf(key -> key.endsWith("password"));
+        return ParameterTool.fromMap(visible);
+    }
+
+    public boolean isCheckpointed() {
+        return checkpointInterval > 0;
+    }
+
+    public boolean hasControlQueue() {
+        return !controlQueue.isEmpty();
+    }
+
+    // Getters
+    public ParameterTool getParameters() { return parameters; }
+    public int getParallelism() { return parallelism; }
+    public int getSinkParallelism() { return sinkParallelism; }
+    public long getCheckpointInterval() { return checkpointInterval; }
+    public String getRabbitHost() { return rabbitHost; }
+    public int getRabbitPort() { return rabbitPort; }
+    public String getRabbitUsername() { return rabbitUsername; }
+    public String getRabbitPassword() { return rabbitPassword; }
+    public String getRabbitVirtualHost() { return rabbitVirtualHost; }
+    public String getOrderQueue() { return orderQueue; }
+    public int getPrefetchCount() { return prefetchCount; }
+    public boolean isUsesCorrelationId() { return usesCorrelationId; }
+    public String getDeadLetterQueue() { return deadLetterQueue; }
+    public String getControlQueue() { return controlQueue; }
+    public String getMysqlUrl() { return mysqlUrl; }
+    public String getMysqlDriver() { return mysqlDriver; }
+    public String getMysqlUsername() { return mysqlUsername; }
+    public String getMysqlPassword() { return mysqlPassword; }
+    public int getBatchSize() { return batchSize; }
+    public long getBatchIntervalMs() { return batchIntervalMs; }
+    public int getMaxRetries() { return maxRetries; }
+    public boolean isProductDedup() { return productDedup; }
+    public long getProductDedupTtlMinutes() { return productDedupTtlMinutes; }
+    public boolean isProductScd2() { return productScd2; }
+    public boolean isSalesAggregates() { return salesAggregates; }
+    public long getSalesOutOfOrdernessSeconds() { return salesOutOfOrdernessSeconds; }
+    public long getSalesAllowedLatenessSeconds() { return salesAllowedLatenessSeconds; }
+    public long getSalesSlidingSizeMinutes() { return salesSlidingSizeMinutes; }
+    public long getSalesSlidingSlideMinutes() { return salesSlidingSlideMinutes; }
+    public int getDebugSamplesPerSecond() { return debugSamplesPerSecond; }
+}
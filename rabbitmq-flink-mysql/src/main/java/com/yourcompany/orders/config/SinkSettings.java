@@ -0,0 +1,60 @@
+package com.yourcompany.orders.config;
+
+import java.io.Serializable;
+
+/**
+ * 订单写入 Sink 的批次参数，可在运行时通过控制队列调整。
+ * 控制消息只需要包含要修改的字段，例如 {"batchSize": 1000}，其余字段为 null 表示保持不变。
+ */
+public class SinkSettings implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Integer batchSize;
+    private Long batchIntervalMs;
+    private Integer maxRetries;
+
+    // Flink POJO 需要无参构造函数
+    public SinkSettings() {}
+
+    public SinkSettings(Integer batchSize, Long batchIntervalMs, Integer maxRetries) {
+        this.batchSize = batchSize;
+        this.batchIntervalMs = batchIntervalMs;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * 用 update 中非 null 的字段覆盖当前值，返回新的对象。
+     */
+    public SinkSettings mergeWith(SinkSettings update) {
+        return new SinkSettings(
+                update.batchSize != null ? update.batchSize : batchSize,
+                update.batchIntervalMs != null ? update.batchIntervalMs : batchIntervalMs,
+                update.maxRetries != null ? update.maxRetries : maxRetries);
+    }
+
+    /**
+     * 拒绝明显不合理的值，避免一条写错的控制消息把 Sink 调成每行一个事务或永不 flush。
+     */
+    public boolean isValid() {
+        return (batchSize == null || batchSize > 0)
+                && (batchIntervalMs == null || batchIntervalMs >= 0)
+                && (maxRetries == null || maxRetries >= 0);
+    }
+
+    // Getters and Setters
+    public Integer getBatchSize() { return batchSize; }
+    public void setBatchSize(Integer batchSize) { this.batchSize = batchSize; }
+    public Long getBatchIntervalMs() { return batchIntervalMs; }
+    public void setBatchIntervalMs(Long batchIntervalMs) { this.batchIntervalMs = batchIntervalMs; }
+    public Integer getMaxRetries() { return maxRetries; }
+    public void setMaxRetries(Integer maxRetries) { this.maxRetries = maxRetries; }
+
+    @Override
+    public String toString() {
+        return "SinkSettings{" +
+               "batchSize=" + batchSize +
+               ", batchIntervalMs=" + batchIntervalMs +
+               ", maxRetries=" + maxRetries +
+               '}';
+    }
+}
@@ -11,6 +11,7 @@ public class OrderItem {
     private BigDecimal unitPrice; // 对应 unit_price
     private Integer quantity;
     private BigDecimal totalAmount; // 对应 total_price
+    private Long productKey; // 对应 product_sk，SCD2 模式下指向下单时有效的商品版本
 
     // 构造函数
     public OrderItem() {}
@@ -30,6 +31,8 @@ public class OrderItem {
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
     public BigDecimal getTotalAmount() { return totalAmount; }
     public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    public Long getProductKey() { return productKey; }
+    public void setProductKey(Long productKey) { this.productKey = productKey; }
 
     @Override
     public String toString() {
@@ -39,6 +42,7 @@ public class OrderItem {
                ", productId=" + productId +
                ", productName='" + productName + '\'' +
                ", quantity=" + quantity +
+               ", productKey=" + productKey +
                '}';
     }
 }
@@ -0,0 +1,23 @@
+package com.yourcompany.orders.entity;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 某个商品在一个时间窗口内的销售汇总，对应 product_sales_agg 表的一行。
+ * 同时作为窗口增量聚合的累加器使用：窗口内只保存这一条汇总，不缓存原始订单行。
+ */
+@Data
+public class ProductSales {
+    private Long productId;
+    private LocalDateTime windowStart;
+    private LocalDateTime windowEnd;
+    private Integer windowSizeSeconds; // 区分滚动窗口（60）与滑动窗口（窗口长度）
+    private long quantity;
+    private BigDecimal revenue = BigDecimal.ZERO;
+    private long orderLines;
+
+    public ProductSales() {
+    }
+}
@@ -0,0 +1,57 @@
+package com.yourcompany.orders.entity;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 商品维表的一个历史版本（SCD Type 2），对应 product_dim 表的一行。
+ * 名称或单价变化时关闭旧版本（写入 validTo、current=false）并生成新版本。
+ */
+@Data
+public class ProductVersion {
+    // 每个商品最多保留的版本数，用于从 (productId, version) 推导代理键
+    public static final long MAX_VERSIONS_PER_PRODUCT = 1_000_000L;
+
+    private Long productKey;   // 代理键 product_sk
+    private Long productId;    // 业务键 product_id
+    private Integer version;   // 从 1 开始递增
+    private String productName;
+    private BigDecimal unitPrice;
+    private LocalDateTime validFrom;
+    private LocalDateTime validTo; // 当前版本为 null
+    private boolean current;
+
+    public ProductVersion() {
+    }
+
+    /**
+     * 代理键由 (productId, version) 确定性地推导：同一版本在作业重放时得到相同的键，
+     * 写入是幂等的，也不需要回查数据库取自增 ID。
+     *
+     * @throws IllegalStateException 版本号超出 [1, MAX_VERSIONS_PER_PRODUCT) 或代理键超出 long 范围
+     */
+    public static long surrogateKey(long productId, int version) {
+        if (version < 1 || version >= MAX_VERSIONS_PER_PRODUCT) {
+            throw new IllegalStateException("商品 " + productId + " 的版本号超出范围: " + version);
+        }
+        try {
+            return Math.addExact(Math.multiplyExact(productId, MAX_VERSIONS_PER_PRODUCT), version);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("商品ID过大，无法推导代理键: " + productId, e);
+        }
+    }
+
+    public ProductVersion copy() {
+        ProductVersion copy = new ProductVersion();
+        copy.setProductKey(productKey);
+        copy.setProductId(productId);
+        copy.setVersion(version);
+        copy.setProductName(productName);
+        copy.setUnitPrice(unitPrice);
+        copy.setValidFrom(validFrom);
+        copy.setValidTo(validTo);
+        copy.setCurrent(current);
+        return copy;
+    }
+}
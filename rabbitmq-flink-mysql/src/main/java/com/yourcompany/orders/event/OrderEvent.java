@@ -0,0 +1,207 @@
+package com.yourcompany.orders.event;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.yourcompany.orders.serialization.OrderMessageFormat;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * 从 RabbitMQ 订单消息中解码出的订单事件。
+ * 顶层字段（orderId、userId、status、时间）在 Source 中直接解析；
+ * items 数组只记录其在原始消息字节中的位置，由下游并行算子调用 {@link #forEachItem} 时再按需解码，
+ * 这样单并行度的 Source 线程只做最少的工作，也不会为订单项构建任何中间 JSON 树。
+ * 消息可以是 JSON、Smile 或 CBOR（见 {@link OrderMessageFormat}），按 {@link #getFormat()} 解码。
+ */
+public class OrderEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String orderId;
+    private Long userId;
+    private String status;
+    private String createdAt; // ISO-8601 字符串，转换成 LocalDateTime 的开销留给下游并行算子
+    private String updatedAt;
+
+    private byte[] payload;   // 原始消息字节
+    private OrderMessageFormat format = OrderMessageFormat.JSON; // 消息体的编码格式，来自 content_type
+    private String parseError;      // 消息无法解码时的错误信息，由下游校验算子转入死信队列
+    private String parseErrorField; // 解码出错时正在读取的字段
+    private int itemsOffset = -1; // items 数组 '[' 在 payload 中的偏移，-1 表示消息中没有 items；二进制格式只用来表示有没有 items
+    private int itemsLength;
+
+    // Flink POJO 需要无参构造函数
+    public OrderEvent() {}
+
+    /**
+     * 订单项访问器。每个订单项回调一次，传入的 {@link Item} 对象在遍历过程中会被复用，
+     * 不要在回调之外持有它的引用。
+     */
+    @FunctionalInterface
+    public interface ItemVisitor {
+        void visit(Item item) throws Exception;
+    }
+
+    /**
+     * 按消息中的顺序逐个解码订单项。
+     */
+    public void forEachItem(ItemVisitor visitor) throws Exception {
+        if (!hasItems()) {
+            return;
+        }
+        Item item = new Item();
+        try (JsonParser parser = openItems()) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                item.reset();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (value == JsonToken.VALUE_NULL) {
+                        continue;
+                    }
+                    switch (field) {
+                        case "productId":
+                            item.productId = readLong(parser);
+                            break;
+                        case "productName":
+                            item.productName = parser.getText();
+                            break;
+                        case "quantity":
+                            item.quantity = readInt(parser, "quantity");
+                            break;
+                        case "unitPrice":
+                            // 数字和字符串都保留原始文本，交给 BigDecimal 解析以保证精度
+                            item.unitPrice = parser.getText();
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+                visitor.visit(item);
+            }
+            // 数组中出现非对象元素（例如 [{...}, 5, {...}]）时上面的循环会提前结束，不能把剩下的订单项悄悄丢掉
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("items 中的元素必须是对象，遇到: " + parser.currentToken());
+            }
+        }
+    }
+
+    /**
+     * 返回停在 items 数组开头（START_ARRAY）的解析器。JSON 直接从记录的偏移处开始解析；
+     * 二进制格式不能从中间开始，从消息开头解析并跳过顶层的其他字段。
+     */
+    private JsonParser openItems() throws IOException {
+        if (format.isTextual()) {
+            JsonParser parser = format.getFactory().createParser(payload, itemsOffset, itemsLength);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                throw new IOException("items 不是 JSON 数组");
+            }
+            return parser;
+        }
+        JsonParser parser = format.getFactory().createParser(payload);
+        try {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    boolean items = "items".equals(parser.getCurrentName());
+                    if (parser.nextToken() == JsonToken.START_ARRAY && items) {
+                        return parser;
+                    }
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+        parser.close();
+        throw new IOException("items 不是数组");
+    }
+
+    public boolean hasItems() {
+        return itemsOffset >= 0;
+    }
+
+    public boolean hasParseError() {
+        return parseError != null;
+    }
+
+    /**
+     * 数字字段在 JSON 中既可能是数字也可能是字符串（例如 userId 在后端 DTO 中是 String），两种都接受。
+     */
+    public static long readLong(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        return Long.parseLong(parser.getText().trim());
+    }
+
+    /**
+     * 同 {@link #readLong}，超出 int 范围时抛出异常而不是截断，整条消息由下游转入死信队列。
+     */
+    public static int readInt(JsonParser parser, String field) throws IOException {
+        long value = readLong(parser);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException(field + " 超出 int 范围: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * 单个订单项的可复用视图。
+     */
+    public static class Item {
+        private Long productId;
+        private String productName;
+        private Integer quantity;
+        private String unitPrice;
+
+        void reset() {
+            productId = null;
+            productName = null;
+            quantity = null;
+            unitPrice = null;
+        }
+
+        public Long getProductId() { return productId; }
+        public String getProductName() { return productName; }
+        public Integer getQuantity() { return quantity; }
+        public String getUnitPrice() { return unitPrice; }
+    }
+
+    // Getters and Setters
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getCreatedAt() { return createdAt; }
+    public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
+    public String getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(String updatedAt) { this.updatedAt = updatedAt; }
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+    public OrderMessageFormat getFormat() { return format; }
+    public void setFormat(OrderMessageFormat format) { this.format = format; }
+    public String getParseError() { return parseError; }
+    public void setParseError(String parseError) { this.parseError = parseError; }
+    public String getParseErrorField() { return parseErrorField; }
+    public void setParseErrorField(String parseErrorField) { this.parseErrorField = parseErrorField; }
+    public int getItemsOffset() { return itemsOffset; }
+    public void setItemsOffset(int itemsOffset) { this.itemsOffset = itemsOffset; }
+    public int getItemsLength() { return itemsLength; }
+    public void setItemsLength(int itemsLength) { this.itemsLength = itemsLength; }
+
+    @Override
+    public String toString() {
+        return "OrderEvent{" +
+               "orderId='" + orderId + '\'' +
+               ", userId=" + userId +
+               ", status='" + status + '\'' +
+               ", createdAt='" + createdAt + '\'' +
+               ", format=" + format +
+               ", payloadBytes=" + (payload != null ? payload.length : 0) +
+               '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.yourcompany.orders.event;
+
+import java.io.Serializable;
+
+/**
+ * 未通过校验的订单消息，经侧输出发往死信队列。
+ * 保留原始消息字节，修复后可以原样重新投递到 order_queue。
+ */
+public class RejectedMessage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private byte[] payload;   // 原始消息字节
+    private String contentType; // 原始消息的 content_type，重新投递时原样带上
+    private String reason;    // 拒绝原因
+    private String field;     // 出错的字段，例如 orderId、items[2].unitPrice
+    private String orderId;   // 能解析出来时记录订单ID，便于排查
+    private long rejectedAt;  // 拒绝时间（毫秒时间戳）
+
+    // Flink POJO 需要无参构造函数
+    public RejectedMessage() {}
+
+    public RejectedMessage(byte[] payload, String contentType, String reason, String field, String orderId) {
+        this.payload = payload;
+        this.contentType = contentType;
+        this.reason = reason;
+        this.field = field;
+        this.orderId = orderId;
+        this.rejectedAt = System.currentTimeMillis();
+    }
+
+    // Getters and Setters
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+    public String getField() { return field; }
+    public void setField(String field) { this.field = field; }
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+    public long getRejectedAt() { return rejectedAt; }
+    public void setRejectedAt(long rejectedAt) { this.rejectedAt = rejectedAt; }
+
+    @Override
+    public String toString() {
+        return "RejectedMessage{" +
+               "orderId='" + orderId + '\'' +
+               ", field='" + field + '\'' +
+               ", reason='" + reason + '\'' +
+               ", payloadBytes=" + (payload != null ? payload.length : 0) +
+               '}';
+    }
+}
@@ -0,0 +1,305 @@
+package com.yourcompany.orders.function;
+
+import com.yourcompany.orders.common.OrderStatus;
+import com.yourcompany.orders.entity.Order;
+import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.Product;
+import com.yourcompany.orders.event.OrderEvent;
+import com.yourcompany.orders.event.RejectedMessage;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Histogram;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
+import org.apache.flink.streaming.api.functions.ProcessFunction;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.OutputTag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 校验订单消息并拆分为 (Order, Product, OrderItem) 行。
+ *
+ * <p>一条消息要么全部订单项都通过校验后一起发出，要么整条消息连同原始字节、拒绝原因和出错字段
+ * 发到 {@link #REJECTED_MESSAGES} 侧输出，由死信队列接收。校验失败不抛异常，
+ * 一条坏消息不会让作业反复失败重启、卡住后面的正常订单。
+ *
+ * <p>热路径上不打印日志，只更新指标（消息数、订单项数、拒绝数、每单订单项数分布）。
+ * 需要查看原始消息时，用 debugSamplesPerSecond 打开限速采样，每秒最多打印这么多条消息体。
+ */
+public class OrderMessageSplitter extends ProcessFunction<OrderEvent, Tuple3<Order, Product, OrderItem>> {
+    private static final long serialVersionUID = 1L;
+
+    public static final OutputTag<RejectedMessage> REJECTED_MESSAGES = new OutputTag<RejectedMessage>("rejected-messages") {};
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrderMessageSplitter.class);
+
+    private static final ZoneId CST_ZONE_ID = ZoneId.of("Asia/Shanghai");
+    private static final int HISTOGRAM_WINDOW_SIZE = 500;
+
+    private final int debugSamplesPerSecond;
+
+    private transient Counter messagesCounter;
+    private transient Counter itemsCounter;
+    private transient Counter rejectedCounter;
+    private transient Counter emptyOrdersCounter;
+    private transient Counter unknownStatusCounter;
+    private transient Histogram itemsPerOrderHistogram;
+
+    // 限速采样：当前这一秒的起始时间和已采样条数
+    private transient long sampleWindowStart;
+    private transient int sampledInWindow;
+
+    public OrderMessageSplitter() {
+        this(0);
+    }
+
+    public OrderMessageSplitter(int debugSamplesPerSecond) {
+        this.debugSamplesPerSecond = debugSamplesPerSecond;
+    }
+
+    @Override
+    public void open(Configuration parameters) {
+        messagesCounter = getRuntimeContext().getMetricGroup().counter("orderMessages");
+        getRuntimeContext().getMetricGroup().meter("orderMessagesPerSecond", new MeterView(messagesCounter));
+        itemsCounter = getRuntimeContext().getMetricGroup().counter("orderItems");
+        rejectedCounter = getRuntimeContext().getMetricGroup().counter("rejectedMessages");
+        emptyOrdersCounter = getRuntimeContext().getMetricGroup().counter("ordersWithoutItems");
+        unknownStatusCounter = getRuntimeContext().getMetricGroup().counter("unknownStatus");
+        itemsPerOrderHistogram = getRuntimeContext().getMetricGroup()
+                .histogram("itemsPerOrder", new DescriptiveStatisticsHistogram(HISTOGRAM_WINDOW_SIZE));
+    }
+
+    @Override
+    public void processElement(OrderEvent orderEvent, Context ctx,
+                               Collector<Tuple3<Order, Product, OrderItem>> out) {
+        messagesCounter.inc();
+        if (debugSamplesPerSecond > 0) {
+            sample(orderEvent);
+        }
+
+        if (orderEvent.hasParseError()) {
+            reject(ctx, orderEvent, "消息无法解码: " + orderEvent.getParseError(), orderEvent.getParseErrorField());
+            return;
+        }
+
+        List<Tuple3<Order, Product, OrderItem>> rows;
+        try {
+            rows = split(orderEvent);
+        } catch (Rejection e) {
+            reject(ctx, orderEvent, e.getMessage(), e.field);
+            return;
+        }
+
+        itemsPerOrderHistogram.update(rows.size());
+        if (rows.isEmpty()) {
+            // 没有订单项的订单不写入数据库
+            emptyOrdersCounter.inc();
+            return;
+        }
+        if (rows.get(0).f0.getStatus() == OrderStatus.UNKNOWN) {
+            unknownStatusCounter.inc();
+        }
+        itemsCounter.inc(rows.size());
+        for (Tuple3<Order, Product, OrderItem> row : rows) {
+            out.collect(row);
+        }
+    }
+
+    /**
+     * 每秒最多打印 debugSamplesPerSecond 条原始消息，用于排查消息内容，不会随流量放大日志量。
+     */
+    private void sample(OrderEvent orderEvent) {
+        long now = System.currentTimeMillis();
+        if (now - sampleWindowStart >= 1000L) {
+            sampleWindowStart = now;
+            sampledInWindow = 0;
+        }
+        if (sampledInWindow < debugSamplesPerSecond) {
+            sampledInWindow++;
+            byte[] payload = orderEvent.getPayload();
+            if (payload == null || orderEvent.getFormat().isTextual()) {
+                LOG.info("采样订单消息: {}", payload != null ? new String(payload, StandardCharsets.UTF_8) : null);
+            } else {
+                // 二进制消息打印 Base64，可以解码后用对应格式的工具查看
+                LOG.info("采样订单消息（{}，Base64）: {}", orderEvent.getFormat(), Base64.getEncoder().encodeToString(payload));
+            }
+        }
+    }
+
+    /**
+     * 解析并校验整条消息，任何字段不合法都抛出 {@link Rejection}，此时不会有任何行被发出。
+     */
+    private static List<Tuple3<Order, Product, OrderItem>> split(OrderEvent orderEvent) throws Rejection {
+        // --- 解析 OrderDTO 顶级字段 ---
+        // 订单ID在JSON中是字符串，order_items.order_id 是 BIGINT，必须是数字
+        final String orderIdString = orderEvent.getOrderId();
+        if (orderIdString == null || orderIdString.isEmpty()) {
+            throw new Rejection("缺少订单ID", "orderId");
+        }
+        final Long orderIdLong;
+        try {
+            orderIdLong = Long.parseLong(orderIdString);
+        } catch (NumberFormatException e) {
+            throw new Rejection("订单ID '" + orderIdString + "' 不是数字", "orderId");
+        }
+
+        // 用户ID在JSON中是Long，但在Order实体中是String
+        final Long userId = orderEvent.getUserId();
+
+        OrderStatus parsedStatus = OrderStatus.UNKNOWN;
+        if (orderEvent.getStatus() != null) {
+            try {
+                parsedStatus = OrderStatus.valueOf(orderEvent.getStatus().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // 无法识别的状态按 UNKNOWN 写入，由 unknownStatus 指标计数
+            }
+        }
+        final OrderStatus status = parsedStatus;
+
+        final LocalDateTime createTime = parseTime(orderEvent.getCreatedAt(), "createdAt");
+        final LocalDateTime updateTime = parseTime(orderEvent.getUpdatedAt(), "updatedAt");
+
+        // --- 按需解码 items 数组，全部通过校验后才返回 ---
+        List<Tuple3<Order, Product, OrderItem>> rows = new ArrayList<>();
+        if (!orderEvent.hasItems()) {
+            return rows;
+        }
+        // 同一商品出现多次时合并成一行（数量、金额相加，单价取第一次出现的）：
+        // 两张表都按 (order_id, product_id) upsert，不合并的话只会留下最后一行
+        Map<Long, Tuple3<Order, Product, OrderItem>> rowsByProduct = new HashMap<>();
+        // 当前订单项在 items 数组中的下标，用于拒绝原因中的字段路径
+        int[] itemIndex = {0};
+        try {
+            orderEvent.forEachItem(item -> {
+                String prefix = "items[" + itemIndex[0]++ + "].";
+                if (item.getProductId() == null) {
+                    throw new Rejection("订单项缺少商品ID", prefix + "productId");
+                }
+                if (item.getProductName() == null) {
+                    throw new Rejection("订单项缺少商品名称", prefix + "productName");
+                }
+                if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                    throw new Rejection("订单项数量缺失或不大于 0: " + item.getQuantity(), prefix + "quantity");
+                }
+                if (item.getUnitPrice() == null) {
+                    throw new Rejection("订单项缺少单价", prefix + "unitPrice");
+                }
+                BigDecimal unitPrice;
+                try {
+                    unitPrice = new BigDecimal(item.getUnitPrice());
+                } catch (NumberFormatException e) {
+                    throw new Rejection("单价 '" + item.getUnitPrice() + "' 不是数字", prefix + "unitPrice");
+                }
+                if (unitPrice.signum() < 0) {
+                    throw new Rejection("单价不能为负数: " + unitPrice, prefix + "unitPrice");
+                }
+
+                Long productId = item.getProductId();
+                String productName = item.getProductName();
+                Integer quantity = item.getQuantity();
+                BigDecimal itemTotalAmount = unitPrice.multiply(BigDecimal.valueOf(quantity));
+
+                Tuple3<Order, Product, OrderItem> existing = rowsByProduct.get(productId);
+                if (existing != null) {
+                    int mergedQuantity;
+                    try {
+                        mergedQuantity = Math.addExact(existing.f0.getQuantity(), quantity);
+                    } catch (ArithmeticException e) {
+                        throw new Rejection("同一商品的数量合计超出范围", prefix + "quantity");
+                    }
+                    BigDecimal mergedAmount = existing.f0.getTotalAmount().add(itemTotalAmount);
+                    existing.f0.setQuantity(mergedQuantity);
+                    existing.f0.setTotalAmount(mergedAmount);
+                    existing.f2.setQuantity(mergedQuantity);
+                    existing.f2.setTotalAmount(mergedAmount);
+                    return;
+                }
+
+                // 1. 创建 Order 实体
+                Order orderEntity = new Order();
+                orderEntity.setOrderId(orderIdString);
+                orderEntity.setUserId(String.valueOf(userId));
+                orderEntity.setStatus(status);
+                orderEntity.setCreateTime(createTime);
+                orderEntity.setUpdateTime(updateTime);
+                orderEntity.setProductId(String.valueOf(productId));
+                orderEntity.setQuantity(quantity);
+                orderEntity.setUnitPrice(unitPrice);
+                orderEntity.setTotalAmount(itemTotalAmount);
+
+                // 2. 创建 Product 实体
+                Product productEntity = new Product();
+                productEntity.setProductId(productId);
+                productEntity.setProductName(productName);
+                productEntity.setUnitPrice(unitPrice);
+
+                // 3. 创建 OrderItem 实体
+                OrderItem orderItemEntity = new OrderItem();
+                orderItemEntity.setOrderId(orderIdLong);
+                orderItemEntity.setProductId(productId);
+                orderItemEntity.setQuantity(quantity);
+                orderItemEntity.setUnitPrice(unitPrice);
+                orderItemEntity.setTotalAmount(itemTotalAmount);
+
+                Tuple3<Order, Product, OrderItem> row = new Tuple3<>(orderEntity, productEntity, orderItemEntity);
+                rowsByProduct.put(productId, row);
+                rows.add(row);
+            });
+        } catch (Rejection e) {
+            throw e;
+        } catch (Exception e) {
+            // items 中的 JSON 结构或数值类型不合法
+            throw new Rejection("订单项无法解码: " + e.getMessage(), "items[" + itemIndex[0] + "]");
+        }
+        return rows;
+    }
+
+    private static LocalDateTime parseTime(String value, String field) throws Rejection {
+        if (value == null) {
+            return LocalDateTime.now(CST_ZONE_ID);
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME)
+                    .withZoneSameInstant(CST_ZONE_ID)
+                    .toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            throw new Rejection("时间 '" + value + "' 不是 ISO-8601 格式", field);
+        }
+    }
+
+    private void reject(Context ctx, OrderEvent orderEvent, String reason, String field) {
+        rejectedCounter.inc();
+        LOG.debug("订单消息被拒绝，转入死信队列。字段: {}，原因: {}", field, reason);
+        ctx.output(REJECTED_MESSAGES, new RejectedMessage(orderEvent.getPayload(), orderEvent.getFormat().getContentType(),
+                reason, field, orderEvent.getOrderId()));
+    }
+
+    /**
+     * 校验失败。只在本算子内部传递，不需要堆栈。
+     */
+    private static final class Rejection extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final String field;
+
+        Rejection(String reason, String field) {
+            super(reason, null, false, false);
+            this.field = field;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.yourcompany.orders.function;
+
+import com.yourcompany.orders.entity.Order;
+import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.Product;
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.time.Time;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.OutputTag;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * 商品维表去重：按 productId 分区，在 keyed state 中记住最后一次写出的商品名称和单价，
+ * 只有名称或单价发生变化时才把 Product 发到 {@link #CHANGED_PRODUCTS} 侧输出去做 upsert。
+ * 所有订单行原样从主输出继续流向订单事实表。
+ *
+ * <p>状态带 TTL（从最后一次写入开始计时），过期后下一次出现的商品会被重新写出一次，
+ * 冷门商品不会永久占用状态，即便维表被外部改动也能在一个 TTL 内被纠正。
+ * 状态存放在作业配置的 state backend 中（heap 或 RocksDB）。
+ */
+public class ProductChangeFilter
+        extends KeyedProcessFunction<Long, Tuple3<Order, Product, OrderItem>, Tuple3<Order, Product, OrderItem>> {
+    private static final long serialVersionUID = 1L;
+
+    public static final OutputTag<Product> CHANGED_PRODUCTS = new OutputTag<Product>("changed-products") {};
+
+    private final long ttlMinutes;
+
+    private transient ValueState<Product> lastWritten;
+    private transient Counter changedCounter;
+    private transient Counter suppressedCounter;
+
+    public ProductChangeFilter(long ttlMinutes) {
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    @Override
+    public void open(Configuration parameters) {
+        ValueStateDescriptor<Product> descriptor = new ValueStateDescriptor<>("last-written-product", Product.class);
+        if (ttlMinutes > 0) {
+            descriptor.enableTimeToLive(StateTtlConfig.newBuilder(Time.minutes(ttlMinutes))
+                    .setUpdateType(StateTtlConfig.UpdateType.OnCreateAndWrite)
+                    .setStateVisibility(StateTtlConfig.StateVisibility.NeverReturnExpired)
+                    .build());
+        }
+        lastWritten = getRuntimeContext().getState(descriptor);
+        changedCounter = getRuntimeContext().getMetricGroup().counter("productsChanged");
+        suppressedCounter = getRuntimeContext().getMetricGroup().counter("productsSuppressed");
+    }
+
+    @Override
+    public void processElement(Tuple3<Order, Product, OrderItem> value, Context ctx,
+                               Collector<Tuple3<Order, Product, OrderItem>> out) throws Exception {
+        Product product = value.f1;
+        Product previous = lastWritten.value();
+        if (previous == null || isChanged(previous.getProductName(), previous.getUnitPrice(), product)) {
+            lastWritten.update(product);
+            ctx.output(CHANGED_PRODUCTS, product);
+            changedCounter.inc();
+        } else {
+            suppressedCounter.inc();
+        }
+        out.collect(value);
+    }
+
+    static boolean isChanged(String previousName, BigDecimal previousPrice, Product current) {
+        if (!Objects.equals(previousName, current.getProductName())) {
+            return true;
+        }
+        if (previousPrice == null || current.getUnitPrice() == null) {
+            return previousPrice != current.getUnitPrice();
+        }
+        // 用 compareTo 比较，19.9 与 19.90 视为同一个价格
+        return previousPrice.compareTo(current.getUnitPrice()) != 0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.yourcompany.orders.function;
+
+import com.yourcompany.orders.entity.Order;
+import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.Product;
+import com.yourcompany.orders.entity.ProductVersion;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.OutputTag;
+
+import java.time.LocalDateTime;
+
+/**
+ * 商品维表的 SCD Type 2 维护：按 productId 分区，在 keyed state 中保存当前有效版本。
+ * 名称或单价变化时，把旧版本关闭（validTo = 本次订单时间）并生成新版本，二者都发到
+ * {@link #PRODUCT_VERSIONS} 侧输出写入 product_dim；同时把当前版本的代理键写进 OrderItem，
+ * 这样 order_items 可以直接关联到下单时的商品价格。
+ *
+ * <p>乱序到达的旧订单（订单时间早于当前版本的 validFrom）即使价格或名称不同，也不会生成新版本：
+ * 否则维表会回到旧数据。它按当前版本记录代理键，并计入 lateProductChanges 指标。
+ *
+ * <p>每个事件只读写一次 keyed state，热路径上不查询 MySQL。版本号完全由状态维护，
+ * 因此该状态不设 TTL，作业需要从 checkpoint/savepoint 恢复，不能丢弃状态重启。
+ */
+public class ProductHistoryFunction
+        extends KeyedProcessFunction<Long, Tuple3<Order, Product, OrderItem>, Tuple3<Order, Product, OrderItem>> {
+    private static final long serialVersionUID = 1L;
+
+    public static final OutputTag<ProductVersion> PRODUCT_VERSIONS = new OutputTag<ProductVersion>("product-versions") {};
+
+    private transient ValueState<ProductVersion> currentVersion;
+    private transient Counter versionsCreated;
+    private transient Counter lateChanges;
+
+    @Override
+    public void open(Configuration parameters) {
+        currentVersion = getRuntimeContext().getState(
+                new ValueStateDescriptor<>("current-product-version", ProductVersion.class));
+        versionsCreated = getRuntimeContext().getMetricGroup().counter("productVersionsCreated");
+        lateChanges = getRuntimeContext().getMetricGroup().counter("lateProductChanges");
+    }
+
+    @Override
+    public void processElement(Tuple3<Order, Product, OrderItem> value, Context ctx,
+                               Collector<Tuple3<Order, Product, OrderItem>> out) throws Exception {
+        Product product = value.f1;
+        ProductVersion current = currentVersion.value();
+        LocalDateTime eventTime = value.f0.getCreateTime();
+        boolean changed = current == null
+                || ProductChangeFilter.isChanged(current.getProductName(), current.getUnitPrice(), product);
+        if (changed && current != null && eventTime.isBefore(current.getValidFrom())) {
+            // 乱序到达的旧订单带的是旧的商品信息，不能据此开新版本，归到当前版本
+            lateChanges.inc();
+            changed = false;
+        }
+        if (changed) {
+            int nextVersion = current != null ? current.getVersion() + 1 : 1;
+            // 先推导新版本的代理键，超出范围时在关闭旧版本之前失败
+            long nextKey = ProductVersion.surrogateKey(product.getProductId(), nextVersion);
+            if (current != null) {
+                ProductVersion closed = current.copy();
+                closed.setValidTo(eventTime);
+                closed.setCurrent(false);
+                ctx.output(PRODUCT_VERSIONS, closed);
+            }
+
+            ProductVersion opened = new ProductVersion();
+            opened.setProductId(product.getProductId());
+            opened.setVersion(nextVersion);
+            opened.setProductKey(nextKey);
+            opened.setProductName(product.getProductName());
+            opened.setUnitPrice(product.getUnitPrice());
+            opened.setValidFrom(eventTime);
+            opened.setCurrent(true);
+            currentVersion.update(opened);
+            ctx.output(PRODUCT_VERSIONS, opened);
+            // products 表仍保存每个商品的最新值
+            ctx.output(ProductChangeFilter.CHANGED_PRODUCTS, product);
+            versionsCreated.inc();
+            current = opened;
+        }
+        value.f2.setProductKey(current.getProductKey());
+        out.collect(value);
+    }
+}
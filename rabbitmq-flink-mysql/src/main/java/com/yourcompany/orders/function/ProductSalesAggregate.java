@@ -0,0 +1,48 @@
+package com.yourcompany.orders.function;
+
+import com.yourcompany.orders.entity.Order;
+import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.Product;
+import com.yourcompany.orders.entity.ProductSales;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.java.tuple.Tuple3;
+
+/**
+ * 窗口内按商品增量累加销量、销售额和订单行数，每个窗口只保留一个 {@link ProductSales} 累加器。
+ */
+public class ProductSalesAggregate
+        implements AggregateFunction<Tuple3<Order, Product, OrderItem>, ProductSales, ProductSales> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public ProductSales createAccumulator() {
+        return new ProductSales();
+    }
+
+    @Override
+    public ProductSales add(Tuple3<Order, Product, OrderItem> value, ProductSales accumulator) {
+        OrderItem item = value.f2;
+        accumulator.setQuantity(accumulator.getQuantity() + item.getQuantity());
+        accumulator.setRevenue(accumulator.getRevenue().add(item.getTotalAmount()));
+        accumulator.setOrderLines(accumulator.getOrderLines() + 1);
+        return accumulator;
+    }
+
+    @Override
+    public ProductSales getResult(ProductSales accumulator) {
+        // 开启 allowedLateness 后累加器在窗口触发后还会继续累加，发出副本，避免下游缓冲中的结果被改掉
+        ProductSales result = new ProductSales();
+        result.setQuantity(accumulator.getQuantity());
+        result.setRevenue(accumulator.getRevenue());
+        result.setOrderLines(accumulator.getOrderLines());
+        return result;
+    }
+
+    @Override
+    public ProductSales merge(ProductSales a, ProductSales b) {
+        a.setQuantity(a.getQuantity() + b.getQuantity());
+        a.setRevenue(a.getRevenue().add(b.getRevenue()));
+        a.setOrderLines(a.getOrderLines() + b.getOrderLines());
+        return a;
+    }
+}
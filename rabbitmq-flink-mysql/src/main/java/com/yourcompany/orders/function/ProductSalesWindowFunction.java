@@ -0,0 +1,45 @@
+package com.yourcompany.orders.function;
+
+import com.yourcompany.orders.entity.Order;
+import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.Product;
+import com.yourcompany.orders.entity.ProductSales;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.streaming.api.functions.windowing.ProcessWindowFunction;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.OutputTag;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 给增量聚合的结果补上商品 ID 和窗口起止时间。窗口触发时只收到一个预聚合好的元素。
+ *
+ * <p>窗口设置了 allowedLateness 时，迟到订单会让同一个窗口再次触发，发出的是包含迟到订单在内的完整汇总，
+ * 而不是增量；写入端按 (product_id, window_start, window_size_seconds) 覆盖（见
+ * {@code OrderTableSink.PRODUCT_SALES_UPSERT_SQL}），已写入的行因此会被修正。
+ * 超过 allowedLateness 的订单不再进入窗口，由 {@link #LATE_ORDER_LINES} 侧输出计数。
+ */
+public class ProductSalesWindowFunction extends ProcessWindowFunction<ProductSales, ProductSales, Long, TimeWindow> {
+    private static final long serialVersionUID = 1L;
+
+    // 窗口已经清理后才到达的订单行，通过 sideOutputLateData 输出
+    public static final OutputTag<Tuple3<Order, Product, OrderItem>> LATE_ORDER_LINES =
+            new OutputTag<Tuple3<Order, Product, OrderItem>>("late-order-lines") {};
+
+    private static final ZoneId CST_ZONE_ID = ZoneId.of("Asia/Shanghai");
+
+    @Override
+    public void process(Long productId, Context context, Iterable<ProductSales> elements, Collector<ProductSales> out) {
+        TimeWindow window = context.window();
+        for (ProductSales sales : elements) {
+            sales.setProductId(productId);
+            sales.setWindowStart(LocalDateTime.ofInstant(Instant.ofEpochMilli(window.getStart()), CST_ZONE_ID));
+            sales.setWindowEnd(LocalDateTime.ofInstant(Instant.ofEpochMilli(window.getEnd()), CST_ZONE_ID));
+            sales.setWindowSizeSeconds((int) ((window.getEnd() - window.getStart()) / 1000));
+            out.collect(sales);
+        }
+    }
+}
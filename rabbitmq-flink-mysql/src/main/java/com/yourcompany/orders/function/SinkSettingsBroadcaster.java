@@ -0,0 +1,68 @@
+package com.yourcompany.orders.function;
+
+import com.yourcompany.orders.config.SinkSettings;
+import com.yourcompany.orders.entity.Order;
+import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.Product;
+import org.apache.flink.api.common.state.BroadcastState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.streaming.api.functions.co.KeyedBroadcastProcessFunction;
+import org.apache.flink.types.Either;
+import org.apache.flink.util.Collector;
+
+/**
+ * 把控制队列下发的批次参数和订单行合并成一条流，交给下游的 {@link com.yourcompany.orders.sink.OrderTableSink}。
+ *
+ * <p>控制消息广播到每个并行实例，合并后的完整参数保存在 broadcast state 中并随 checkpoint 持久化；
+ * 作业从 checkpoint 恢复后，每个实例在处理第一条订单行之前先把保存的参数再发给下游，
+ * 运行时调过的参数不会因为重启丢失。本算子与 Sink 并行度相同，两者之间是 forward 连接，
+ * 每个实例发出的参数只到达它对应的那个 Sink 子任务。
+ */
+public class SinkSettingsBroadcaster extends KeyedBroadcastProcessFunction<String,
+        Tuple3<Order, Product, OrderItem>, SinkSettings, Either<Tuple3<Order, Product, OrderItem>, SinkSettings>> {
+    private static final long serialVersionUID = 1L;
+
+    public static final MapStateDescriptor<String, SinkSettings> SETTINGS_DESCRIPTOR = new MapStateDescriptor<>(
+            "sink-settings", BasicTypeInfo.STRING_TYPE_INFO, TypeInformation.of(SinkSettings.class));
+
+    private static final String SETTINGS_KEY = "order-table-sink";
+
+    private final SinkSettings initialSettings;
+
+    // 恢复后的参数是否已经发给下游
+    private transient boolean restoredSettingsForwarded;
+
+    public SinkSettingsBroadcaster(SinkSettings initialSettings) {
+        this.initialSettings = initialSettings;
+    }
+
+    @Override
+    public void processElement(Tuple3<Order, Product, OrderItem> value, ReadOnlyContext ctx,
+                               Collector<Either<Tuple3<Order, Product, OrderItem>, SinkSettings>> out) throws Exception {
+        if (!restoredSettingsForwarded) {
+            restoredSettingsForwarded = true;
+            SinkSettings saved = ctx.getBroadcastState(SETTINGS_DESCRIPTOR).get(SETTINGS_KEY);
+            if (saved != null) {
+                out.collect(Either.Right(saved));
+            }
+        }
+        out.collect(Either.Left(value));
+    }
+
+    @Override
+    public void processBroadcastElement(SinkSettings update, Context ctx,
+                                        Collector<Either<Tuple3<Order, Product, OrderItem>, SinkSettings>> out) throws Exception {
+        if (update == null) {
+            return;
+        }
+        BroadcastState<String, SinkSettings> state = ctx.getBroadcastState(SETTINGS_DESCRIPTOR);
+        SinkSettings current = state.get(SETTINGS_KEY);
+        SinkSettings merged = (current != null ? current : initialSettings).mergeWith(update);
+        state.put(SETTINGS_KEY, merged);
+        restoredSettingsForwarded = true;
+        out.collect(Either.Right(merged));
+    }
+}
@@ -0,0 +1,99 @@
+package com.yourcompany.orders.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Envelope;
+import com.yourcompany.orders.event.OrderEvent;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.streaming.connectors.rabbitmq.RMQDeserializationSchema;
+
+import java.io.IOException;
+
+/**
+ * 直接从 RabbitMQ 消息字节解码 {@link OrderEvent}，替代 SimpleStringSchema + org.json。
+ * 使用 Jackson 的流式解析器：不生成整条消息的 String，也不构建 JSONObject/JSONArray 树；
+ * items 数组只被跳过并记录位置，由下游算子按需解码。
+ *
+ * <p>实现 {@link RMQDeserializationSchema} 而不是 DeserializationSchema，是为了读取消息的 content_type：
+ * 后端可以用 JSON、Smile 或 CBOR 编码订单消息（见 {@link OrderMessageFormat}），三种格式走同一段解码逻辑。
+ * 每条消息都恰好发出一个元素，由 RMQSource 登记投递标识。
+ *
+ * <p>无法解码的消息不会抛出异常（那会让整个作业失败重启），而是带着错误信息和原始字节
+ * 继续向下游发送，由校验算子转入死信队列。
+ */
+public class OrderEventDeserializationSchema implements RMQDeserializationSchema<OrderEvent> {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void deserialize(Envelope envelope, AMQP.BasicProperties properties, byte[] body,
+                            RMQCollector<OrderEvent> collector) {
+        collector.collect(deserialize(body, OrderMessageFormat.fromContentType(properties.getContentType())));
+    }
+
+    /**
+     * 按指定格式解码一条订单消息，解码失败时返回带 parseError 的事件。
+     */
+    public OrderEvent deserialize(byte[] message, OrderMessageFormat format) {
+        OrderEvent event = new OrderEvent();
+        event.setPayload(message);
+        event.setFormat(format);
+        String field = null;
+        try (JsonParser parser = format.getFactory().createParser(message)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("订单消息不是 " + format + " 对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "orderId":
+                        event.setOrderId(parser.getText());
+                        break;
+                    case "userId":
+                        event.setUserId(OrderEvent.readLong(parser));
+                        break;
+                    case "status":
+                        event.setStatus(parser.getText());
+                        break;
+                    case "createdAt":
+                        event.setCreatedAt(parser.getText());
+                        break;
+                    case "updatedAt":
+                        event.setUpdatedAt(parser.getText());
+                        break;
+                    case "items":
+                        if (value == JsonToken.START_ARRAY) {
+                            int start = (int) parser.getTokenLocation().getByteOffset();
+                            parser.skipChildren();
+                            int end = (int) parser.getCurrentLocation().getByteOffset();
+                            event.setItemsOffset(start);
+                            event.setItemsLength(end - start);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            event.setParseError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            event.setParseErrorField(field != null ? field : "payload");
+        }
+        return event;
+    }
+
+    @Override
+    public boolean isEndOfStream(OrderEvent nextElement) {
+        return false;
+    }
+
+    @Override
+    public TypeInformation<OrderEvent> getProducedType() {
+        return TypeInformation.of(OrderEvent.class);
+    }
+}
@@ -0,0 +1,63 @@
+package com.yourcompany.orders.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.util.Locale;
+
+/**
+ * 订单消息体的编码格式，由消息的 content_type 决定，与后端 OrderMessageFormat（order.message.format）一一对应。
+ *
+ * <p>三种格式都是同一个 Jackson 数据模型，解码代码只依赖流式的 {@link com.fasterxml.jackson.core.JsonParser}，
+ * 差别只在 JsonFactory。JsonFactory 线程安全，每种格式共用一个。
+ */
+public enum OrderMessageFormat {
+
+    JSON("application/json", new JsonFactory()),
+    SMILE("application/x-jackson-smile", new SmileFactory()),
+    CBOR("application/cbor", new CBORFactory());
+
+    private final String contentType;
+    private final JsonFactory factory;
+
+    OrderMessageFormat(String contentType, JsonFactory factory) {
+        this.contentType = contentType;
+        this.factory = factory;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public JsonFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * JSON 可以从任意值的字节偏移处开始解析，消息也可以直接按 UTF-8 打印；二进制格式一律从消息开头解析
+     * （Smile 的字段名和短字符串会引用前面出现过的值，从中间开始无法解码）。
+     */
+    public boolean isTextual() {
+        return this == JSON;
+    }
+
+    /**
+     * 按 content_type（可以带 charset 等参数）确定格式。没有 content_type 或无法识别时按 JSON 处理，
+     * 与引入二进制格式之前的行为相同。
+     */
+    public static OrderMessageFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        int parameters = contentType.indexOf(';');
+        String mimeType = (parameters >= 0 ? contentType.substring(0, parameters) : contentType)
+                .trim().toLowerCase(Locale.ROOT);
+        for (OrderMessageFormat format : values()) {
+            if (format.contentType.equals(mimeType)) {
+                return format;
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,101 @@
+package com.yourcompany.orders.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Envelope;
+import com.yourcompany.orders.config.SinkSettings;
+import org.apache.flink.api.common.serialization.DeserializationSchema;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.streaming.connectors.rabbitmq.RMQDeserializationSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * 解码控制队列中的批次参数消息，例如 {"batchSize": 1000, "batchIntervalMs": 200}。
+ * 无法解码或取值不合理的消息记录日志后丢弃，不发往下游，不影响作业运行。
+ *
+ * <p>实现 {@link RMQDeserializationSchema} 而不是 DeserializationSchema：RMQSource 会把 DeserializationSchema
+ * 返回的 null 原样发给下游，只有这里才能不发出任何元素。丢弃的消息也要登记投递标识，
+ * 否则开启 checkpoint 时它永远不会被确认，重启后又被重新投递。
+ */
+public class SinkSettingsDeserializationSchema implements RMQDeserializationSchema<SinkSettings> {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(SinkSettingsDeserializationSchema.class);
+
+    private transient JsonFactory jsonFactory;
+
+    @Override
+    public void open(DeserializationSchema.InitializationContext context) {
+        jsonFactory = new JsonFactory();
+    }
+
+    @Override
+    public void deserialize(Envelope envelope, AMQP.BasicProperties properties, byte[] body,
+                            RMQCollector<SinkSettings> collector) throws IOException {
+        SinkSettings settings = parse(body);
+        if (settings != null) {
+            collector.collect(settings);
+        } else {
+            // 不发出元素时 RMQSource 不会登记这条消息，由这里登记，随下一次 checkpoint 确认
+            collector.setMessageIdentifiers(properties.getCorrelationId(), envelope.getDeliveryTag());
+        }
+    }
+
+    /**
+     * 解码一条控制消息，无法解码或取值不合理时返回 null。
+     */
+    private SinkSettings parse(byte[] message) {
+        if (jsonFactory == null) {
+            jsonFactory = new JsonFactory();
+        }
+        SinkSettings settings = new SinkSettings();
+        try (JsonParser parser = jsonFactory.createParser(message)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("控制消息不是 JSON 对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "batchSize":
+                        settings.setBatchSize(parser.getValueAsInt());
+                        break;
+                    case "batchIntervalMs":
+                        settings.setBatchIntervalMs(parser.getValueAsLong());
+                        break;
+                    case "maxRetries":
+                        settings.setMaxRetries(parser.getValueAsInt());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("忽略无法解码的控制消息", e);
+            return null;
+        }
+        if (!settings.isValid()) {
+            LOG.warn("忽略取值不合理的控制消息: {}", settings);
+            return null;
+        }
+        return settings;
+    }
+
+    @Override
+    public boolean isEndOfStream(SinkSettings nextElement) {
+        return false;
+    }
+
+    @Override
+    public TypeInformation<SinkSettings> getProducedType() {
+        return TypeInformation.of(SinkSettings.class);
+    }
+}
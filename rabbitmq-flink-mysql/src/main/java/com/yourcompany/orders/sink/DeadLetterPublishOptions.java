@@ -0,0 +1,57 @@
+package com.yourcompany.orders.sink;
+
+import com.rabbitmq.client.AMQP;
+import com.yourcompany.orders.event.RejectedMessage;
+import com.yourcompany.orders.serialization.OrderMessageFormat;
+import org.apache.flink.streaming.connectors.rabbitmq.RMQSinkPublishOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 死信消息的发布参数：通过默认交换机直接投递到死信队列，消息体和 content_type 与原始订单消息相同（JSON、Smile 或 CBOR），
+ * 拒绝原因、出错字段和订单ID放在 AMQP headers 里，修复后可以把消息原样重新投递到 order_queue。
+ *
+ * <p>死信队列需要预先声明为 durable（后端的 RabbitMQConfig 会声明 order_queue_dlq）。
+ */
+public class DeadLetterPublishOptions implements RMQSinkPublishOptions<RejectedMessage> {
+    private static final long serialVersionUID = 1L;
+
+    public static final String HEADER_REASON = "x-reject-reason";
+    public static final String HEADER_FIELD = "x-reject-field";
+    public static final String HEADER_ORDER_ID = "x-order-id";
+    public static final String HEADER_REJECTED_AT = "x-rejected-at";
+
+    private final String queueName;
+
+    public DeadLetterPublishOptions(String queueName) {
+        this.queueName = queueName;
+    }
+
+    @Override
+    public String computeRoutingKey(RejectedMessage message) {
+        return queueName;
+    }
+
+    @Override
+    public AMQP.BasicProperties computeProperties(RejectedMessage message) {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(HEADER_REASON, message.getReason());
+        headers.put(HEADER_FIELD, message.getField());
+        if (message.getOrderId() != null) {
+            headers.put(HEADER_ORDER_ID, message.getOrderId());
+        }
+        headers.put(HEADER_REJECTED_AT, message.getRejectedAt());
+        return new AMQP.BasicProperties.Builder()
+                .contentType(message.getContentType() != null
+                        ? message.getContentType() : OrderMessageFormat.JSON.getContentType())
+                .deliveryMode(2) // 持久化消息
+                .headers(headers)
+                .build();
+    }
+
+    @Override
+    public String computeExchange(RejectedMessage message) {
+        return "";
+    }
+}
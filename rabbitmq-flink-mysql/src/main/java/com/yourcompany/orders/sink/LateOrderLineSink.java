@@ -0,0 +1,38 @@
+package com.yourcompany.orders.sink;
+
+import com.yourcompany.orders.entity.Order;
+import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.Product;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 超过 allowedLateness、没能计入销售窗口的订单行。
+ * 订单本身已经由订单 Sink 写入事实表，这里不需要重新投递，只通过 lateOrderLines 指标暴露数量，
+ * 指标持续增长时应调大 sales.out-of-orderness-seconds 或 sales.allowed-lateness-seconds。
+ */
+public class LateOrderLineSink extends RichSinkFunction<Tuple3<Order, Product, OrderItem>> {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(LateOrderLineSink.class);
+
+    private transient Counter lateOrderLines;
+
+    @Override
+    public void open(Configuration parameters) {
+        lateOrderLines = getRuntimeContext().getMetricGroup().counter("lateOrderLines");
+        getRuntimeContext().getMetricGroup().meter("lateOrderLinesPerSecond", new MeterView(lateOrderLines));
+    }
+
+    @Override
+    public void invoke(Tuple3<Order, Product, OrderItem> row, Context context) {
+        lateOrderLines.inc();
+        LOG.debug("订单行迟到，未计入销售窗口。订单ID: {}，商品ID: {}，下单时间: {}",
+                row.f0.getOrderId(), row.f1.getProductId(), row.f0.getCreateTime());
+    }
+}
@@ -0,0 +1,385 @@
+package com.yourcompany.orders.sink;
+
+import com.yourcompany.orders.config.SinkSettings;
+import com.yourcompany.orders.entity.Order;
+import com.yourcompany.orders.entity.OrderItem;
+import com.yourcompany.orders.entity.Product;
+import com.yourcompany.orders.entity.ProductSales;
+import com.yourcompany.orders.entity.ProductVersion;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.connector.jdbc.JdbcConnectionOptions;
+import org.apache.flink.connector.jdbc.JdbcExecutionOptions;
+import org.apache.flink.connector.jdbc.internal.connection.SimpleJdbcConnectionProvider;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Histogram;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
+import org.apache.flink.runtime.state.FunctionInitializationContext;
+import org.apache.flink.runtime.state.FunctionSnapshotContext;
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.types.Either;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把拆分后的 (Order, Product, OrderItem) 一次写入 orders、products、order_items 三张表。
+ * 每个子任务只持有一个复用的 JDBC 连接，三条语句共用一个批次缓冲，
+ * 一个批次在同一个事务里提交，三张表不会出现一张已提交、另一张还在缓冲中的情况。
+ * 批次在达到 batchSize、batchIntervalMs 到期或 checkpoint 时 flush。
+ *
+ * <p>输入是 Either：Left 是要写入的行，Right 是控制队列下发的新批次参数（见 {@link SinkSettings}），
+ * 收到后立即生效，不需要重启作业。
+ */
+public class OrderTableSink extends RichSinkFunction<Either<Tuple3<Order, Product, OrderItem>, SinkSettings>>
+        implements CheckpointedFunction {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrderTableSink.class);
+
+    // 三张表都用 upsert 写入，依赖 sql/idempotent_upsert_keys.sql 中的唯一键：
+    // checkpoint 之后重放的消息会覆盖同一行，而不是再插入一遍
+    public static final String PRODUCT_UPSERT_SQL =
+            "INSERT INTO products (product_id, product_name, unit_price) VALUES (?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE product_name = VALUES(product_name), unit_price = VALUES(unit_price)";
+    public static final String ORDER_UPSERT_SQL =
+            "INSERT INTO orders (order_id, user_id, product_id, quantity, unit_price, total_amount, order_status, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE user_id = VALUES(user_id), quantity = VALUES(quantity), unit_price = VALUES(unit_price), total_amount = VALUES(total_amount), order_status = VALUES(order_status), update_time = VALUES(update_time)";
+    public static final String ORDER_ITEM_UPSERT_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, unit_price, total_amount) VALUES (?, ?, ?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), unit_price = VALUES(unit_price), total_amount = VALUES(total_amount)";
+    // SCD2 模式下 order_items 额外写入 product_sk（见 sql/product_dim_scd2.sql）
+    public static final String ORDER_ITEM_WITH_PRODUCT_KEY_UPSERT_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, unit_price, total_amount, product_sk) VALUES (?, ?, ?, ?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), unit_price = VALUES(unit_price), total_amount = VALUES(total_amount), product_sk = VALUES(product_sk)";
+    // 新版本插入、旧版本关闭都按 product_sk upsert，关闭时只更新有效期字段
+    public static final String PRODUCT_DIM_UPSERT_SQL =
+            "INSERT INTO product_dim (product_sk, product_id, version, product_name, unit_price, valid_from, valid_to, is_current) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE valid_to = VALUES(valid_to), is_current = VALUES(is_current)";
+    // 销售预聚合按 (商品, 窗口起点, 窗口长度) 覆盖写入，窗口重复触发或重放时结果保持一致
+    // 窗口每次触发（包括迟到订单引起的再次触发）都发出完整汇总，按主键覆盖而不是累加
+    public static final String PRODUCT_SALES_UPSERT_SQL =
+            "INSERT INTO product_sales_agg (product_id, window_start, window_size_seconds, window_end, quantity, revenue, order_lines) VALUES (?, ?, ?, ?, ?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE window_end = VALUES(window_end), quantity = VALUES(quantity), revenue = VALUES(revenue), order_lines = VALUES(order_lines)";
+
+    // flush 指标直方图保留的最近样本数
+    private static final int HISTOGRAM_WINDOW_SIZE = 500;
+
+    private final JdbcConnectionOptions connectionOptions;
+    private final JdbcExecutionOptions executionOptions;
+    // 商品维表开启去重时由单独的维表 Sink 写入 products，这里只写订单事实表
+    private final boolean writeProducts;
+    // SCD2 模式下 order_items 带上商品版本的代理键
+    private final boolean writeProductKey;
+
+    private transient SimpleJdbcConnectionProvider connectionProvider;
+    private transient PreparedStatement productStatement;
+    private transient PreparedStatement orderStatement;
+    private transient PreparedStatement orderItemStatement;
+
+    private transient List<Tuple3<Order, Product, OrderItem>> buffer;
+    private transient ScheduledExecutorService scheduler;
+    private transient ScheduledFuture<?> scheduledFlush;
+    private transient volatile Exception flushException;
+
+    // 当前生效的批次参数，初始值来自 executionOptions，可被控制消息修改
+    private transient int batchSize;
+    private transient long batchIntervalMs;
+    private transient int maxRetries;
+
+    private transient Counter flushCounter;
+    private transient Counter rowsWrittenCounter;
+    private transient Histogram flushSizeHistogram;
+    private transient Histogram flushLatencyHistogram;
+
+    public OrderTableSink(JdbcConnectionOptions connectionOptions, JdbcExecutionOptions executionOptions) {
+        this(connectionOptions, executionOptions, true);
+    }
+
+    public OrderTableSink(JdbcConnectionOptions connectionOptions, JdbcExecutionOptions executionOptions, boolean writeProducts) {
+        this(connectionOptions, executionOptions, writeProducts, false);
+    }
+
+    public OrderTableSink(JdbcConnectionOptions connectionOptions, JdbcExecutionOptions executionOptions,
+                          boolean writeProducts, boolean writeProductKey) {
+        this.connectionOptions = connectionOptions;
+        this.executionOptions = executionOptions;
+        this.writeProducts = writeProducts;
+        this.writeProductKey = writeProductKey;
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        super.open(parameters);
+        batchSize = executionOptions.getBatchSize();
+        batchIntervalMs = executionOptions.getBatchIntervalMs();
+        maxRetries = executionOptions.getMaxRetries();
+        buffer = new ArrayList<>(batchSize);
+        connectionProvider = new SimpleJdbcConnectionProvider(connectionOptions);
+        prepareStatements(connectionProvider.getOrEstablishConnection());
+
+        flushCounter = getRuntimeContext().getMetricGroup().counter("flushes");
+        // 已提交到 MySQL 的订单行数及其每秒速率（按事务提交计，不同于算子自带的 numRecordsIn）
+        rowsWrittenCounter = getRuntimeContext().getMetricGroup().counter("rowsWritten");
+        getRuntimeContext().getMetricGroup().meter("rowsWrittenPerSecond", new MeterView(rowsWrittenCounter));
+        flushSizeHistogram = getRuntimeContext().getMetricGroup()
+                .histogram("flushSize", new DescriptiveStatisticsHistogram(HISTOGRAM_WINDOW_SIZE));
+        flushLatencyHistogram = getRuntimeContext().getMetricGroup()
+                .histogram("flushLatencyMs", new DescriptiveStatisticsHistogram(HISTOGRAM_WINDOW_SIZE));
+
+        scheduleFlush();
+    }
+
+    /**
+     * 按当前 batchIntervalMs 启动（或重启）定时 flush 线程，间隔为 0 时不定时 flush。
+     */
+    private void scheduleFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        long intervalMs = batchIntervalMs;
+        if (intervalMs <= 0 || batchSize == 1) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "order-table-sink-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        scheduledFlush = scheduler.scheduleWithFixedDelay(() -> {
+            synchronized (OrderTableSink.this) {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    flushException = e;
+                }
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void invoke(Either<Tuple3<Order, Product, OrderItem>, SinkSettings> value, Context context) throws Exception {
+        checkFlushException();
+        if (value.isRight()) {
+            applySettings(value.right());
+            return;
+        }
+        buffer.add(value.left());
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 应用控制消息下发的批次参数。先按旧参数写出已缓冲的行，再切换到新参数。
+     */
+    private void applySettings(SinkSettings settings) throws IOException {
+        SinkSettings current = new SinkSettings(batchSize, batchIntervalMs, maxRetries);
+        SinkSettings updated = current.mergeWith(settings);
+        if (updated.getBatchSize().equals(current.getBatchSize())
+                && updated.getBatchIntervalMs().equals(current.getBatchIntervalMs())
+                && updated.getMaxRetries().equals(current.getMaxRetries())) {
+            return;
+        }
+        flush();
+        batchSize = updated.getBatchSize();
+        batchIntervalMs = updated.getBatchIntervalMs();
+        maxRetries = updated.getMaxRetries();
+        scheduleFlush();
+        LOG.info("写入批次参数已更新: {} -> {}", current, updated);
+    }
+
+    @Override
+    public synchronized void snapshotState(FunctionSnapshotContext context) throws Exception {
+        checkFlushException();
+        flush();
+    }
+
+    @Override
+    public void initializeState(FunctionInitializationContext context) {
+        // 每次 checkpoint 前都会清空缓冲，没有需要恢复的状态
+    }
+
+    /**
+     * 把缓冲中的所有行作为一个事务写入三张表。失败时回滚并按 maxRetries 重建连接重试。
+     */
+    private void flush() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writeBatch();
+                break;
+            } catch (SQLException e) {
+                LOG.error("写入 MySQL 失败，第 {} 次尝试，批次大小 {}", attempt + 1, buffer.size(), e);
+                rollbackQuietly();
+                if (attempt >= maxRetries) {
+                    throw new IOException("写入订单批次失败，已重试 " + attempt + " 次", e);
+                }
+                try {
+                    prepareStatements(connectionProvider.reestablishConnection());
+                    Thread.sleep(1000L * (attempt + 1));
+                } catch (Exception reconnectException) {
+                    throw new IOException("重建 MySQL 连接失败", reconnectException);
+                }
+            }
+        }
+        flushCounter.inc();
+        rowsWrittenCounter.inc(buffer.size());
+        flushSizeHistogram.update(buffer.size());
+        flushLatencyHistogram.update(System.currentTimeMillis() - start);
+        buffer.clear();
+    }
+
+    private void writeBatch() throws SQLException {
+        for (Tuple3<Order, Product, OrderItem> row : buffer) {
+            if (writeProducts) {
+                bindProduct(productStatement, row.f1);
+                productStatement.addBatch();
+            }
+            bindOrder(orderStatement, row.f0);
+            orderStatement.addBatch();
+            bindOrderItem(orderItemStatement, row.f2, writeProductKey);
+            orderItemStatement.addBatch();
+        }
+        // 先写维表，再写事实表
+        if (writeProducts) {
+            productStatement.executeBatch();
+        }
+        orderStatement.executeBatch();
+        orderItemStatement.executeBatch();
+        orderStatement.getConnection().commit();
+    }
+
+    private void prepareStatements(Connection connection) throws SQLException {
+        closeStatements();
+        connection.setAutoCommit(false);
+        productStatement = connection.prepareStatement(PRODUCT_UPSERT_SQL);
+        orderStatement = connection.prepareStatement(ORDER_UPSERT_SQL);
+        orderItemStatement = connection.prepareStatement(
+                writeProductKey ? ORDER_ITEM_WITH_PRODUCT_KEY_UPSERT_SQL : ORDER_ITEM_UPSERT_SQL);
+    }
+
+    public static void bindProduct(PreparedStatement statement, Product product) throws SQLException {
+        statement.setLong(1, product.getProductId());
+        statement.setString(2, product.getProductName());
+        statement.setBigDecimal(3, product.getUnitPrice());
+    }
+
+    static void bindOrder(PreparedStatement statement, Order order) throws SQLException {
+        statement.setString(1, order.getOrderId());
+        statement.setString(2, order.getUserId());
+        statement.setString(3, order.getProductId());
+        statement.setInt(4, order.getQuantity());
+        statement.setBigDecimal(5, order.getUnitPrice());
+        statement.setBigDecimal(6, order.getTotalAmount());
+        statement.setString(7, order.getStatus() != null ? order.getStatus().name() : null);
+        statement.setTimestamp(8, Timestamp.valueOf(order.getCreateTime()));
+        statement.setTimestamp(9, Timestamp.valueOf(order.getUpdateTime()));
+    }
+
+    static void bindOrderItem(PreparedStatement statement, OrderItem orderItem, boolean withProductKey) throws SQLException {
+        statement.setLong(1, orderItem.getOrderId());
+        statement.setLong(2, orderItem.getProductId());
+        statement.setInt(3, orderItem.getQuantity());
+        statement.setBigDecimal(4, orderItem.getUnitPrice());
+        statement.setBigDecimal(5, orderItem.getTotalAmount());
+        if (withProductKey) {
+            statement.setLong(6, orderItem.getProductKey());
+        }
+    }
+
+    public static void bindProductVersion(PreparedStatement statement, ProductVersion version) throws SQLException {
+        statement.setLong(1, version.getProductKey());
+        statement.setLong(2, version.getProductId());
+        statement.setInt(3, version.getVersion());
+        statement.setString(4, version.getProductName());
+        statement.setBigDecimal(5, version.getUnitPrice());
+        statement.setTimestamp(6, Timestamp.valueOf(version.getValidFrom()));
+        statement.setTimestamp(7, version.getValidTo() != null ? Timestamp.valueOf(version.getValidTo()) : null);
+        statement.setBoolean(8, version.isCurrent());
+    }
+
+    public static void bindProductSales(PreparedStatement statement, ProductSales sales) throws SQLException {
+        statement.setLong(1, sales.getProductId());
+        statement.setTimestamp(2, Timestamp.valueOf(sales.getWindowStart()));
+        statement.setInt(3, sales.getWindowSizeSeconds());
+        statement.setTimestamp(4, Timestamp.valueOf(sales.getWindowEnd()));
+        statement.setLong(5, sales.getQuantity());
+        statement.setBigDecimal(6, sales.getRevenue());
+        statement.setLong(7, sales.getOrderLines());
+    }
+
+    private void rollbackQuietly() {
+        try {
+            if (orderStatement != null) {
+                orderStatement.getConnection().rollback();
+            }
+        } catch (SQLException e) {
+            LOG.warn("回滚 MySQL 事务失败", e);
+        }
+    }
+
+    private void closeStatements() {
+        for (PreparedStatement statement : new PreparedStatement[] {productStatement, orderStatement, orderItemStatement}) {
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    LOG.warn("关闭 PreparedStatement 失败", e);
+                }
+            }
+        }
+        productStatement = null;
+        orderStatement = null;
+        orderItemStatement = null;
+    }
+
+    private void checkFlushException() {
+        if (flushException != null) {
+            throw new RuntimeException("定时写入 MySQL 失败", flushException);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        if (buffer != null && flushException == null) {
+            synchronized (this) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    LOG.warn("关闭前写入剩余批次失败，共 {} 行", buffer.size(), e);
+                }
+            }
+        }
+        closeStatements();
+        if (connectionProvider != null) {
+            connectionProvider.closeConnection();
+        }
+        super.close();
+    }
+}
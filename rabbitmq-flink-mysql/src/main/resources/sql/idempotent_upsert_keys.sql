@@ -0,0 +1,13 @@
+-- RabbitMQToMySQL 的 checkpoint 模式依赖以下唯一键实现幂等写入：
+-- checkpoint 之后重放的订单行会命中 ON DUPLICATE KEY UPDATE，覆盖原行而不是重复插入。
+-- 注意：同一订单中同一商品只能有一行。写入 orders 的各条路径都会先合并重复的商品行（数量、金额相加）：
+-- Flink 的 OrderMessageSplitter、后端的 OrderService.doCreateOrder 和 OrderConsumerService。
+-- 加唯一键前需先合并表中已有的重复行，否则 ALTER TABLE 会失败。
+
+ALTER TABLE orders
+    ADD UNIQUE KEY uk_orders_order_product (order_id, product_id);
+
+ALTER TABLE order_items
+    ADD UNIQUE KEY uk_order_items_order_product (order_id, product_id);
+
+-- products 的 upsert 依赖 product_id 上已有的主键，本身就是幂等的。
@@ -0,0 +1,21 @@
+-- RabbitMQToMySQL 的 SCD2 模式（--product.scd2 true）需要的表结构。
+-- product_dim 保存商品名称/单价的每一个历史版本，valid_to 为 NULL 的是当前版本。
+-- product_sk = product_id * 1000000 + version，由 Flink 作业在 keyed state 中确定性地生成。
+
+CREATE TABLE IF NOT EXISTS product_dim (
+    product_sk   BIGINT         NOT NULL PRIMARY KEY,
+    product_id   BIGINT         NOT NULL,
+    version      INT            NOT NULL,
+    product_name VARCHAR(255),
+    unit_price   DECIMAL(10, 2),
+    valid_from   DATETIME       NOT NULL,
+    valid_to     DATETIME       NULL,
+    is_current   TINYINT(1)     NOT NULL,
+    UNIQUE KEY uk_product_dim_version (product_id, version),
+    KEY idx_product_dim_validity (product_id, valid_from, valid_to)
+);
+
+-- 订单项关联下单时有效的商品版本
+ALTER TABLE order_items
+    ADD COLUMN product_sk BIGINT NULL,
+    ADD KEY idx_order_items_product_sk (product_sk);
@@ -0,0 +1,16 @@
+-- RabbitMQToMySQL 的销售预聚合分支（--sales.aggregates true）写入的事实表。
+-- 每行是某个商品在一个事件时间窗口内的销量和销售额：
+--   window_size_seconds = 60 为每分钟滚动窗口，其余为滑动窗口（长度见作业参数）。
+-- 重放、或迟到订单（sales.allowed-lateness-seconds 以内）让窗口再次触发时，按主键覆盖为最新的完整汇总。
+
+CREATE TABLE IF NOT EXISTS product_sales_agg (
+    product_id          BIGINT         NOT NULL,
+    window_start        DATETIME       NOT NULL,
+    window_size_seconds INT            NOT NULL,
+    window_end          DATETIME       NOT NULL,
+    quantity            BIGINT         NOT NULL,
+    revenue             DECIMAL(18, 2) NOT NULL,
+    order_lines         BIGINT         NOT NULL,
+    PRIMARY KEY (product_id, window_start, window_size_seconds),
+    KEY idx_product_sales_window (window_size_seconds, window_start)
+);